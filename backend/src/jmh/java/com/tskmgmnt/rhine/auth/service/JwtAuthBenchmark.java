@@ -0,0 +1,85 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.DecodingException;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token.
+ * <ul>
+ *     <li>{@code previousFilter}: what the filter used to do: decode the secret and
+ *     build a parser for each of the three claim reads (subject, subject, expiry).</li>
+ *     <li>{@code verifyOnce}: a single parse with the shared parser, as on a cache miss.</li>
+ *     <li>{@code verifyCached}: a repeat request with the same token.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "benchmark_secret_key_which_is_at_least_256_bits_long!!";
+
+    private JwtService uncached;
+    private JwtService cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncached = new JwtService(SECRET, 3_600_000, 0, new SimpleMeterRegistry());
+        cached = new JwtService(SECRET, 3_600_000, 10_000, new SimpleMeterRegistry());
+        token = cached.generateToken(new User("alice@example.com", "x", List.of()));
+        cached.verify(token);
+    }
+
+    @Benchmark
+    public boolean previousFilter() {
+        String username = legacyClaims(token).getSubject();
+        return username.equals(legacyClaims(token).getSubject())
+                && !legacyClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public Claims verifyOnce() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return cached.verify(token);
+    }
+
+    private static Claims legacyClaims(String token) {
+        byte[] keyBytes;
+        try {
+            keyBytes = Decoders.BASE64.decode(SECRET);
+        } catch (DecodingException | IllegalArgumentException e) {
+            keyBytes = SECRET.getBytes(StandardCharsets.UTF_8);
+        }
+        Key key = Keys.hmacShaKeyFor(keyBytes);
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+}
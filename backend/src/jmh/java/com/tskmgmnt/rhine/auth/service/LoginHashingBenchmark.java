@@ -0,0 +1,65 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password work per login, single-threaded so the score reads as logins per
+ * second per core.
+ * <ul>
+ *     <li>{@code previousLogin}: the authentication manager's check plus the
+ *     service's own second check.</li>
+ *     <li>{@code login}: the single check through {@link PasswordHashingService}.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(1)
+@Fork(1)
+public class LoginHashingBenchmark {
+
+    private BCryptPasswordEncoder encoder;
+    private PasswordHashingService hashingService;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder();
+        hashingService = new PasswordHashingService(encoder, new SimpleMeterRegistry(), 1, 64);
+        hashingService.start();
+        hash = encoder.encode("correct horse battery staple");
+    }
+
+    @TearDown
+    public void tearDown() {
+        hashingService.stop();
+    }
+
+    @Benchmark
+    public boolean previousLogin() {
+        return encoder.matches("correct horse battery staple", hash)
+                && encoder.matches("correct horse battery staple", hash);
+    }
+
+    @Benchmark
+    public boolean login() {
+        return hashingService.matches("correct horse battery staple", hash);
+    }
+}
@@ -0,0 +1,80 @@
+package com.tskmgmnt.rhine.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering one email, with the template cache on as in production.
+ * <ul>
+ *     <li>{@code thymeleaf}: {@code TemplateEngine.process}, as {@link MailService} used to.</li>
+ *     <li>{@code renderer}: {@link TemplateRenderer}, which serves the compiled template.</li>
+ * </ul>
+ * Run with {@code -prof gc} to compare allocation per render as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderingBenchmark {
+
+    @Param({"otp-email", "invite-email", "reset-password"})
+    private String template;
+
+    private SpringTemplateEngine templateEngine;
+    private TemplateRenderer renderer;
+    private Map<String, String> variables;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        renderer = new TemplateRenderer(templateEngine, new SimpleMeterRegistry(), true);
+
+        variables = switch (template) {
+            case "otp-email" -> Map.of("otpCode", "482913");
+            case "invite-email" -> Map.of(
+                    "projectName", "Platform & Tools",
+                    "role", "MEMBER",
+                    "inviteLink", "http://localhost:5173/accept-invite?token=4f0c2a9e-7b1d-4c55-9a61-0d3e8f2b7c11");
+            default -> Map.of("resetLink", "http://localhost:5173/reset-password?token=9c7e1b2a-3d4f-4a5b-8c6d-7e8f9a0b1c2d");
+        };
+        renderer.render(template, variables);
+    }
+
+    @Benchmark
+    public String thymeleaf() {
+        Context context = new Context();
+        variables.forEach(context::setVariable);
+        return templateEngine.process(template, context);
+    }
+
+    @Benchmark
+    public String renderer() {
+        return renderer.render(template, variables);
+    }
+}
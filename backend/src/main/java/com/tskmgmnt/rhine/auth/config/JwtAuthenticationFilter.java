@@ -1,6 +1,7 @@
 package com.tskmgmnt.rhine.auth.config;
 
-import com.tskmgmnt.rhine.auth.service.JwtService;
+import com.tskmgmnt.rhine.auth.dto.AuthenticatedUser;
+import com.tskmgmnt.rhine.auth.service.TokenAuthenticationService;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -10,23 +11,31 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Authenticates requests with the JWT in the {@code Authorization} header. The
+ * project event stream is opened by a browser {@code EventSource}, which cannot
+ * set headers, so that route alone also accepts a stream token in the
+ * {@code access_token} query parameter.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    public static final String STREAM_TOKEN_PARAM = "access_token";
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
-        this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+    private static final Pattern EVENT_STREAM = Pattern.compile("^/api/projects/(\\d+)/events$");
+
+    private final TokenAuthenticationService tokenAuthenticationService;
+
+    public JwtAuthenticationFilter(TokenAuthenticationService tokenAuthenticationService) {
+        this.tokenAuthenticationService = tokenAuthenticationService;
     }
 
     @Override
@@ -37,29 +46,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
+        Long streamProjectId = null;
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwt = authHeader.substring(7);
+        } else {
+            // Checked against the project in the path, so the token opens nothing else.
+            streamProjectId = eventStreamProjectId(request);
+            jwt = streamProjectId != null ? request.getParameter(STREAM_TOKEN_PARAM) : null;
+        }
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (jwt == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
         try {
-            userEmail = jwtService.extractUsername(jwt);
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+            // Built from the verified claims alone; no user lookup.
+            AuthenticatedUser user = streamProjectId == null
+                    ? tokenAuthenticationService.authenticate(jwt)
+                    : tokenAuthenticationService.authenticateStream(jwt, streamProjectId);
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        user,
+                        null,
+                        user.getAuthorities()
+                );
+                authToken.setDetails(
+                        new WebAuthenticationDetailsSource().buildDetails(request)
+                );
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         } catch (Exception e) {
             logger.error("Could not set user authentication in security context", e);
@@ -67,4 +83,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private static Long eventStreamProjectId(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = EVENT_STREAM.matcher(path);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
 }
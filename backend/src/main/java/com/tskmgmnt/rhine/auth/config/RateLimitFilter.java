@@ -0,0 +1,274 @@
+package com.tskmgmnt.rhine.auth.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tskmgmnt.rhine.core.cache.TokenBucketLimiter;
+import com.tskmgmnt.rhine.core.config.RateLimitPolicy;
+import com.tskmgmnt.rhine.core.exception.ErrorResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles the unauthenticated auth endpoints, each of which costs a BCrypt
+ * hash or an email, before the request reaches anything expensive.
+ * <p>
+ * Every {@link RateLimitPolicy} gets token buckets keyed by client address and,
+ * where the request names one, by target email, so neither a single client nor a
+ * spread of clients aimed at one account can run up the cost. Rejected requests
+ * get a {@code 429} with {@code Retry-After} and are counted in
+ * {@code rhine.ratelimit.rejected}, tagged by endpoint and key.
+ * <p>
+ * The client address is {@link HttpServletRequest#getRemoteAddr()}; behind a
+ * reverse proxy, set {@code server.forward-headers-strategy} so that it is the
+ * caller's address rather than the proxy's.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Limits> limitsByPath = new HashMap<>();
+
+    public RateLimitFilter(List<RateLimitPolicy> policies,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${application.rate-limit.max-keys:50000}") int maxKeys) {
+        this.objectMapper = objectMapper;
+        if (!enabled) {
+            return;
+        }
+        for (RateLimitPolicy policy : policies) {
+            if (policy.enabled()) {
+                limitsByPath.put(policy.path(), new Limits(policy, maxKeys, meterRegistry));
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || limitsByPath.get(pathOf(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        Limits limits = limitsByPath.get(pathOf(request));
+
+        long wait = limits.acquireByIp(request.getRemoteAddr());
+        if (wait == 0 && limits.byEmail != null) {
+            request = readable(request);
+            String email = emailOf(request);
+            if (email != null) {
+                wait = limits.acquireByEmail(email);
+            }
+        }
+        if (wait > 0) {
+            reject(response, wait);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${application.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        limitsByPath.values().forEach(Limits::evictIdle);
+    }
+
+    /** Query or form parameter first, as {@code /verify} and {@code /resend-otp} take it, then the JSON body. */
+    private String emailOf(HttpServletRequest request) {
+        String email = request.getParameter("email");
+        if (email == null && request instanceof CachedBodyRequest cached) {
+            try {
+                JsonNode field = objectMapper.readTree(cached.body).get("email");
+                email = field != null && field.isTextual() ? field.asText() : null;
+            } catch (IOException e) {
+                // Not JSON; the endpoint rejects it on its own.
+            }
+        }
+        return email == null || email.isBlank() ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long seconds = Math.max(1, (waitNanos + second - 1) / second);
+        ErrorResponse error = new ErrorResponse();
+        error.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        error.setMessage("Too many requests, please try again later");
+        error.setTimeStamp(System.currentTimeMillis());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    /**
+     * Buffers a small JSON body so the email can be read here and the body read
+     * again by the controller. Larger or unsized bodies are passed on untouched.
+     */
+    private static HttpServletRequest readable(HttpServletRequest request) throws IOException {
+        long length = request.getContentLengthLong();
+        if (length <= 0 || length > MAX_BODY_BYTES || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType(request))) {
+            return request;
+        }
+        return new CachedBodyRequest(request, request.getInputStream().readNBytes((int) length));
+    }
+
+    private static MediaType contentType(HttpServletRequest request) {
+        try {
+            return request.getContentType() == null ? null : MediaType.parseMediaType(request.getContentType());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static final class Limits {
+
+        private final TokenBucketLimiter byIp;
+        private final TokenBucketLimiter byEmail;
+        private final Counter ipRejected;
+        private final Counter emailRejected;
+
+        Limits(RateLimitPolicy policy, int maxKeys, MeterRegistry meterRegistry) {
+            this.byIp = policy.perIp() > 0 ? new TokenBucketLimiter(policy.perIp(), policy.window(), maxKeys) : null;
+            // A flood of made-up emails must not lock out real ones; the per-IP limit covers the flood.
+            this.byEmail = policy.perEmail() > 0
+                    ? new TokenBucketLimiter(policy.perEmail(), policy.window(), maxKeys, TokenBucketLimiter.Overflow.ALLOW)
+                    : null;
+            this.ipRejected = rejectedCounter(policy, "ip", meterRegistry);
+            this.emailRejected = rejectedCounter(policy, "email", meterRegistry);
+            Gauge.builder("rhine.ratelimit.keys", this, Limits::size)
+                    .description("Clients and emails currently tracked by the rate limiter")
+                    .tag("endpoint", policy.name())
+                    .register(meterRegistry);
+        }
+
+        long acquireByIp(String ip) {
+            return acquire(byIp, ip, ipRejected);
+        }
+
+        long acquireByEmail(String email) {
+            return acquire(byEmail, email, emailRejected);
+        }
+
+        void evictIdle() {
+            if (byIp != null) {
+                byIp.evictIdle();
+            }
+            if (byEmail != null) {
+                byEmail.evictIdle();
+            }
+        }
+
+        private int size() {
+            return (byIp == null ? 0 : byIp.size()) + (byEmail == null ? 0 : byEmail.size());
+        }
+
+        private static long acquire(TokenBucketLimiter limiter, String key, Counter rejected) {
+            if (limiter == null) {
+                return 0;
+            }
+            long wait = limiter.tryAcquire(key);
+            if (wait > 0) {
+                rejected.increment();
+            }
+            return wait;
+        }
+
+        private static Counter rejectedCounter(RateLimitPolicy policy, String key, MeterRegistry meterRegistry) {
+            return Counter.builder("rhine.ratelimit.rejected")
+                    .description("Requests refused by the rate limiter")
+                    .tag("endpoint", policy.name())
+                    .tag("key", key)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.tskmgmnt.rhine.auth.config;
+
+import com.tskmgmnt.rhine.auth.dto.AuthenticatedUser;
+import com.tskmgmnt.rhine.auth.service.TokenAuthenticationService;
+import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP sessions with the JWT sent in the CONNECT frame's
+ * {@code Authorization} header and only lets members subscribe to a project's
+ * topics. Personal events are delivered through {@code /user/queue/**}, which
+ * the broker resolves to the subscriber's own sessions; the underlying
+ * {@code /queue} destinations cannot be subscribed to directly.
+ * <p>
+ * The session principal is named by the lower-cased email, matching the
+ * recipient names used with {@code convertAndSendToUser}.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    private static final Pattern PROJECT_TOPIC = Pattern.compile("^/topic/project/(\\d+)/[^/]+$");
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+
+    private final TokenAuthenticationService tokenAuthenticationService;
+    private final ProjectMemberRepository projectMemberRepository;
+
+    public StompAuthChannelInterceptor(TokenAuthenticationService tokenAuthenticationService,
+                                       ProjectMemberRepository projectMemberRepository) {
+        this.tokenAuthenticationService = tokenAuthenticationService;
+        this.projectMemberRepository = projectMemberRepository;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorizeSubscription(accessor.getUser(), accessor.getDestination());
+        }
+        return message;
+    }
+
+    private Principal authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new MessageDeliveryException("Missing bearer token");
+        }
+        String jwt = authHeader.substring(7);
+        try {
+            AuthenticatedUser user = tokenAuthenticationService.authenticate(jwt);
+            return new UsernamePasswordAuthenticationToken(
+                    user.getEmail().toLowerCase(), null, user.getAuthorities());
+        } catch (Exception e) {
+            logger.debug("Rejected STOMP CONNECT: {}", e.getMessage());
+        }
+        throw new MessageDeliveryException("Invalid token");
+    }
+
+    private void authorizeSubscription(Principal user, String destination) {
+        if (user == null || destination == null) {
+            throw new MessageDeliveryException("Not authenticated");
+        }
+
+        if (destination.startsWith(USER_QUEUE_PREFIX)) {
+            return;
+        }
+
+        Matcher project = PROJECT_TOPIC.matcher(destination);
+        if (project.matches()) {
+            Long projectId = Long.valueOf(project.group(1));
+            if (!projectMemberRepository.existsByUserEmailAndProjectId(user.getName(), projectId)) {
+                throw new MessageDeliveryException("Not a member of project " + projectId);
+            }
+            return;
+        }
+
+        throw new MessageDeliveryException("Subscription to " + destination + " is not allowed");
+    }
+}
@@ -18,11 +18,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Base64;
@@ -35,14 +31,11 @@ public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
     private final AuthService authService;
-    private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final OtpService otpService;
 
-    public AuthController(AuthService authService, AuthenticationManager authenticationManager, 
-                          JwtService jwtService, OtpService otpService) {
+    public AuthController(AuthService authService, JwtService jwtService, OtpService otpService) {
         this.authService = authService;
-        this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.otpService = otpService;
     }
@@ -53,7 +46,8 @@ public class AuthController {
             responses = {
                     @ApiResponse(responseCode = "200", description = "Login successful", 
                         content = @Content(schema = @Schema(implementation = LoginResponse.class))),
-                    @ApiResponse(responseCode = "401", description = "Invalid credentials")
+                    @ApiResponse(responseCode = "401", description = "Invalid credentials"),
+                    @ApiResponse(responseCode = "503", description = "Too many sign-ins in progress; retry shortly")
             }
     )
     @PostMapping("/login")
@@ -61,20 +55,7 @@ public class AuthController {
         String email = loginRequest.getEmail();
         String password = new String(Base64.getDecoder().decode(loginRequest.getPassword()));
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(email, password)
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
-        LoginResponse response = authService.loginUser(email, password);
-        Object principal = authentication.getPrincipal();
-        if (principal instanceof UserDetails) {
-            String jwtToken = jwtService.generateToken((UserDetails) principal);
-            response.setToken(jwtToken);
-        }
-
-        return response;
+        return authService.loginUser(email, password);
     }
 
     @Operation(
@@ -91,19 +72,8 @@ public class AuthController {
         UserRegReq decodedRequest = new UserRegReq(request.getName(), request.getEmail(), decodedPassword);
         User user = authService.registerUser(decodedRequest);
 
-        String token = null;
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(decodedRequest.getEmail(), decodedRequest.getPwd())
-            );
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            Object principal = authentication.getPrincipal();
-            if (principal instanceof UserDetails) {
-                token = jwtService.generateToken((UserDetails) principal);
-            }
-        } catch (Exception e) {
-            logger.error("Auto-authentication failed after registration for: {}", user.getEmail());
-        }
+        // The password was just hashed for this user; no need to check it again.
+        String token = jwtService.generateToken(user);
 
         return new LoginResponse("Registration successful. Please verify your email.", 
                 user.getEmail(), user.getName(), false, false, token);
@@ -133,6 +103,10 @@ public class AuthController {
     @Operation(summary = "Logout user", tags = {"Authentication"})
     @PostMapping("/logout")
     public MessageResponse logout(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            authService.logout(authHeader.substring(7));
+        }
         SecurityContextHolder.clearContext();
         return new MessageResponse("Logged out successfully");
     }
@@ -0,0 +1,52 @@
+package com.tskmgmnt.rhine.auth.dto;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The caller of an authenticated request, built from the claims of its
+ * verified JWT without loading the {@code User} entity.
+ */
+public class AuthenticatedUser implements AuthenticatedPrincipal {
+
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("USER"));
+
+    private final String email;
+    private final String name;
+    private final boolean verified;
+    private final int tokenVersion;
+
+    public AuthenticatedUser(String email, String name, boolean verified, int tokenVersion) {
+        this.email = email;
+        this.name = name;
+        this.verified = verified;
+        this.tokenVersion = tokenVersion;
+    }
+
+    /** The email, so {@code Authentication.getName()} keeps returning it. */
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public String getEmail() { return email; }
+
+    public String getDisplayName() { return name; }
+
+    public boolean isVerified() { return verified; }
+
+    public int getTokenVersion() { return tokenVersion; }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return AUTHORITIES;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
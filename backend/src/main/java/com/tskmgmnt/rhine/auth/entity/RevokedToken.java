@@ -0,0 +1,46 @@
+package com.tskmgmnt.rhine.auth.entity;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.Instant;
+
+/**
+ * A JWT that was signed out before it expired, identified by its {@code jti}.
+ * The row is only needed until {@code expiresAt}; after that the token is
+ * rejected as expired anyway.
+ */
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(generator = "tsid-generator")
+    @GenericGenerator(name = "tsid-generator", type = TsidGenerator.class)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String jti;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public RevokedToken() {}
+
+    public RevokedToken(String jti, Instant expiresAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getJti() { return jti; }
+    public void setJti(String jti) { this.jti = jti; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
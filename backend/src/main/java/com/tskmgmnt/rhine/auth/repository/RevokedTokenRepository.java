@@ -0,0 +1,21 @@
+package com.tskmgmnt.rhine.auth.repository;
+
+import com.tskmgmnt.rhine.auth.entity.RevokedToken;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    boolean existsByJti(String jti);
+
+    long countByExpiresAtAfter(Instant now);
+
+    List<RevokedToken> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    List<RevokedToken> findByExpiresAtAfterAndIdGreaterThanOrderByIdAsc(Instant now, Long after, Limit limit);
+}
@@ -0,0 +1,110 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * BCrypt encoder whose cost is chosen for the hardware it runs on.
+ * <p>
+ * {@link #calibrated} times a few hashes at startup and picks the highest cost
+ * whose hash still fits the latency target, within fixed bounds; each step of
+ * cost doubles the work. That cost is only used for new hashes. Whether a stored
+ * hash is rehashed at the user's next successful login is decided by an accepted
+ * range that comes from configuration, the same on every node: a hash whose cost
+ * falls outside it reports {@link #upgradeEncoding}. Nodes that calibrate to
+ * different costs therefore never rewrite each other's hashes back and forth.
+ */
+public class AdaptiveBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBCryptPasswordEncoder.class);
+
+    private static final int PROBE_COST = 8;
+    private static final int PROBE_ROUNDS = 3;
+
+    private final int cost;
+    private final int minAccepted;
+    private final int maxAccepted;
+
+    /** Hashes at {@code cost} and rehashes any stored hash with another cost. */
+    public AdaptiveBCryptPasswordEncoder(int cost) {
+        this(cost, cost, cost);
+    }
+
+    /**
+     * Hashes at {@code cost} and rehashes stored hashes whose cost is below
+     * {@code minAccepted} or above {@code maxAccepted}.
+     */
+    public AdaptiveBCryptPasswordEncoder(int cost, int minAccepted, int maxAccepted) {
+        super(cost);
+        this.cost = cost;
+        this.minAccepted = minAccepted;
+        this.maxAccepted = maxAccepted;
+    }
+
+    /**
+     * Measures this machine and returns an encoder whose hashes take about
+     * {@code target}, never below {@code minCost} or above {@code maxCost}.
+     * Stored hashes anywhere within the bounds are kept as they are.
+     */
+    public static AdaptiveBCryptPasswordEncoder calibrated(Duration target, int minCost, int maxCost) {
+        return new AdaptiveBCryptPasswordEncoder(suggestedCost(target, minCost, maxCost), minCost, maxCost);
+    }
+
+    /** The highest cost within the bounds whose hash fits {@code target} on this machine. */
+    private static int suggestedCost(Duration target, int minCost, int maxCost) {
+        long probeNanos = probe();
+        long targetNanos = target.toNanos();
+        int cost = minCost;
+        while (cost < maxCost && estimate(probeNanos, cost + 1) <= targetNanos) {
+            cost++;
+        }
+        logger.info("BCrypt cost {} suits this node: about {} ms per hash against a target of {} ms",
+                cost, estimate(probeNanos, cost) / 1_000_000, target.toMillis());
+        return cost;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int stored = costOf(encodedPassword);
+        return stored > 0 && (stored < minAccepted || stored > maxAccepted);
+    }
+
+    /** The cost field of a {@code $2a$10$...} hash, or {@code -1} if it is not one. */
+    static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword, 4, 6, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Fastest of a few hashes at a low cost, after warming the code up. */
+    private static long probe() {
+        String salt = BCrypt.gensalt(PROBE_COST);
+        BCrypt.hashpw("calibration", BCrypt.gensalt(4));
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return fastest;
+    }
+
+    private static long estimate(long probeNanos, int cost) {
+        int shift = cost - PROBE_COST;
+        return shift >= 0 ? probeNanos << shift : probeNanos >> -shift;
+    }
+}
@@ -5,56 +5,81 @@ import com.tskmgmnt.rhine.user.repository.UserRepository;
 import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
 import com.tskmgmnt.rhine.auth.dto.UserRegReq;
 import com.tskmgmnt.rhine.auth.dto.LoginResponse;
-import com.tskmgmnt.rhine.auth.entity.UserResetToken;
-import com.tskmgmnt.rhine.auth.repository.UserResetTokenRepository;
 import com.tskmgmnt.rhine.core.service.MailService;
+import com.tskmgmnt.rhine.core.service.ShortLivedCredentialStore;
 import com.tskmgmnt.rhine.core.exception.ResourceNotFoundException;
-import com.tskmgmnt.rhine.core.exception.BadRequestException;
 import com.tskmgmnt.rhine.core.exception.ConflictException;
 
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.UUID;
 
+import io.jsonwebtoken.Claims;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AuthService {
 
+    private static final String RESET_TOKEN = "reset-token";
+    private static final String RESET_TOKEN_BY_USER = "reset-token-user";
+    private static final Duration RESET_TOKEN_TTL = Duration.ofHours(1);
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final JwtService jwtService;
     private final OtpService otpService;
     private final ProjectMemberRepository projectMemberRepository;
-    private final UserResetTokenRepository userResetTokenRepository;
+    private final ShortLivedCredentialStore credentialStore;
     private final MailService mailService;
+    private final TokenVersionCache tokenVersionCache;
+    private final TokenRevocationService tokenRevocationService;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, 
-                       OtpService otpService, ProjectMemberRepository projectMemberRepository,
-                       UserResetTokenRepository userResetTokenRepository, MailService mailService) {
+    public AuthService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                       JwtService jwtService, OtpService otpService, ProjectMemberRepository projectMemberRepository,
+                       ShortLivedCredentialStore credentialStore, MailService mailService,
+                       TokenVersionCache tokenVersionCache, TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.jwtService = jwtService;
         this.otpService = otpService;
         this.projectMemberRepository = projectMemberRepository;
-        this.userResetTokenRepository = userResetTokenRepository;
+        this.credentialStore = credentialStore;
         this.mailService = mailService;
+        this.tokenVersionCache = tokenVersionCache;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     public LoginResponse loginUser(String email, String rawPassword) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("Invalid email or password"));
-        
-        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+        User user = userRepository.findByEmail(email).orElse(null);
+
+        // The only password check of a login; unknown emails take as long as wrong passwords.
+        if (!passwordHashingService.matches(rawPassword, user != null ? user.getPassword() : null)) {
             throw new ResourceNotFoundException("Invalid email or password");
         }
-        
+
+        String rehashed = passwordHashingService.rehashIfNeeded(rawPassword, user.getPassword());
+        if (rehashed != null) {
+            userRepository.replacePasswordHash(user.getEmail(), user.getPassword(), rehashed);
+        }
+
         if (!user.isVerified()) {
             otpService.generateOtp(user.getEmail());
         }
 
         boolean hasProjects = !projectMemberRepository.findByUserEmail(email).isEmpty();
-        return new LoginResponse("Login successful", user.getEmail(), user.getName(), hasProjects, user.getLastProjectId(), user.isVerified(), null);
+        return new LoginResponse("Login successful", user.getEmail(), user.getName(), hasProjects, user.getLastProjectId(), user.isVerified(),
+                jwtService.generateToken(user));
+    }
+
+    /** Revokes the token so it is refused from now on, rather than only at its expiry. */
+    public void logout(String token) {
+        Claims claims = jwtService.verify(token);
+        tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
     }
 
     public User registerUser(UserRegReq userRegReq) {
@@ -65,7 +90,7 @@ public class AuthService {
         User user = new User();
         user.setName(userRegReq.getName());
         user.setEmail(userRegReq.getEmail());
-        user.setPwd(passwordEncoder.encode(userRegReq.getPwd()));
+        user.setPwd(passwordHashingService.encode(userRegReq.getPwd()));
 
         User savedUser = userRepository.save(user);
         otpService.generateOtp(savedUser.getEmail());
@@ -83,47 +108,56 @@ public class AuthService {
         return userRepository.findByEmail(email).orElse(null);
     }
 
-    @Transactional
     public void forgotPassword(String email) {
         User user = userRepository.findByEmail(email).orElse(null);
         if (user == null) {
             return;
         }
 
-        userResetTokenRepository.findByUser(user).ifPresent(userResetTokenRepository::delete);
-
+        // A new link replaces the previous one: the user's entry only ever holds the
+        // hash of the latest token, and a link is honoured only while it matches.
+        // The raw token is never stored as a value, so it cannot be read back.
         String token = UUID.randomUUID().toString();
-        
-        UserResetToken resetToken = new UserResetToken(token, user, LocalDateTime.now().plusHours(1));
-        userResetTokenRepository.save(resetToken);
+        credentialStore.put(RESET_TOKEN, token, user.getEmail(), RESET_TOKEN_TTL);
+        credentialStore.put(RESET_TOKEN_BY_USER, user.getEmail(), hashToken(token), RESET_TOKEN_TTL);
 
         mailService.sendPasswordResetEmail(user.getEmail(), token);
     }
 
     public void validateResetToken(String token) {
-        UserResetToken resetToken = userResetTokenRepository.findByToken(token)
-                .orElseThrow(() -> new ResourceNotFoundException("Invalid or non-existent token"));
-
-        if (resetToken.getExpiryDate().isBefore(LocalDateTime.now())) {
-            userResetTokenRepository.delete(resetToken);
-            throw new BadRequestException("Token has expired");
+        boolean latest = credentialStore.peek(RESET_TOKEN, token)
+                .flatMap(email -> credentialStore.peek(RESET_TOKEN_BY_USER, email))
+                .map(hashToken(token)::equals)
+                .orElse(false);
+        if (!latest) {
+            throw new ResourceNotFoundException("Invalid or expired token");
         }
     }
 
     @Transactional
     public void resetPassword(String token, String newRawPassword) {
-        UserResetToken resetToken = userResetTokenRepository.findByToken(token)
-                .orElseThrow(() -> new ResourceNotFoundException("Invalid token"));
-
-        if (resetToken.getExpiryDate().isBefore(LocalDateTime.now())) {
-            userResetTokenRepository.delete(resetToken);
-            throw new BadRequestException("Token has expired");
+        String email = credentialStore.take(RESET_TOKEN, token)
+                .orElseThrow(() -> new ResourceNotFoundException("Invalid or expired token"));
+        if (!credentialStore.consumeIfMatches(RESET_TOKEN_BY_USER, email, hashToken(token))) {
+            // Superseded by a newer link.
+            throw new ResourceNotFoundException("Invalid or expired token");
         }
 
-        User user = resetToken.getUser();
-        user.setPwd(passwordEncoder.encode(newRawPassword));
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("Invalid or expired token"));
+        user.setPwd(passwordHashingService.encode(newRawPassword));
+        // Signs out every session that still holds a token issued with the old password.
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        tokenVersionCache.invalidate(user.getEmail());
+    }
 
-        userResetTokenRepository.delete(resetToken);
+    private static String hashToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
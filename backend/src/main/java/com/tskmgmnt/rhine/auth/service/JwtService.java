@@ -1,10 +1,20 @@
 package com.tskmgmnt.rhine.auth.service;
 
+import com.github.f4b6a3.tsid.TsidCreator;
+import com.tskmgmnt.rhine.auth.dto.AuthenticatedUser;
+import com.tskmgmnt.rhine.user.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.DecodingException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -15,76 +25,143 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.function.LongSupplier;
 
+/**
+ * Issues and verifies the application's JWTs. The signing key and parser are
+ * built once; a token is verified at most once per request, and repeat
+ * requests with the same token are answered from {@link VerifiedTokenCache}.
+ */
 @Service
 public class JwtService {
 
-    @Value("${application.security.jwt.secret-key}")
-    private String secretKey;
-
-    @Value("${application.security.jwt.expiration}")
-    private long jwtExpiration;
+    public static final String NAME_CLAIM = "name";
+    public static final String VERIFIED_CLAIM = "verified";
+    /** The user's token version when the token was issued; see {@link TokenVersionCache}. */
+    public static final String TOKEN_VERSION_CLAIM = "tv";
+    /** The project whose event stream a stream token opens; see {@link #generateStreamToken}. */
+    public static final String STREAM_CLAIM = "stream";
+
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+    private final long streamExpiration;
+    private final VerifiedTokenCache verifiedTokens;
+    private final LongSupplier clock;
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    @Autowired
+    public JwtService(@Value("${application.security.jwt.secret-key}") String secretKey,
+                      @Value("${application.security.jwt.expiration}") long jwtExpiration,
+                      @Value("${application.security.jwt.stream-expiration:60000}") long streamExpiration,
+                      @Value("${application.security.jwt.cache-max-entries:10000}") int cacheMaxEntries,
+                      MeterRegistry meterRegistry) {
+        this(secretKey, jwtExpiration, streamExpiration, cacheMaxEntries, meterRegistry, System::currentTimeMillis);
+    }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    JwtService(String secretKey, long jwtExpiration, long streamExpiration, int cacheMaxEntries,
+               MeterRegistry meterRegistry, LongSupplier clock) {
+        this.signingKey = signingKeyOf(secretKey);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .setClock(() -> new Date(clock.getAsLong()))
+                .build();
+        this.jwtExpiration = jwtExpiration;
+        this.streamExpiration = streamExpiration;
+        this.verifiedTokens = new VerifiedTokenCache(cacheMaxEntries, clock);
+        this.clock = clock;
+
+        Gauge.builder("rhine.auth.jwt.cache.size", verifiedTokens, VerifiedTokenCache::size)
+                .description("Verified tokens held in memory")
+                .register(meterRegistry);
+        this.cacheHits = Counter.builder("rhine.auth.jwt.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("rhine.auth.jwt.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    /**
+     * Checks the token's signature and expiry and returns its claims.
+     *
+     * @throws JwtException if the token is malformed, forged or expired
+     */
+    public Claims verify(String token) {
+        Claims claims = verifiedTokens.get(token);
+        if (claims != null) {
+            cacheHits.increment();
+            return claims;
+        }
+        cacheMisses.increment();
+        claims = parser.parseClaimsJws(token).getBody();
+        verifiedTokens.put(token, claims);
+        return claims;
     }
 
+    /**
+     * Issues a token for the user. For an application {@link User} the token also
+     * carries the claims {@link TokenAuthenticationService} builds the principal from.
+     */
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(NAME_CLAIM, user.getName());
+            claims.put(VERIFIED_CLAIM, user.isVerified());
+            claims.put(TOKEN_VERSION_CLAIM, user.getTokenVersion());
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        return buildToken(extraClaims, userDetails.getUsername(), jwtExpiration);
+    }
+
+    /**
+     * Issues a short-lived token that only opens the project's event stream. A
+     * browser {@code EventSource} cannot send an {@code Authorization} header, so
+     * the token travels in the URL instead; {@link TokenAuthenticationService}
+     * refuses it anywhere else.
+     */
+    public String generateStreamToken(AuthenticatedUser user, Long projectId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(NAME_CLAIM, user.getDisplayName());
+        claims.put(VERIFIED_CLAIM, user.isVerified());
+        claims.put(TOKEN_VERSION_CLAIM, user.getTokenVersion());
+        claims.put(STREAM_CLAIM, projectId);
+        return buildToken(claims, user.getEmail(), streamExpiration);
+    }
+
+    public long getStreamExpiration() {
+        return streamExpiration;
     }
 
     private String buildToken(
             Map<String, Object> extraClaims,
-            UserDetails userDetails,
+            String subject,
             long expiration
     ) {
+        long now = clock.getAsLong();
         return Jwts
                 .builder()
                 .setClaims(extraClaims)
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setSubject(subject)
+                // Names this token for TokenRevocationService.
+                .setId(TsidCreator.getTsid().toString())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
+    private static Key signingKeyOf(String secretKey) {
         byte[] keyBytes;
         try {
             keyBytes = Decoders.BASE64.decode(secretKey);
-        } catch (IllegalArgumentException e) {
+        } catch (DecodingException | IllegalArgumentException e) {
+            // Not base64; use the secret's raw bytes.
             keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
         }
         return Keys.hmacShaKeyFor(keyBytes);
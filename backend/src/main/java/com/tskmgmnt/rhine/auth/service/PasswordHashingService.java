@@ -0,0 +1,180 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import com.tskmgmnt.rhine.core.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs password hashing and verification on a small dedicated pool, so a burst
+ * of logins can use at most {@code threads} cores and request threads stay
+ * free for everything else.
+ * <p>
+ * Callers still wait for their own result, but only {@code queue-capacity}
+ * of them can be waiting at once; beyond that the request fails straight
+ * away with 503 rather than piling up behind work that is already late.
+ */
+@Service
+public class PasswordHashingService implements SmartLifecycle {
+
+    private final PasswordEncoder passwordEncoder;
+    private final int threads;
+    private final int queueCapacity;
+
+    private final Timer queueTimer;
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+    private final Counter rehashedCounter;
+
+    private volatile boolean running;
+    private volatile String dummyHash;
+    private ThreadPoolExecutor executor;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.security.hashing.threads:0}") int threads,
+                                  @Value("${application.security.hashing.queue-capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        // By default half the cores, leaving the rest for request handling.
+        this.threads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.queueCapacity = queueCapacity;
+
+        Gauge.builder("rhine.auth.hashing.queued", this, service -> service.queued())
+                .description("Password hashing requests waiting for a thread")
+                .register(meterRegistry);
+        this.queueTimer = Timer.builder("rhine.auth.hashing.queue")
+                .description("Time a hashing request waited for a thread")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("rhine.auth.hashing.duration")
+                .description("Time spent hashing or verifying one password")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("rhine.auth.hashing.rejected")
+                .description("Requests turned away because the hashing pool was saturated")
+                .register(meterRegistry);
+        this.rehashedCounter = Counter.builder("rhine.auth.hashing.rehashed")
+                .description("Stored hashes rewritten at login with the current encoding and cost")
+                .register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks a password against a stored hash. A {@code null} hash (no such user)
+     * is compared against a dummy one, so the answer takes as long either way.
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            String dummy = dummyHash();
+            run(() -> passwordEncoder.matches(rawPassword, dummy));
+            return false;
+        }
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Rehashes a password that just matched {@code encodedPassword} if that hash
+     * uses another encoding or cost than new ones would. Upgrading is best effort:
+     * when the pool is saturated it is skipped and left for the next login.
+     *
+     * @return the new hash, or {@code null} if none is needed or it was skipped
+     */
+    public String rehashIfNeeded(CharSequence rawPassword, String encodedPassword) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword)) {
+            return null;
+        }
+        try {
+            String rehashed = encode(rawPassword);
+            rehashedCounter.increment();
+            return rehashed;
+        } catch (ServiceUnavailableException e) {
+            return null;
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        if (!running) {
+            throw new ServiceUnavailableException("Sign-in is temporarily unavailable, please try again shortly");
+        }
+        long submittedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                queueTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Too many sign-in requests, please try again shortly");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Password check was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private String dummyHash() {
+        String dummy = dummyHash;
+        if (dummy == null) {
+            dummy = run(() -> passwordEncoder.encode("not-a-real-password"));
+            dummyHash = dummy;
+        }
+        return dummy;
+    }
+
+    private int queued() {
+        ThreadPoolExecutor current = executor;
+        return current == null ? 0 : current.getQueue().size();
+    }
+
+    @Override
+    public void start() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "PasswordHashing");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
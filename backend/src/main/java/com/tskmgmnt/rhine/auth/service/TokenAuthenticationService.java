@@ -0,0 +1,80 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import com.tskmgmnt.rhine.auth.dto.AuthenticatedUser;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Turns a bearer token into the request's principal using only the token's
+ * claims, {@link TokenVersionCache} and {@link TokenRevocationService}; no user
+ * row is loaded.
+ */
+@Service
+public class TokenAuthenticationService {
+
+    private final JwtService jwtService;
+    private final TokenVersionCache tokenVersionCache;
+    private final TokenRevocationService tokenRevocationService;
+
+    public TokenAuthenticationService(JwtService jwtService,
+                                      TokenVersionCache tokenVersionCache,
+                                      TokenRevocationService tokenRevocationService) {
+        this.jwtService = jwtService;
+        this.tokenVersionCache = tokenVersionCache;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    /**
+     * @throws JwtException            if the token is malformed, forged or expired
+     * @throws BadCredentialsException if the token was signed out, was issued before
+     *                                 the user's last password change, the user is gone,
+     *                                 or it is a stream token
+     */
+    public AuthenticatedUser authenticate(String token) {
+        Claims claims = jwtService.verify(token);
+        if (claims.containsKey(JwtService.STREAM_CLAIM)) {
+            throw new BadCredentialsException("Token only opens an event stream");
+        }
+        return principalOf(claims);
+    }
+
+    /**
+     * Authenticates a token from {@link JwtService#generateStreamToken} for the
+     * event stream of the given project.
+     *
+     * @throws JwtException            if the token is malformed, forged or expired
+     * @throws BadCredentialsException if the token was issued for another project,
+     *                                 is not a stream token, or was revoked
+     */
+    public AuthenticatedUser authenticateStream(String token, Long projectId) {
+        Claims claims = jwtService.verify(token);
+        Long streamProjectId = claims.get(JwtService.STREAM_CLAIM, Long.class);
+        if (streamProjectId == null || !streamProjectId.equals(projectId)) {
+            throw new BadCredentialsException("Token does not open this event stream");
+        }
+        return principalOf(claims);
+    }
+
+    private AuthenticatedUser principalOf(Claims claims) {
+        String email = claims.getSubject();
+        if (email == null) {
+            throw new BadCredentialsException("Token has no subject");
+        }
+        // Tokens issued before versions were introduced carry none and count as version 0.
+        Integer version = claims.get(JwtService.TOKEN_VERSION_CLAIM, Integer.class);
+        int tokenVersion = version != null ? version : 0;
+        if (tokenVersion != tokenVersionCache.current(email)) {
+            throw new BadCredentialsException("Token has been revoked");
+        }
+        if (tokenRevocationService.isRevoked(claims.getId())) {
+            throw new BadCredentialsException("Token has been revoked");
+        }
+        return new AuthenticatedUser(
+                email,
+                claims.get(JwtService.NAME_CLAIM, String.class),
+                Boolean.TRUE.equals(claims.get(JwtService.VERIFIED_CLAIM, Boolean.class)),
+                tokenVersion);
+    }
+}
@@ -0,0 +1,196 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import com.tskmgmnt.rhine.auth.entity.RevokedToken;
+import com.tskmgmnt.rhine.auth.repository.RevokedTokenRepository;
+import com.tskmgmnt.rhine.core.cache.BloomFilter;
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Signed-out tokens, checked on every request without touching the database
+ * in the common case.
+ * <p>
+ * Revoked {@code jti}s are stored in {@link RevokedToken} rows and mirrored into
+ * a {@link BloomFilter}. A token whose {@code jti} the filter has never seen is
+ * accepted straight away; only a possible match is confirmed with a lookup.
+ * <p>
+ * Revocations on this node go into the filter immediately. Those made on other
+ * replicas are picked up every {@code refresh-interval-ms}, re-reading from
+ * {@code safety-lag-ms} ago like {@code OutboxRelay} does, since ids are assigned
+ * before commit. Every {@code rebuild-interval-ms}, or sooner once the filter
+ * holds more entries than it was sized for, it is rebuilt from the rows that
+ * have not expired yet, which is how expired entries leave it.
+ */
+@Service
+public class TokenRevocationService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int minExpectedEntries;
+    private final double falsePositiveRate;
+    private final long safetyLagMillis;
+
+    private final Counter passedCounter;
+    private final Counter falsePositiveCounter;
+    private final Counter revokedCounter;
+
+    private volatile BloomFilter filter;
+    private volatile boolean running;
+    // False until the first rebuild; until then the filter cannot rule anything out.
+    private volatile boolean loaded;
+    private long highWater;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.security.jwt.revocation.expected-entries:10000}") int minExpectedEntries,
+                                  @Value("${application.security.jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                  @Value("${application.security.jwt.revocation.safety-lag-ms:2000}") long safetyLagMillis) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.minExpectedEntries = minExpectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.safetyLagMillis = safetyLagMillis;
+        this.filter = new BloomFilter(minExpectedEntries, falsePositiveRate);
+
+        Gauge.builder("rhine.auth.revocation.entries", this, service -> service.filter.entries())
+                .description("Revoked tokens held in the in-memory filter")
+                .register(meterRegistry);
+        this.passedCounter = Counter.builder("rhine.auth.revocation.check")
+                .tag("result", "pass")
+                .register(meterRegistry);
+        this.falsePositiveCounter = Counter.builder("rhine.auth.revocation.check")
+                .tag("result", "false-positive")
+                .register(meterRegistry);
+        this.revokedCounter = Counter.builder("rhine.auth.revocation.check")
+                .tag("result", "revoked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the token with this id was signed out. Tokens issued before ids
+     * were added carry none and cannot be revoked individually. Until the filter
+     * has been loaded every id is checked against the database.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || (loaded && !filter.mightContain(jti))) {
+            passedCounter.increment();
+            return false;
+        }
+        if (revokedTokenRepository.existsByJti(jti)) {
+            revokedCounter.increment();
+            return true;
+        }
+        falsePositiveCounter.increment();
+        return false;
+    }
+
+    /**
+     * Signs the token out. Revoking an id that is already revoked, including by a
+     * concurrent logout with the same token, is a no-op.
+     */
+    public void revoke(String jti, Instant expiresAt) {
+        if (jti == null || revokedTokenRepository.existsByJti(jti)) {
+            return;
+        }
+        // Added before commit: if the insert fails, the entry is only a false positive.
+        filter.add(jti);
+        try {
+            // Committed on its own, so a losing insert surfaces here rather than at the caller's commit.
+            revokedTokenRepository.saveAndFlush(new RevokedToken(jti, expiresAt));
+        } catch (DataIntegrityViolationException e) {
+            // The unique jti was inserted between the check and ours: already revoked.
+            logger.debug("Token {} was revoked concurrently", jti);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.jwt.revocation.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (!running) {
+            return;
+        }
+        if (filter.isSaturated()) {
+            rebuild();
+            return;
+        }
+        catchUp(filter);
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.jwt.revocation.rebuild-interval-ms:3600000}",
+            initialDelayString = "${application.security.jwt.revocation.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        Instant now = Instant.now();
+        long startedFloor = TsidGenerator.floorOf(now.toEpochMilli() - safetyLagMillis);
+        int live = (int) Math.min(Integer.MAX_VALUE / 2, revokedTokenRepository.countByExpiresAtAfter(now));
+        // Room to grow between rebuilds before the false-positive rate starts to climb.
+        BloomFilter next = new BloomFilter(Math.max(minExpectedEntries, live * 2), falsePositiveRate);
+
+        long after = Long.MIN_VALUE;
+        List<RevokedToken> batch;
+        do {
+            batch = revokedTokenRepository.findByExpiresAtAfterAndIdGreaterThanOrderByIdAsc(now, after, Limit.of(BATCH_SIZE));
+            for (RevokedToken token : batch) {
+                next.add(token.getJti());
+                after = token.getId();
+            }
+        } while (batch.size() == BATCH_SIZE);
+
+        filter = next;
+        // Anything committed while the rows were being read is picked up again here.
+        highWater = startedFloor;
+        catchUp(next);
+        loaded = true;
+        logger.debug("Rebuilt token revocation filter with {} entries", next.entries());
+    }
+
+    private void catchUp(BloomFilter target) {
+        long from = Math.min(highWater, TsidGenerator.floorOf(System.currentTimeMillis() - safetyLagMillis));
+        List<RevokedToken> batch;
+        do {
+            batch = revokedTokenRepository.findByIdGreaterThanOrderByIdAsc(from, Limit.of(BATCH_SIZE));
+            for (RevokedToken token : batch) {
+                target.add(token.getJti());
+                from = token.getId();
+            }
+        } while (batch.size() == BATCH_SIZE);
+        if (from > highWater) {
+            highWater = from;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        rebuild();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Loaded before the web server starts taking requests. */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
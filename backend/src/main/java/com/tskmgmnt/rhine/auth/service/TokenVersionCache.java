@@ -0,0 +1,97 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import com.tskmgmnt.rhine.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current token version per user, so requests can reject tokens issued before
+ * a password change without loading the user. A token is only accepted while
+ * its {@code tv} claim matches.
+ * <p>
+ * Versions are read with a single-column query and kept for {@code ttl-ms}.
+ * A bump on this node takes effect immediately; other replicas see it once
+ * their entry expires.
+ */
+@Component
+public class TokenVersionCache {
+
+    /** Returned for users that no longer exist; never matches a token. */
+    public static final int UNKNOWN_USER = -1;
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> versions = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public TokenVersionCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${application.security.jwt.version-cache.ttl-ms:60000}") long ttlMillis,
+                             @Value("${application.security.jwt.version-cache.max-entries:50000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+
+        this.hits = Counter.builder("rhine.auth.token-version.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("rhine.auth.token-version.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public int current(String email) {
+        long now = System.currentTimeMillis();
+        Entry entry = versions.get(email);
+        if (entry != null && entry.loadedAt + ttlMillis > now) {
+            hits.increment();
+            return entry.version;
+        }
+        misses.increment();
+        int version = userRepository.findTokenVersionByEmail(email).orElse(UNKNOWN_USER);
+        if (versions.size() >= maxEntries) {
+            makeRoom(now);
+        }
+        versions.put(email, new Entry(version, now));
+        return version;
+    }
+
+    /**
+     * Forgets the user's version now and again once the current transaction
+     * commits, so a read racing the commit cannot keep the old one cached.
+     */
+    public void invalidate(String email) {
+        versions.remove(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.remove(email);
+                }
+            });
+        }
+    }
+
+    private void makeRoom(long now) {
+        versions.values().removeIf(entry -> entry.loadedAt + ttlMillis <= now);
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<String> keys = versions.keySet().iterator();
+        while (versions.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private record Entry(int version, long loadedAt) {}
+}
@@ -0,0 +1,89 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the claims of tokens whose signature has already been checked, so
+ * repeat requests with the same token skip the HMAC and JSON parsing.
+ * <p>
+ * Entries are keyed by the SHA-256 of the token rather than the token itself,
+ * which keeps bearer credentials out of the heap, and are only returned until
+ * the token's own expiry. The cache holds at most {@code maxEntries}; when it
+ * is full, expired entries are dropped first and then arbitrary ones until a
+ * tenth of the room is free again.
+ */
+class VerifiedTokenCache {
+
+    private static final Base64.Encoder KEY_ENCODER = Base64.getEncoder().withoutPadding();
+
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    VerifiedTokenCache(int maxEntries, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /** The token's claims if it was verified before and has not expired since, else {@code null}. */
+    Claims get(String token) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        String key = keyOf(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < clock.getAsLong()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.claims;
+    }
+
+    void put(String token, Claims claims) {
+        if (maxEntries <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        entries.put(keyOf(token), new Entry(claims, claims.getExpiration().getTime()));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void makeRoom() {
+        long now = clock.getAsLong();
+        entries.values().removeIf(entry -> entry.expiresAt < now);
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String keyOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return KEY_ENCODER.encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(Claims claims, long expiresAt) {}
+}
@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -31,4 +33,14 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     long countByTaskIdAndRecipientEmailAndIsReadByRecipientFalse(
             @Param("taskId") Long taskId,
             @Param("recipientEmail") String recipientEmail);
+
+    /**
+     * Unread comments for these recipients created in {@code [from, to)}, newest
+     * first per recipient, as {@code [recipientEmail, projectId, taskTitle, authorName, content]}.
+     */
+    @Query("SELECT c.recipient.email, c.task.project.id, c.task.title, c.author.name, c.content FROM Comment c " +
+            "WHERE c.recipient.email IN :emails AND c.isReadByRecipient = false " +
+            "AND c.createdAt >= :from AND c.createdAt < :to ORDER BY c.recipient.email, c.createdAt DESC")
+    List<Object[]> findUnreadForDigest(@Param("emails") Collection<String> emails,
+                                       @Param("from") Instant from, @Param("to") Instant to);
 }
@@ -1,6 +1,7 @@
 package com.tskmgmnt.rhine.comment.service;
 
 import com.tskmgmnt.rhine.notification.dto.NotificationDto;
+import com.tskmgmnt.rhine.notification.service.EventOutbox;
 import com.tskmgmnt.rhine.user.entity.User;
 import com.tskmgmnt.rhine.user.repository.UserRepository;
 import com.tskmgmnt.rhine.comment.dto.CommentUpdateDto;
@@ -12,7 +13,6 @@ import com.tskmgmnt.rhine.task.entity.Task;
 import com.tskmgmnt.rhine.task.repository.TaskRepository;
 
 import com.tskmgmnt.rhine.core.exception.ResourceNotFoundException;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,18 +23,18 @@ import java.util.stream.Collectors;
 @Transactional
 public class CommentService {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final EventOutbox eventOutbox;
     private final CommentRepository commentRepository;
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
     private final ProjectMemberRepository projectMemberRepository;
 
-    public CommentService(SimpMessagingTemplate messagingTemplate, 
+    public CommentService(EventOutbox eventOutbox,
                           CommentRepository commentRepository, 
                           TaskRepository taskRepository, 
                           UserRepository userRepository,
                           ProjectMemberRepository projectMemberRepository) {
-        this.messagingTemplate = messagingTemplate;
+        this.eventOutbox = eventOutbox;
         this.commentRepository = commentRepository;
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
@@ -100,7 +100,7 @@ public class CommentService {
 
         CommentDto commentDto = mapToDto(savedComment);
 
-        messagingTemplate.convertAndSend("/topic/comments", commentDto);
+        sendToProject(task, "comments", commentDto.getId(), commentDto);
 
         Set<String> notifyEmails = new HashSet<>();
         if (recipient != null) {
@@ -110,10 +110,7 @@ public class CommentService {
 
         for (String email : notifyEmails) {
             long count = countUnreadCommentsByRecipient(email, taskId);
-            messagingTemplate.convertAndSend(
-                    "/topic/unread-updates",
-                    Map.of("taskId", taskId, "count", count, "recipientEmail", email)
-            );
+            sendUnreadCount(email, taskId, count);
         }
 
         return savedComment;
@@ -127,7 +124,7 @@ public class CommentService {
                     comment.getRecipient().getEmail().equals(userEmail)) {
                 comment.setReadByRecipient(true);
                 commentRepository.save(comment);
-                messagingTemplate.convertAndSend("/topic/comments-read",
+                sendToProject(comment.getTask(), "comments-read", comment.getId(),
                         new NotificationDto<>("COMMENTS_READ", mapToDto(comment)));
             }
         }
@@ -138,7 +135,7 @@ public class CommentService {
         recipientComments.forEach(comment -> {
             comment.setReadByRecipient(true);
             commentRepository.save(comment);
-            messagingTemplate.convertAndSend("/topic/comments-read-by-recipient",
+            sendToProject(comment.getTask(), "comments-read-by-recipient", comment.getId(),
                     new NotificationDto<>("COMMENTS_READ_BY_RECIPIENTS", mapToDto(comment)));
         });
     }
@@ -157,7 +154,7 @@ public class CommentService {
         existingComment.setContent(commentUpdateDto.getContent());
         Comment updatedComment = commentRepository.save(existingComment);
 
-        messagingTemplate.convertAndSend("/topic/comment-update", mapToDto(updatedComment));
+        sendToProject(updatedComment.getTask(), "comment-update", updatedComment.getId(), mapToDto(updatedComment));
         return commentRepository.save(existingComment);
     }
 
@@ -169,23 +166,31 @@ public class CommentService {
             throw new ResourceNotFoundException("Not authorized to delete this comment");
         }
         
-        Long taskId = commentToDelete.getTask().getId();
+        Task task = commentToDelete.getTask();
+        Long taskId = task.getId();
         String recipientEmail = commentToDelete.getRecipient() != null ? 
                 commentToDelete.getRecipient().getEmail() : null;
 
         commentRepository.delete(commentToDelete);
 
-        messagingTemplate.convertAndSend("/topic/comment-deletion",
+        sendToProject(task, "comment-deletion", id,
                 Map.of("commentId", id, "taskId", taskId));
 
         if (recipientEmail != null) {
             long newCount = countUnreadCommentsByRecipient(recipientEmail, taskId);
-            messagingTemplate.convertAndSend(
-                    "/topic/unread-updates",
-                    Map.of("taskId", taskId, "count", newCount, "recipientEmail", recipientEmail)
-            );
+            sendUnreadCount(recipientEmail, taskId, newCount);
         }
 
         return commentToDelete;
     }
+
+    private void sendUnreadCount(String recipientEmail, Long taskId, long count) {
+        eventOutbox.toUser(recipientEmail, null, "unread-updates", Map.of("taskId", taskId, "count", count));
+    }
+
+    private void sendToProject(Task task, String event, Long commentId, Object payload) {
+        if (task.getProject() != null) {
+            eventOutbox.toProject(task.getProject().getId(), event, commentId, payload);
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings that can be read and added to from any
+ * thread without locking: bits live in an {@link AtomicLongArray} and are only
+ * ever set, never cleared. To drop entries, build a new filter and swap it in.
+ * <p>
+ * Sized for {@code expectedEntries} at {@code falsePositiveRate}; adding more
+ * raises the rate, which {@link #isSaturated()} reports so the owner can rebuild
+ * with a larger size. Bit positions come from two 64-bit hashes of the value
+ * combined as {@code h1 + i * h2}.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final int expectedEntries;
+    private final AtomicInteger entries = new AtomicInteger();
+
+    public BloomFilter(int expectedEntries, double falsePositiveRate) {
+        if (expectedEntries < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter configuration");
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * ln2));
+        this.expectedEntries = expectedEntries;
+    }
+
+    /**
+     * @return {@code true} if the value was definitely not present before
+     */
+    public boolean add(CharSequence value) {
+        long hash = Hash64.hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0
+                    && (words.getAndAccumulate(word, mask, (current, m) -> current | m) & mask) == 0) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            entries.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /** {@code false} means definitely absent; {@code true} means possibly present. */
+    public boolean mightContain(CharSequence value) {
+        long hash = Hash64.hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Number of values added; repeats are not counted, nor are values colliding with earlier ones. */
+    public int entries() {
+        return entries.get();
+    }
+
+    public boolean isSaturated() {
+        return entries.get() > expectedEntries;
+    }
+
+    /** Finalizer from MurmurHash3; spreads FNV's weak low bits over the whole word. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,261 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded set of 64-bit keys that forget themselves after a fixed window.
+ * <p>
+ * Keys are stored in a ring of fixed-size time buckets (for example 30 one-second
+ * buckets). When the ring wraps round to a slot whose bucket belongs to an older
+ * epoch, that bucket is cleared wholesale, so expiry never sweeps individual
+ * entries. Lookups probe at most one primitive hash set per bucket, and the total
+ * number of stored keys is capped: when full, the oldest buckets are dropped first.
+ */
+public class ExpiringKeySet {
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    private final long[] bucketEpochs;
+    private final LongHashSet[] buckets;
+
+    private int size;
+    private long hits;
+    private long evictedEntries;
+    private long rejected;
+
+    public ExpiringKeySet(Duration window, int bucketCount, int maxEntries) {
+        this(window, bucketCount, maxEntries, System::currentTimeMillis);
+    }
+
+    ExpiringKeySet(Duration window, int bucketCount, int maxEntries, LongSupplier clock) {
+        if (bucketCount < 1 || maxEntries < 1 || window.toMillis() < bucketCount) {
+            throw new IllegalArgumentException("Invalid expiring set configuration");
+        }
+        this.bucketMillis = window.toMillis() / bucketCount;
+        this.bucketCount = bucketCount;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.bucketEpochs = new long[bucketCount];
+        this.buckets = new LongHashSet[bucketCount];
+        Arrays.fill(bucketEpochs, Long.MIN_VALUE);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new LongHashSet();
+        }
+    }
+
+    /**
+     * Records the key unless it was already seen within the window.
+     *
+     * @return {@code true} if the key is new, {@code false} if it is a repeat
+     */
+    public synchronized boolean add(long key) {
+        long epoch = clock.getAsLong() / bucketMillis;
+        if (containsLive(key, epoch)) {
+            hits++;
+            return false;
+        }
+
+        int slot = slotOf(epoch);
+        rotate(slot, epoch);
+        evictUntilBelowCap(slot);
+        if (size >= maxEntries) {
+            // Only the current bucket is left and it is full: report the key as new
+            // without remembering it rather than growing past the cap.
+            rejected++;
+            return true;
+        }
+        if (buckets[slot].add(key)) {
+            size++;
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(long key) {
+        return containsLive(key, clock.getAsLong() / bucketMillis);
+    }
+
+    public synchronized void remove(long key) {
+        for (LongHashSet bucket : buckets) {
+            if (bucket.remove(key)) {
+                size--;
+                return;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return maxEntries;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long evictedEntries() {
+        return evictedEntries;
+    }
+
+    public synchronized long rejected() {
+        return rejected;
+    }
+
+    private boolean containsLive(long key, long epoch) {
+        long oldestLive = epoch - bucketCount + 1;
+        for (int i = 0; i < bucketCount; i++) {
+            if (bucketEpochs[i] >= oldestLive && bucketEpochs[i] <= epoch && buckets[i].contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rotate(int slot, long epoch) {
+        if (bucketEpochs[slot] != epoch) {
+            size -= buckets[slot].size();
+            buckets[slot].clear();
+            bucketEpochs[slot] = epoch;
+        }
+    }
+
+    private void evictUntilBelowCap(int currentSlot) {
+        while (size >= maxEntries) {
+            int oldest = -1;
+            for (int i = 0; i < bucketCount; i++) {
+                if (i != currentSlot && buckets[i].size() > 0
+                        && (oldest < 0 || bucketEpochs[i] < bucketEpochs[oldest])) {
+                    oldest = i;
+                }
+            }
+            if (oldest < 0) {
+                return;
+            }
+            evictedEntries += buckets[oldest].size();
+            size -= buckets[oldest].size();
+            buckets[oldest].clear();
+        }
+    }
+
+    private int slotOf(long epoch) {
+        return (int) Math.floorMod(epoch, (long) bucketCount);
+    }
+
+    /**
+     * Open-addressing set of primitive longs (linear probing, backward-shift
+     * deletion). Clearing keeps the table so steady-state traffic allocates nothing.
+     */
+    static final class LongHashSet {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] table = new long[INITIAL_CAPACITY];
+        private boolean[] used = new boolean[INITIAL_CAPACITY];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(long key) {
+            int mask = table.length - 1;
+            for (int i = index(key, mask); used[i]; i = (i + 1) & mask) {
+                if (table[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean add(long key) {
+            if ((size + 1) * 4 > table.length * 3) {
+                resize(table.length * 2);
+            }
+            int mask = table.length - 1;
+            int i = index(key, mask);
+            while (used[i]) {
+                if (table[i] == key) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            used[i] = true;
+            size++;
+            return true;
+        }
+
+        boolean remove(long key) {
+            int mask = table.length - 1;
+            int i = index(key, mask);
+            while (used[i]) {
+                if (table[i] == key) {
+                    shiftBack(i, mask);
+                    size--;
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        void clear() {
+            if (size == 0) {
+                return;
+            }
+            if (table.length > INITIAL_CAPACITY * 64) {
+                // Give back memory after a burst instead of pinning the peak size.
+                table = new long[INITIAL_CAPACITY];
+                used = new boolean[INITIAL_CAPACITY];
+            } else {
+                Arrays.fill(used, false);
+            }
+            size = 0;
+        }
+
+        private void shiftBack(int hole, int mask) {
+            int i = (hole + 1) & mask;
+            while (used[i]) {
+                int home = index(table[i], mask);
+                boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+                if (movable) {
+                    table[hole] = table[i];
+                    used[hole] = true;
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+            used[hole] = false;
+        }
+
+        private void resize(int capacity) {
+            long[] oldTable = table;
+            boolean[] oldUsed = used;
+            table = new long[capacity];
+            used = new boolean[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldTable.length; j++) {
+                if (oldUsed[j]) {
+                    int i = index(oldTable[j], mask);
+                    while (used[i]) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = oldTable[j];
+                    used[i] = true;
+                }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
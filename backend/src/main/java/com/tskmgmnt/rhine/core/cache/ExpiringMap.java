@@ -0,0 +1,149 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent map whose entries each expire after their own time to live.
+ * <p>
+ * Reads never return an expired entry. Memory is given back by {@link #advance()},
+ * which the owner calls once per tick: every entry is also filed in a hashed
+ * timing wheel, a ring of {@code wheelSize} slots of {@code tick} each, under the
+ * slot of its deadline. Advancing visits only the slots whose tick has passed and
+ * drops what is due there, so sweeping costs time in proportion to what expires
+ * rather than to the size of the map. Entries further out than one rotation stay
+ * in their slot until the round in which they fall due.
+ */
+public class ExpiringMap<V> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final LongSupplier clock;
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<V>>[] wheel;
+
+    private volatile long nextTick;
+    private long expired;
+
+    public ExpiringMap(Duration tick, int wheelSize) {
+        this(tick, wheelSize, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    ExpiringMap(Duration tick, int wheelSize, LongSupplier clock) {
+        if (tick.toMillis() < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel configuration");
+        }
+        this.tickMillis = tick.toMillis();
+        this.wheelSize = wheelSize;
+        this.clock = clock;
+        this.wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.nextTick = clock.getAsLong() / tickMillis;
+    }
+
+    /** Stores the value, replacing any previous one for the key. */
+    public void put(String key, V value, Duration ttl) {
+        long deadline = clock.getAsLong() + ttl.toMillis();
+        Entry<V> entry = new Entry<>(key, value, deadline);
+        entries.put(key, entry);
+        // Rounded up, so the slot is never swept before the entry is due; a deadline
+        // already behind the sweep waits for the next one.
+        long tick = Math.max(Math.ceilDiv(deadline, tickMillis), nextTick);
+        wheel[slotOf(tick)].add(entry);
+    }
+
+    public V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.deadline <= clock.getAsLong()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /** Removes the entry and returns its value, unless it had already expired. */
+    public V remove(String key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null || entry.deadline <= clock.getAsLong() ? null : entry.value;
+    }
+
+    /**
+     * Removes the entry if it is live and its value passes {@code test}. Of several
+     * concurrent callers matching the same entry, only one gets {@code true}.
+     */
+    public boolean removeIf(String key, Predicate<V> test) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.deadline <= clock.getAsLong()) {
+            return false;
+        }
+        return test.test(entry.value) && entries.remove(key, entry);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized long expired() {
+        return expired;
+    }
+
+    /**
+     * Sweeps the slots of every tick that has passed since the last call.
+     *
+     * @return the number of entries dropped
+     */
+    public synchronized int advance() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMillis;
+        // After a long pause, one pass over the ring covers every slot.
+        long from = Math.max(nextTick, currentTick - wheelSize + 1);
+        int dropped = 0;
+        for (long tick = from; tick <= currentTick; tick++) {
+            dropped += sweep(wheel[slotOf(tick)], now);
+        }
+        nextTick = currentTick + 1;
+        expired += dropped;
+        return dropped;
+    }
+
+    private int sweep(Queue<Entry<V>> slot, long now) {
+        int dropped = 0;
+        for (int remaining = slot.size(); remaining > 0; remaining--) {
+            Entry<V> entry = slot.poll();
+            if (entry == null) {
+                break;
+            }
+            if (entries.get(entry.key) != entry) {
+                // Replaced or removed since it was filed.
+                continue;
+            }
+            if (entry.deadline <= now) {
+                if (entries.remove(entry.key, entry)) {
+                    dropped++;
+                }
+            } else {
+                // Due in a later rotation.
+                slot.add(entry);
+            }
+        }
+        return dropped;
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) wheelSize);
+    }
+
+    private record Entry<V>(String key, V value, long deadline) {}
+}
@@ -0,0 +1,42 @@
+package com.tskmgmnt.rhine.core.cache;
+
+/**
+ * Allocation-free 64-bit FNV-1a hashing for building compact cache keys from
+ * several fields without concatenating them into an intermediate String.
+ */
+public final class Hash64 {
+
+    public static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private Hash64() {}
+
+    public static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+
+    public static long mix(long hash, CharSequence value) {
+        if (value == null) {
+            return mix(hash, -1L);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= c & 0xff;
+            hash *= PRIME;
+            hash ^= c >>> 8;
+            hash *= PRIME;
+        }
+        // Field separator so ("ab", "c") and ("a", "bc") hash differently.
+        hash ^= 0xff;
+        hash *= PRIME;
+        return hash;
+    }
+
+    public static long hash(CharSequence value) {
+        return mix(SEED, value);
+    }
+}
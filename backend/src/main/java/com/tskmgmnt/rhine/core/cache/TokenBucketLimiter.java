@@ -0,0 +1,135 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by string (an IP address, an email), without locks.
+ * <p>
+ * Each bucket holds {@code capacity} tokens and refills one token every
+ * {@code window / capacity}. Rather than a token count and a refill timestamp,
+ * a bucket stores a single value: the time at which it will be full again. Taking
+ * a token pushes that time forward by one refill interval, and is refused when it
+ * would end up more than a whole window ahead of now. That makes each bucket one
+ * {@link AtomicLong} updated by compare-and-set.
+ * <p>
+ * A bucket that is full again carries no state worth keeping, so it is dropped by
+ * {@link #evictIdle()}. The number of buckets is capped. When the map is full and
+ * nothing is idle, what happens to a new key depends on the {@link Overflow} mode.
+ */
+public class TokenBucketLimiter {
+
+    /** What a key gets when no bucket of its own can be made. */
+    public enum Overflow {
+        /**
+         * New keys share one overflow bucket, so a flood of distinct keys is throttled
+         * as a group instead of growing the map. Suits keys the client cannot choose
+         * freely, such as IP addresses.
+         */
+        SHARE,
+        /**
+         * New keys are let through unlimited. Suits keys anyone can name, such as an
+         * email address, where a shared bucket would let a flood of made-up keys lock
+         * out real ones; another limit has to cover the flood itself.
+         */
+        ALLOW
+    }
+
+    private final long intervalNanos;
+    private final long windowNanos;
+    private final int maxKeys;
+    private final Overflow overflowMode;
+    private final LongSupplier clock;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+    private final AtomicLong lastEviction;
+
+    public TokenBucketLimiter(int capacity, Duration window, int maxKeys) {
+        this(capacity, window, maxKeys, Overflow.SHARE);
+    }
+
+    public TokenBucketLimiter(int capacity, Duration window, int maxKeys, Overflow overflowMode) {
+        this(capacity, window, maxKeys, overflowMode, System::nanoTime);
+    }
+
+    TokenBucketLimiter(int capacity, Duration window, int maxKeys, LongSupplier clock) {
+        this(capacity, window, maxKeys, Overflow.SHARE, clock);
+    }
+
+    TokenBucketLimiter(int capacity, Duration window, int maxKeys, Overflow overflowMode, LongSupplier clock) {
+        if (capacity < 1 || maxKeys < 1 || window.toNanos() < capacity) {
+            throw new IllegalArgumentException("Invalid token bucket configuration");
+        }
+        this.intervalNanos = window.toNanos() / capacity;
+        this.windowNanos = intervalNanos * capacity;
+        this.maxKeys = maxKeys;
+        this.overflowMode = overflowMode;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.overflow = new AtomicLong(now);
+        this.lastEviction = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     *
+     * @return {@code 0} if a token was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = bucketFor(key, now);
+        if (bucket == null) {
+            return 0;
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            long wait = next - now - windowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely. A request racing with the
+     * removal may still take its token from the dropped bucket; the next request
+     * for that key starts a fresh, full one, which is what it would have found anyway.
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        lastEviction.set(now);
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /** The key's bucket, or {@code null} when the map is full and overflow is allowed. */
+    private AtomicLong bucketFor(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            // A full scan per new key would be its own denial of service; sweep at
+            // most once per refill interval and overflow meanwhile.
+            long last = lastEviction.get();
+            if (now - last >= intervalNanos && lastEviction.compareAndSet(last, now)) {
+                evictIdle();
+            }
+            if (buckets.size() >= maxKeys) {
+                return overflowMode == Overflow.SHARE ? overflow : null;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+}
@@ -1,8 +1,10 @@
 package com.tskmgmnt.rhine.core.config;
 
+import com.tskmgmnt.rhine.auth.service.AdaptiveBCryptPasswordEncoder;
 import com.tskmgmnt.rhine.user.entity.User;
 import com.tskmgmnt.rhine.user.repository.UserRepository;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,14 +13,32 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+import java.util.Map;
+
 @Configuration
 public class ApplicationConfig {
 
     private final UserRepository userRepository;
 
+    @Value("${application.security.hashing.cost:0}")
+    private int bcryptCost;
+
+    @Value("${application.security.hashing.target-ms:80}")
+    private long bcryptTargetMillis;
+
+    @Value("${application.security.hashing.min-cost:10}")
+    private int bcryptMinCost;
+
+    @Value("${application.security.hashing.max-cost:16}")
+    private int bcryptMaxCost;
+
+    @Value("${application.security.hashing.rehash-tolerance:1}")
+    private int bcryptRehashTolerance;
+
     public ApplicationConfig(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
@@ -42,8 +62,22 @@ public class ApplicationConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * BCrypt at a cost calibrated to {@code target-ms} on this hardware, unless
+     * {@code cost} fixes it. Stored hashes are only rewritten when their cost is
+     * outside a range every node shares: more than {@code rehash-tolerance} from a
+     * fixed {@code cost}, or outside {@code min-cost}..{@code max-cost} when
+     * calibrating. New hashes carry a {@code {bcrypt}} prefix; hashes stored
+     * without one still verify and are rewritten on the user's next login.
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        AdaptiveBCryptPasswordEncoder bcrypt = bcryptCost > 0
+                ? new AdaptiveBCryptPasswordEncoder(bcryptCost,
+                        bcryptCost - bcryptRehashTolerance, bcryptCost + bcryptRehashTolerance)
+                : AdaptiveBCryptPasswordEncoder.calibrated(Duration.ofMillis(bcryptTargetMillis), bcryptMinCost, bcryptMaxCost);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
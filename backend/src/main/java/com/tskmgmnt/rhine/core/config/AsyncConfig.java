@@ -19,4 +19,19 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Retention runs sleep between chunks and can take minutes, so they get their
+     * own thread instead of holding one of the shared scheduler's.
+     */
+    @Bean(name = "retentionExecutor")
+    public Executor retentionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(4);
+        executor.setThreadNamePrefix("RhineRetention-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,65 @@
+package com.tskmgmnt.rhine.core.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimitPolicy loginRateLimit(
+            @Value("${application.rate-limit.login.window:1m}") Duration window,
+            @Value("${application.rate-limit.login.per-ip:20}") int perIp,
+            @Value("${application.rate-limit.login.per-email:10}") int perEmail,
+            @Value("${application.rate-limit.login.enabled:true}") boolean enabled) {
+        return new RateLimitPolicy("login", "/api/users/login", window, perIp, perEmail, enabled);
+    }
+
+    @Bean
+    public RateLimitPolicy registerRateLimit(
+            @Value("${application.rate-limit.register.window:10m}") Duration window,
+            @Value("${application.rate-limit.register.per-ip:10}") int perIp,
+            @Value("${application.rate-limit.register.per-email:3}") int perEmail,
+            @Value("${application.rate-limit.register.enabled:true}") boolean enabled) {
+        return new RateLimitPolicy("register", "/api/users/register", window, perIp, perEmail, enabled);
+    }
+
+    @Bean
+    public RateLimitPolicy verifyRateLimit(
+            @Value("${application.rate-limit.verify.window:10m}") Duration window,
+            @Value("${application.rate-limit.verify.per-ip:30}") int perIp,
+            @Value("${application.rate-limit.verify.per-email:10}") int perEmail,
+            @Value("${application.rate-limit.verify.enabled:true}") boolean enabled) {
+        return new RateLimitPolicy("verify", "/api/users/verify", window, perIp, perEmail, enabled);
+    }
+
+    @Bean
+    public RateLimitPolicy resendOtpRateLimit(
+            @Value("${application.rate-limit.resend-otp.window:10m}") Duration window,
+            @Value("${application.rate-limit.resend-otp.per-ip:10}") int perIp,
+            @Value("${application.rate-limit.resend-otp.per-email:3}") int perEmail,
+            @Value("${application.rate-limit.resend-otp.enabled:true}") boolean enabled) {
+        return new RateLimitPolicy("resend-otp", "/api/users/resend-otp", window, perIp, perEmail, enabled);
+    }
+
+    @Bean
+    public RateLimitPolicy forgotPasswordRateLimit(
+            @Value("${application.rate-limit.forgot-password.window:15m}") Duration window,
+            @Value("${application.rate-limit.forgot-password.per-ip:10}") int perIp,
+            @Value("${application.rate-limit.forgot-password.per-email:3}") int perEmail,
+            @Value("${application.rate-limit.forgot-password.enabled:true}") boolean enabled) {
+        return new RateLimitPolicy("forgot-password", "/api/users/forgot-password", window, perIp, perEmail, enabled);
+    }
+
+    @Bean
+    public RateLimitPolicy resetPasswordRateLimit(
+            @Value("${application.rate-limit.reset-password.window:15m}") Duration window,
+            @Value("${application.rate-limit.reset-password.per-ip:10}") int perIp,
+            @Value("${application.rate-limit.reset-password.enabled:true}") boolean enabled) {
+        // Keyed by reset token rather than email; the token itself is single use.
+        return new RateLimitPolicy("reset-password", "/api/users/reset-password", window, perIp, 0, enabled);
+    }
+}
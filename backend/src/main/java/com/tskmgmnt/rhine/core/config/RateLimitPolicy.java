@@ -0,0 +1,16 @@
+package com.tskmgmnt.rhine.core.config;
+
+import java.time.Duration;
+
+/**
+ * Limits how often one unauthenticated endpoint may be called.
+ *
+ * @param name     stable identifier, used for metric tags and property names
+ * @param path     request path the policy applies to ({@code POST} only)
+ * @param window   period over which the limits below refill
+ * @param perIp    requests allowed per client address per window; {@code 0} disables
+ * @param perEmail requests allowed per target email per window; {@code 0} disables
+ * @param enabled  disabled policies are skipped
+ */
+public record RateLimitPolicy(String name, String path, Duration window, int perIp, int perEmail, boolean enabled) {
+}
@@ -0,0 +1,54 @@
+package com.tskmgmnt.rhine.core.config;
+
+import com.tskmgmnt.rhine.auth.entity.RevokedToken;
+import com.tskmgmnt.rhine.core.entity.OutboundMail;
+import com.tskmgmnt.rhine.core.entity.ShortLivedCredential;
+import com.tskmgmnt.rhine.notification.entity.OutboxEvent;
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class RetentionConfig {
+
+    @Bean
+    public RetentionPolicy projectUpdatesRetention(
+            @Value("${application.retention.project-updates.max-age:30d}") Duration maxAge,
+            @Value("${application.retention.project-updates.enabled:true}") boolean enabled) {
+        return new RetentionPolicy("project-updates", ProjectUpdate.class, "createdAt", maxAge, enabled);
+    }
+
+    @Bean
+    public RetentionPolicy credentialRetention(
+            @Value("${application.retention.credentials.max-age:0s}") Duration maxAge,
+            @Value("${application.retention.credentials.enabled:true}") boolean enabled) {
+        // Only has rows to purge with application.credentials.store=database.
+        return new RetentionPolicy("credentials", ShortLivedCredential.class, "expiresAt", maxAge, enabled);
+    }
+
+    @Bean
+    public RetentionPolicy outboxRetention(
+            @Value("${application.retention.outbox.max-age:1h}") Duration maxAge,
+            @Value("${application.retention.outbox.enabled:true}") boolean enabled) {
+        return new RetentionPolicy("outbox", OutboxEvent.class, "createdAt", maxAge, enabled);
+    }
+
+    @Bean
+    public RetentionPolicy revokedTokenRetention(
+            @Value("${application.retention.revoked-tokens.max-age:0s}") Duration maxAge,
+            @Value("${application.retention.revoked-tokens.enabled:true}") boolean enabled) {
+        // Once the token has expired it is refused anyway; the row has nothing left to do.
+        return new RetentionPolicy("revoked-tokens", RevokedToken.class, "expiresAt", maxAge, enabled);
+    }
+
+    @Bean
+    public RetentionPolicy mailOutboxRetention(
+            @Value("${application.retention.mail-outbox.max-age:7d}") Duration maxAge,
+            @Value("${application.retention.mail-outbox.enabled:true}") boolean enabled) {
+        // Long past the last retry; what is left is the delivery record of sent and failed mail.
+        return new RetentionPolicy("mail-outbox", OutboundMail.class, "createdAt", maxAge, enabled);
+    }
+}
@@ -0,0 +1,15 @@
+package com.tskmgmnt.rhine.core.config;
+
+import java.time.Duration;
+
+/**
+ * Describes how long rows of one entity are kept.
+ *
+ * @param name            stable identifier, used for checkpoints and metric tags
+ * @param entity          JPA entity to purge; must have a numeric, time-ordered {@code id}
+ * @param cutoffAttribute {@code Instant} or {@code LocalDateTime} attribute compared against the cutoff
+ * @param maxAge          rows whose cutoff attribute is older than {@code now - maxAge} are deleted
+ * @param enabled         disabled policies are skipped
+ */
+public record RetentionPolicy(String name, Class<?> entity, String cutoffAttribute, Duration maxAge, boolean enabled) {
+}
@@ -1,5 +1,6 @@
 package com.tskmgmnt.rhine.core.config;
 
+import com.github.f4b6a3.tsid.Tsid;
 import com.github.f4b6a3.tsid.TsidCreator;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.id.IdentifierGenerator;
@@ -12,4 +13,12 @@ public class TsidGenerator implements IdentifierGenerator {
     public Serializable generate(SharedSessionContractImplementor session, Object object) {
         return TsidCreator.getTsid().toLong();
     }
+
+    /**
+     * The smallest id that could have been generated at {@code unixMillis}. Ids are
+     * time-ordered, so this turns a point in time into an id range bound.
+     */
+    public static long floorOf(long unixMillis) {
+        return (unixMillis - Tsid.TSID_EPOCH) << 22;
+    }
 }
@@ -1,7 +1,9 @@
 package com.tskmgmnt.rhine.core.config;
 
 import com.tskmgmnt.rhine.auth.config.JwtAuthenticationFilter;
+import com.tskmgmnt.rhine.auth.config.RateLimitFilter;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -24,13 +26,17 @@ import java.util.List;
 public class WebSecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final AuthenticationProvider authenticationProvider;
 
     @Value("${application.cors.allowed-origins:http://localhost:5173,http://127.0.0.1:5173,http://10.23.119.114:5173}")
     private List<String> allowedOrigins;
 
-    public WebSecurityConfig(JwtAuthenticationFilter jwtAuthFilter, AuthenticationProvider authenticationProvider) {
+    public WebSecurityConfig(JwtAuthenticationFilter jwtAuthFilter,
+                             RateLimitFilter rateLimitFilter,
+                             AuthenticationProvider authenticationProvider) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = rateLimitFilter;
         this.authenticationProvider = authenticationProvider;
     }
 
@@ -41,6 +47,8 @@ public class WebSecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // Event streams finish on an async dispatch; the request was authorized when it started.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/users/login",
                                 "/api/users/register",
@@ -50,7 +58,7 @@ public class WebSecurityConfig {
                                 "/ws/**",
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**",
-                                "/actuator/**"
+                                "/actuator/health/**"
                         ).permitAll()
                         .anyRequest().authenticated()
                 )
@@ -58,7 +66,8 @@ public class WebSecurityConfig {
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .authenticationProvider(authenticationProvider)
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class);
         return http.build();
     }
 
@@ -1,12 +1,26 @@
 package com.tskmgmnt.rhine.core.config;
 
+import com.tskmgmnt.rhine.auth.config.StompAuthChannelInterceptor;
+import com.tskmgmnt.rhine.notification.service.PresenceRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -15,15 +29,135 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${application.cors.allowed-origins:http://localhost:5173}")
     private String[] allowedOrigins;
 
+    @Value("${application.websocket.inbound.pool-size:64}")
+    private int inboundPoolSize;
+
+    @Value("${application.websocket.outbound.pool-size:16}")
+    private int outboundPoolSize;
+
+    @Value("${application.websocket.broker.pool-size:4}")
+    private int brokerPoolSize;
+
+    @Value("${application.websocket.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${application.websocket.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    @Value("${application.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${application.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${application.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final PresenceRegistry presenceRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Counter slowConsumerDisconnects;
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                           PresenceRegistry presenceRegistry,
+                           MeterRegistry meterRegistry) {
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.presenceRegistry = presenceRegistry;
+        this.meterRegistry = meterRegistry;
+        this.slowConsumerDisconnects = Counter.builder("rhine.websocket.disconnects.slow")
+                .description("Sessions closed because they could not keep up with outbound messages")
+                .register(meterRegistry);
+    }
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns(allowedOrigins);
+        // A client subscribes and then asks for a replay; handle them in that order.
+        registry.setPreserveReceiveOrder(true);
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user");
+        // The outbound pool is multi-threaded; keep each session's frames in publish order.
+        registry.setPreservePublishOrder(true);
+        registry.configureBrokerChannel()
+                .taskExecutor(monitored(new ThreadPoolTaskExecutor(), "broker"))
+                .corePoolSize(brokerPoolSize)
+                .maxPoolSize(brokerPoolSize)
+                .queueCapacity(queueCapacity);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Presence sees every inbound frame, heartbeats included, to keep sessions alive.
+        registration.interceptors(stompAuthChannelInterceptor, presenceRegistry);
+        // Inbound work includes blocking lookups (JWT user, project membership), so it runs on virtual threads.
+        registration.taskExecutor(monitored(virtualThreadExecutor(), "inbound"))
+                .corePoolSize(inboundPoolSize)
+                .maxPoolSize(inboundPoolSize)
+                .queueCapacity(queueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(monitored(virtualThreadExecutor(), "outbound"))
+                .corePoolSize(outboundPoolSize)
+                .maxPoolSize(outboundPoolSize)
+                .queueCapacity(queueCapacity);
+    }
+
+    /**
+     * Frames for a session that is still busy sending are buffered per session. A
+     * session whose buffer exceeds the size limit, or whose send blocks for longer
+     * than the time limit, is closed instead of holding up the outbound pool.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .setTimeToFirstMessage(30_000);
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        if (CloseStatus.SESSION_NOT_RELIABLE.equals(event.getCloseStatus())) {
+            slowConsumerDisconnects.increment();
+        }
+    }
+
+    private static ThreadPoolTaskExecutor virtualThreadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    private ThreadPoolTaskExecutor monitored(ThreadPoolTaskExecutor executor, String channel) {
+        executor.setThreadNamePrefix("ws-" + channel + "-");
+        Gauge.builder("rhine.websocket.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("rhine.websocket.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("rhine.websocket.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("rhine.websocket.executor.queue.capacity", executor, ThreadPoolTaskExecutor::getQueueCapacity)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        return executor;
     }
 }
@@ -0,0 +1,105 @@
+package com.tskmgmnt.rhine.core.entity;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.Instant;
+
+/**
+ * An email waiting in the mail outbox, written in the same transaction as the
+ * change that caused it and sent later by {@code MailDeliveryWorker}. The body
+ * is cleared once the message has been sent, so codes and links do not linger.
+ */
+@Entity
+@Table(name = "mail_outbox", indexes = {
+        @Index(name = "idx_mail_outbox_due", columnList = "status, next_attempt_at")
+})
+public class OutboundMail {
+
+    public enum Status { PENDING, SENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(generator = "tsid-generator")
+    @GenericGenerator(name = "tsid-generator", type = TsidGenerator.class)
+    private Long id;
+
+    /** Which email this is (for example {@code otp}), used as a metric tag. */
+    @Column(nullable = false)
+    private String kind;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    /** Set while a worker holds the message; another may take it over after {@code lockedUntil}. */
+    private String claimToken;
+    private Instant lockedUntil;
+
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant sentAt;
+
+    public OutboundMail() {}
+
+    public OutboundMail(String kind, String recipient, String subject, String body) {
+        this.kind = kind;
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+    public String getRecipient() { return recipient; }
+    public void setRecipient(String recipient) { this.recipient = recipient; }
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(Instant nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    public String getClaimToken() { return claimToken; }
+    public void setClaimToken(String claimToken) { this.claimToken = claimToken; }
+    public Instant getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(Instant lockedUntil) { this.lockedUntil = lockedUntil; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getSentAt() { return sentAt; }
+    public void setSentAt(Instant sentAt) { this.sentAt = sentAt; }
+}
@@ -0,0 +1,58 @@
+package com.tskmgmnt.rhine.core.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * Progress of the latest purge run of one retention policy. A run that has no
+ * {@code completedAt} was interrupted and is resumed from {@code lastDeletedId}
+ * with its original cutoff.
+ */
+@Entity
+@Table(name = "retention_checkpoints")
+public class RetentionCheckpoint {
+
+    @Id
+    private String policyName;
+
+    @Column(nullable = false)
+    private Instant cutoff;
+
+    @Column(nullable = false)
+    private long lastDeletedId;
+
+    @Column(nullable = false)
+    private long rowsDeleted;
+
+    @Column(nullable = false)
+    private Instant startedAt;
+
+    private Instant completedAt;
+
+    public RetentionCheckpoint() {}
+
+    public RetentionCheckpoint(String policyName) {
+        this.policyName = policyName;
+    }
+
+    public boolean isInProgress() {
+        return startedAt != null && completedAt == null;
+    }
+
+    public String getPolicyName() { return policyName; }
+    public void setPolicyName(String policyName) { this.policyName = policyName; }
+    public Instant getCutoff() { return cutoff; }
+    public void setCutoff(Instant cutoff) { this.cutoff = cutoff; }
+    public long getLastDeletedId() { return lastDeletedId; }
+    public void setLastDeletedId(long lastDeletedId) { this.lastDeletedId = lastDeletedId; }
+    public long getRowsDeleted() { return rowsDeleted; }
+    public void setRowsDeleted(long rowsDeleted) { this.rowsDeleted = rowsDeleted; }
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+}
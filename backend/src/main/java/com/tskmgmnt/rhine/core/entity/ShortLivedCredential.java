@@ -0,0 +1,62 @@
+package com.tskmgmnt.rhine.core.entity;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.Instant;
+
+/**
+ * A short-lived credential when {@code application.credentials.store=database}.
+ * The key is stored as a SHA-256 hash, so a reset token read from the table
+ * cannot be used as a link. Callers must not store such secrets as values
+ * either; the reset flow stores only the token's hash under the user's email.
+ */
+@Entity
+@Table(name = "short_lived_credentials", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_short_lived_credentials_key", columnNames = {"purpose", "key_hash"})
+})
+public class ShortLivedCredential {
+
+    @Id
+    @GeneratedValue(generator = "tsid-generator")
+    @GenericGenerator(name = "tsid-generator", type = TsidGenerator.class)
+    private Long id;
+
+    @Column(nullable = false)
+    private String purpose;
+
+    @Column(nullable = false)
+    private String keyHash;
+
+    @Column(nullable = false)
+    private String credential;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public ShortLivedCredential() {}
+
+    public ShortLivedCredential(String purpose, String keyHash, String credential, Instant expiresAt) {
+        this.purpose = purpose;
+        this.keyHash = keyHash;
+        this.credential = credential;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+    public String getKeyHash() { return keyHash; }
+    public void setKeyHash(String keyHash) { this.keyHash = keyHash; }
+    public String getCredential() { return credential; }
+    public void setCredential(String credential) { this.credential = credential; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
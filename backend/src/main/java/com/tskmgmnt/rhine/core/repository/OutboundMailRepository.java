@@ -0,0 +1,53 @@
+package com.tskmgmnt.rhine.core.repository;
+
+import com.tskmgmnt.rhine.core.entity.OutboundMail;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboundMailRepository extends JpaRepository<OutboundMail, Long> {
+
+    /** Messages due for a first or repeated attempt, and any whose worker let its claim lapse. */
+    @Query("SELECT m.id FROM OutboundMail m WHERE (m.status = 'PENDING' AND m.nextAttemptAt <= :now) " +
+            "OR (m.status = 'SENDING' AND m.lockedUntil < :now) ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") Instant now, Limit limit);
+
+    /**
+     * Takes the messages that are still due for this claim token. Rows another
+     * worker claimed in the meantime no longer match and are left alone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboundMail m SET m.status = 'SENDING', m.claimToken = :token, m.lockedUntil = :lockedUntil " +
+            "WHERE m.id IN :ids AND ((m.status = 'PENDING' AND m.nextAttemptAt <= :now) " +
+            "OR (m.status = 'SENDING' AND m.lockedUntil < :now))")
+    int claim(@Param("ids") Collection<Long> ids, @Param("token") String token,
+              @Param("now") Instant now, @Param("lockedUntil") Instant lockedUntil);
+
+    List<OutboundMail> findByClaimToken(String claimToken);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboundMail m SET m.status = 'SENT', m.sentAt = :sentAt, m.body = NULL, m.claimToken = NULL, " +
+            "m.attempts = m.attempts + 1 WHERE m.id IN :ids AND m.claimToken = :token")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("token") String token, @Param("sentAt") Instant sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboundMail m SET m.status = :status, m.attempts = :attempts, m.nextAttemptAt = :nextAttemptAt, " +
+            "m.lastError = :error, m.claimToken = NULL WHERE m.id = :id AND m.claimToken = :token")
+    int markFailedAttempt(@Param("id") Long id, @Param("token") String token, @Param("status") OutboundMail.Status status,
+                          @Param("attempts") int attempts, @Param("nextAttemptAt") Instant nextAttemptAt,
+                          @Param("error") String error);
+
+    long countByStatus(OutboundMail.Status status);
+}
@@ -0,0 +1,9 @@
+package com.tskmgmnt.rhine.core.repository;
+
+import com.tskmgmnt.rhine.core.entity.RetentionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RetentionCheckpointRepository extends JpaRepository<RetentionCheckpoint, String> {
+}
@@ -0,0 +1,26 @@
+package com.tskmgmnt.rhine.core.repository;
+
+import com.tskmgmnt.rhine.core.entity.ShortLivedCredential;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface ShortLivedCredentialRepository extends JpaRepository<ShortLivedCredential, Long> {
+
+    Optional<ShortLivedCredential> findByPurposeAndKeyHashAndExpiresAtAfter(String purpose, String keyHash, Instant now);
+
+    @Modifying
+    @Query("DELETE FROM ShortLivedCredential c WHERE c.purpose = :purpose AND c.keyHash = :keyHash")
+    int deleteByKey(@Param("purpose") String purpose, @Param("keyHash") String keyHash);
+
+    /** Returns 1 for the one caller that removed the row, 0 for everyone else. */
+    @Modifying
+    @Query("DELETE FROM ShortLivedCredential c WHERE c.id = :id")
+    int deleteOnce(@Param("id") Long id);
+}
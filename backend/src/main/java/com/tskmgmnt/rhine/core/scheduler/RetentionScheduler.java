@@ -0,0 +1,79 @@
+package com.tskmgmnt.rhine.core.scheduler;
+
+import com.tskmgmnt.rhine.core.config.RetentionPolicy;
+import com.tskmgmnt.rhine.core.service.RetentionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Triggers retention runs. The scheduler thread only hands each run to the
+ * retention executor; a run that is still queued or running is not queued again.
+ */
+@Component
+public class RetentionScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionScheduler.class);
+    private final RetentionService retentionService;
+    private final RetentionPolicy outboxRetention;
+    private final Executor retentionExecutor;
+
+    private final AtomicBoolean purgePending = new AtomicBoolean();
+    private final AtomicBoolean compactionPending = new AtomicBoolean();
+
+    public RetentionScheduler(RetentionService retentionService,
+                              @Qualifier("outboxRetention") RetentionPolicy outboxRetention,
+                              @Qualifier("retentionExecutor") Executor retentionExecutor) {
+        this.retentionService = retentionService;
+        this.outboxRetention = outboxRetention;
+        this.retentionExecutor = retentionExecutor;
+    }
+
+    @Scheduled(cron = "${application.retention.cron:0 0 2 * * ?}")
+    public void purgeExpiredRows() {
+        submit("retention run", purgePending, () -> {
+            log.info("Starting scheduled retention run...");
+            retentionService.purgeAll();
+            log.info("Scheduled retention run finished");
+        });
+    }
+
+    /**
+     * The outbox is written on every change, so it is compacted far more often
+     * than the nightly run.
+     */
+    @Scheduled(fixedDelayString = "${application.retention.outbox.interval-ms:600000}",
+            initialDelayString = "${application.retention.outbox.interval-ms:600000}")
+    public void compactOutbox() {
+        if (outboxRetention.enabled()) {
+            submit("outbox compaction", compactionPending, () -> retentionService.purge(outboxRetention));
+        }
+    }
+
+    private void submit(String name, AtomicBoolean pending, Runnable run) {
+        if (!pending.compareAndSet(false, true)) {
+            log.info("Skipping {}, the previous one has not finished", name);
+            return;
+        }
+        try {
+            retentionExecutor.execute(() -> {
+                try {
+                    run.run();
+                } catch (RuntimeException e) {
+                    log.error("Scheduled {} failed: {}", name, e.getMessage());
+                } finally {
+                    pending.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            pending.set(false);
+            log.warn("Could not start {}: {}", name, e.getMessage());
+        }
+    }
+}
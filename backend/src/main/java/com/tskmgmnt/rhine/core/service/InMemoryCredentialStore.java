@@ -0,0 +1,70 @@
+package com.tskmgmnt.rhine.core.service;
+
+import com.tskmgmnt.rhine.core.cache.ExpiringMap;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * {@link ShortLivedCredentialStore} in this node's memory. Checks cost no I/O;
+ * expired entries are swept by a timing wheel that advances every {@code tick-ms}.
+ * Credentials do not survive a restart, so users then ask for a new code or link.
+ */
+@Component
+@ConditionalOnProperty(name = "application.credentials.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCredentialStore implements ShortLivedCredentialStore {
+
+    private final ExpiringMap<String> entries;
+
+    public InMemoryCredentialStore(MeterRegistry meterRegistry,
+                                   @Value("${application.credentials.tick-ms:1000}") long tickMillis,
+                                   @Value("${application.credentials.wheel-size:512}") int wheelSize) {
+        this.entries = new ExpiringMap<>(Duration.ofMillis(tickMillis), wheelSize);
+
+        Gauge.builder("rhine.credentials.entries", entries, ExpiringMap::size)
+                .description("Short-lived credentials held in memory")
+                .register(meterRegistry);
+        FunctionCounter.builder("rhine.credentials.expired", entries, ExpiringMap::expired)
+                .description("Short-lived credentials swept after expiring unused")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void put(String purpose, String key, String value, Duration ttl) {
+        entries.put(keyOf(purpose, key), value, ttl);
+    }
+
+    @Override
+    public Optional<String> peek(String purpose, String key) {
+        return Optional.ofNullable(entries.get(keyOf(purpose, key)));
+    }
+
+    @Override
+    public Optional<String> take(String purpose, String key) {
+        return Optional.ofNullable(entries.remove(keyOf(purpose, key)));
+    }
+
+    @Override
+    public boolean consumeIfMatches(String purpose, String key, String candidate) {
+        return candidate != null && entries.removeIf(keyOf(purpose, key), value -> MessageDigest.isEqual(
+                value.getBytes(StandardCharsets.UTF_8), candidate.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Scheduled(fixedDelayString = "${application.credentials.tick-ms:1000}")
+    public void sweep() {
+        entries.advance();
+    }
+
+    private static String keyOf(String purpose, String key) {
+        return purpose + ':' + key;
+    }
+}
@@ -0,0 +1,79 @@
+package com.tskmgmnt.rhine.core.service;
+
+import com.tskmgmnt.rhine.core.entity.ShortLivedCredential;
+import com.tskmgmnt.rhine.core.repository.ShortLivedCredentialRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * {@link ShortLivedCredentialStore} in the database, shared by every replica.
+ * Each check is a single indexed lookup and consuming is a conditional delete,
+ * so a credential is accepted once even when two nodes race. Expired rows are
+ * purged by the {@code credentials} retention policy.
+ */
+@Component
+@ConditionalOnProperty(name = "application.credentials.store", havingValue = "database")
+public class JpaCredentialStore implements ShortLivedCredentialStore {
+
+    private final ShortLivedCredentialRepository repository;
+
+    public JpaCredentialStore(ShortLivedCredentialRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    @Transactional
+    public void put(String purpose, String key, String value, Duration ttl) {
+        String keyHash = hash(key);
+        repository.deleteByKey(purpose, keyHash);
+        // Flushes the delete first so the unique key is free for the insert.
+        repository.flush();
+        repository.save(new ShortLivedCredential(purpose, keyHash, value, Instant.now().plus(ttl)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> peek(String purpose, String key) {
+        return repository.findByPurposeAndKeyHashAndExpiresAtAfter(purpose, hash(key), Instant.now())
+                .map(ShortLivedCredential::getCredential);
+    }
+
+    @Override
+    @Transactional
+    public Optional<String> take(String purpose, String key) {
+        return repository.findByPurposeAndKeyHashAndExpiresAtAfter(purpose, hash(key), Instant.now())
+                .filter(row -> repository.deleteOnce(row.getId()) == 1)
+                .map(ShortLivedCredential::getCredential);
+    }
+
+    @Override
+    @Transactional
+    public boolean consumeIfMatches(String purpose, String key, String candidate) {
+        if (candidate == null) {
+            return false;
+        }
+        return repository.findByPurposeAndKeyHashAndExpiresAtAfter(purpose, hash(key), Instant.now())
+                .filter(row -> MessageDigest.isEqual(row.getCredential().getBytes(StandardCharsets.UTF_8),
+                        candidate.getBytes(StandardCharsets.UTF_8)))
+                .map(row -> repository.deleteOnce(row.getId()) == 1)
+                .orElse(false);
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.tskmgmnt.rhine.core.service;
+
+import com.tskmgmnt.rhine.core.entity.OutboundMail;
+import com.tskmgmnt.rhine.core.repository.OutboundMailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the messages queued in the {@link OutboundMail} outbox.
+ * <p>
+ * A fixed set of worker threads each claim a batch of due messages with a
+ * conditional update, so workers on this and other replicas never send the same
+ * row twice, then send the batch over their own {@link SmtpConnection}, which
+ * stays open between batches. A worker sleeps until {@link MailOutbox} signals a
+ * new commit or {@code poll-interval-ms} passes.
+ * <p>
+ * A failed attempt is retried after {@code backoff-ms}, doubling each time up to
+ * {@code max-backoff-ms}, until {@code max-attempts}; a message the server
+ * refuses outright with a 5xx reply fails at once. A claim that is not settled
+ * within {@code claim-timeout-ms}, for example because its node died, is taken over.
+ */
+@Component
+public class MailDeliveryWorker implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailDeliveryWorker.class);
+
+    private final OutboundMailRepository outboundMailRepository;
+    private final JavaMailSenderImpl mailSender;
+    private final MeterRegistry meterRegistry;
+    private final String mailFrom;
+    private final int workers;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long idleMillis;
+    private final Duration claimTimeout;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final int maxAttempts;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicLong pending = new AtomicLong();
+    private final Map<String, Counter> sentCounters = new ConcurrentHashMap<>();
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Counter connectionsCounter;
+    private final Timer sendTimer;
+    private final Timer latencyTimer;
+
+    private volatile boolean running;
+    private final List<Thread> threads = new ArrayList<>();
+
+    public MailDeliveryWorker(OutboundMailRepository outboundMailRepository,
+                              JavaMailSender mailSender,
+                              MeterRegistry meterRegistry,
+                              @Value("${spring.mail.from}") String mailFrom,
+                              @Value("${application.mail.outbox.workers:2}") int workers,
+                              @Value("${application.mail.outbox.batch-size:20}") int batchSize,
+                              @Value("${application.mail.outbox.poll-interval-ms:5000}") long pollIntervalMillis,
+                              @Value("${application.mail.outbox.connection-idle-ms:30000}") long idleMillis,
+                              @Value("${application.mail.outbox.claim-timeout-ms:300000}") long claimTimeoutMillis,
+                              @Value("${application.mail.outbox.backoff-ms:30000}") long backoffMillis,
+                              @Value("${application.mail.outbox.max-backoff-ms:3600000}") long maxBackoffMillis,
+                              @Value("${application.mail.outbox.max-attempts:8}") int maxAttempts) {
+        if (!(mailSender instanceof JavaMailSenderImpl impl)) {
+            throw new IllegalStateException("Mail delivery needs a JavaMailSenderImpl to hold SMTP connections open");
+        }
+        this.outboundMailRepository = outboundMailRepository;
+        this.mailSender = impl;
+        this.meterRegistry = meterRegistry;
+        this.mailFrom = mailFrom;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.idleMillis = idleMillis;
+        this.claimTimeout = Duration.ofMillis(claimTimeoutMillis);
+        this.backoff = Duration.ofMillis(backoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.maxAttempts = maxAttempts;
+
+        Gauge.builder("rhine.mail.outbox.pending", pending, AtomicLong::get)
+                .description("Messages in the mail outbox waiting to be sent")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("rhine.mail.retried")
+                .description("Send attempts that failed and were rescheduled")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("rhine.mail.failed")
+                .description("Messages given up on")
+                .register(meterRegistry);
+        this.connectionsCounter = Counter.builder("rhine.mail.connections")
+                .description("SMTP connections opened")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("rhine.mail.send.duration")
+                .description("Time to hand one message to the SMTP server")
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("rhine.mail.outbox.latency")
+                .description("Time from a message being queued to it being sent")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /** Wakes a sleeping worker; called once a transaction that queued mail commits. */
+    public void wake() {
+        if (wakeups.availablePermits() < workers) {
+            wakeups.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.mail.outbox.metrics-interval-ms:10000}")
+    public void refreshPending() {
+        pending.set(outboundMailRepository.countByStatus(OutboundMail.Status.PENDING));
+    }
+
+    private void work() {
+        try (SmtpConnection connection = new SmtpConnection(mailSender, idleMillis, connectionsCounter::increment)) {
+            while (running) {
+                try {
+                    if (!deliverBatch(connection)) {
+                        connection.closeIfIdle();
+                        wakeups.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.warn("Mail delivery failed: {}", e.getMessage());
+                    connection.close();
+                    sleepQuietly();
+                }
+            }
+        }
+    }
+
+    /** @return {@code false} if there was nothing to send */
+    private boolean deliverBatch(SmtpConnection connection) {
+        Instant now = Instant.now();
+        List<Long> due = outboundMailRepository.findDueIds(now, Limit.of(batchSize));
+        if (due.isEmpty()) {
+            return false;
+        }
+        String token = UUID.randomUUID().toString();
+        if (outboundMailRepository.claim(due, token, now, now.plus(claimTimeout)) == 0) {
+            // Another worker got there first; look again straight away.
+            return true;
+        }
+
+        List<Long> sent = new ArrayList<>();
+        for (OutboundMail mail : outboundMailRepository.findByClaimToken(token)) {
+            if (!running) {
+                break;
+            }
+            try {
+                MimeMessage message = toMimeMessage(mail);
+                sendTimer.recordCallable(() -> {
+                    connection.send(message);
+                    return null;
+                });
+                sent.add(mail.getId());
+                sentCounter(mail.getKind()).increment();
+                latencyTimer.record(Duration.between(mail.getCreatedAt(), Instant.now()));
+            } catch (Exception e) {
+                failedAttempt(mail, token, e);
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboundMailRepository.markSent(sent, token, Instant.now());
+        }
+        // Anything left unsent after a stop stays claimed and is taken over once the claim lapses.
+        return true;
+    }
+
+    private void failedAttempt(OutboundMail mail, String token, Exception e) {
+        int attempts = mail.getAttempts() + 1;
+        // A recipient the server refused for good will not be accepted on a later try
+        // either; greylisting and other 4xx replies are retried like any other failure.
+        boolean permanent = attempts >= maxAttempts
+                || e instanceof MessagingException messaging && SmtpConnection.isPermanent(messaging);
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (delay.compareTo(maxBackoff) > 0) {
+            delay = maxBackoff;
+        }
+        outboundMailRepository.markFailedAttempt(mail.getId(), token,
+                permanent ? OutboundMail.Status.FAILED : OutboundMail.Status.PENDING,
+                attempts, Instant.now().plus(delay), truncate(e.getMessage()));
+        if (permanent) {
+            failedCounter.increment();
+            logger.error("Giving up on {} email {} to {} after {} attempts: {}",
+                    mail.getKind(), mail.getId(), mail.getRecipient(), attempts, e.getMessage());
+        } else {
+            retriedCounter.increment();
+            logger.warn("Failed to send {} email {} to {} (attempt {}), retrying in {}s: {}",
+                    mail.getKind(), mail.getId(), mail.getRecipient(), attempts, delay.toSeconds(), e.getMessage());
+        }
+    }
+
+    private MimeMessage toMimeMessage(OutboundMail mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(mailFrom);
+        helper.setTo(mail.getRecipient());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getBody(), true);
+        return message;
+    }
+
+    private Counter sentCounter(String kind) {
+        return sentCounters.computeIfAbsent(kind, k -> Counter.builder("rhine.mail.sent")
+                .description("Messages handed to the SMTP server")
+                .tag("kind", k)
+                .register(meterRegistry));
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 255 ? message : message.substring(0, 255);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::work, "MailDelivery-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
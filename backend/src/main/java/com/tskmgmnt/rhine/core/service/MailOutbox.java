@@ -0,0 +1,54 @@
+package com.tskmgmnt.rhine.core.service;
+
+import com.tskmgmnt.rhine.core.entity.OutboundMail;
+import com.tskmgmnt.rhine.core.repository.OutboundMailRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Queues outgoing email in the database for {@link MailDeliveryWorker}.
+ * <p>
+ * A message is written in the caller's transaction, so it is sent if and only
+ * if that transaction commits, and survives a restart until it has been handed
+ * to the SMTP server. The worker is woken once the row is visible.
+ */
+@Service
+public class MailOutbox {
+
+    private final OutboundMailRepository outboundMailRepository;
+    private final MailDeliveryWorker mailDeliveryWorker;
+
+    public MailOutbox(OutboundMailRepository outboundMailRepository, MailDeliveryWorker mailDeliveryWorker) {
+        this.outboundMailRepository = outboundMailRepository;
+        this.mailDeliveryWorker = mailDeliveryWorker;
+    }
+
+    public void enqueue(String kind, String to, String subject, String html) {
+        outboundMailRepository.save(new OutboundMail(kind, to, subject, html));
+        wakeAfterCommit();
+    }
+
+    public void enqueueAll(List<OutboundMail> mails) {
+        if (mails.isEmpty()) {
+            return;
+        }
+        outboundMailRepository.saveAll(mails);
+        wakeAfterCommit();
+    }
+
+    private void wakeAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            mailDeliveryWorker.wake();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                mailDeliveryWorker.wake();
+            }
+        });
+    }
+}
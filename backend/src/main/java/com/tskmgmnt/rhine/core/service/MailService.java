@@ -5,106 +5,51 @@ import com.tskmgmnt.rhine.project.enums.ProjectRole;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import jakarta.mail.internet.MimeMessage;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
+import java.util.Map;
+
+/**
+ * Renders the application's emails with the {@link TemplateRenderer} and queues
+ * them in the {@link MailOutbox}; {@link MailDeliveryWorker} sends them. Queuing
+ * joins the caller's transaction, so an email goes out only if the change that
+ * triggered it is committed.
+ */
 @Service
 public class MailService {
 
     private static final Logger logger = LoggerFactory.getLogger(MailService.class);
-    private final JavaMailSender mailSender;
-    private final TemplateEngine templateEngine;
+    private final MailOutbox mailOutbox;
+    private final TemplateRenderer templateRenderer;
 
     @Value("${application.frontend.url}")
     private String frontendUrl;
 
-    @Value("${spring.mail.from}")
-    private String mailFrom;
-
-    public MailService(JavaMailSender mailSender, TemplateEngine templateEngine) {
-        this.mailSender = mailSender;
-        this.templateEngine = templateEngine;
+    public MailService(MailOutbox mailOutbox, TemplateRenderer templateRenderer) {
+        this.mailOutbox = mailOutbox;
+        this.templateRenderer = templateRenderer;
     }
 
-    @Async
     public void sendOtpEmail(String to, String otpCode) {
-        logger.info("PREPARING TO SEND HTML OTP TO {}: {}", to, otpCode);
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setFrom(mailFrom);
-            helper.setTo(to);
-            helper.setSubject("Rhine Verification Code");
-
-            Context context = new Context();
-            context.setVariable("otpCode", otpCode);
-
-            String htmlContent = templateEngine.process("otp-email", context);
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-            logger.info("HTML OTP email successfully sent to {}", to);
-        } catch (Exception e) {
-            logger.error("Failed to send HTML OTP email to {}: {}", to, e.getMessage());
-        }
+        String htmlContent = templateRenderer.render("otp-email", Map.of("otpCode", otpCode));
+        mailOutbox.enqueue("otp", to, "Rhine Verification Code", htmlContent);
+        logger.info("OTP email queued for {}", to);
     }
 
-    @Async
     public void sendInviteEmail(String to, String projectName, ProjectRole role, String token) {
         String inviteLink = frontendUrl + "/accept-invite?token=" + token;
-        logger.info("Preparing to send HTML invite email to {} with link: {}", to, inviteLink);
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setFrom(mailFrom);
-            helper.setTo(to);
-            helper.setSubject("You've been invited to join " + projectName);
-
-            Context context = new Context();
-            context.setVariable("projectName", projectName);
-            context.setVariable("role", role.name());
-            context.setVariable("inviteLink", inviteLink);
-
-            String htmlContent = templateEngine.process("invite-email", context);
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-            logger.info("HTML Invite email successfully sent to {}", to);
-        } catch (Exception e) {
-            logger.error("Failed to send HTML Invite email to {}: {}", to, e.getMessage());
-        }
+        String htmlContent = templateRenderer.render("invite-email", Map.of(
+                "projectName", projectName,
+                "role", role.name(),
+                "inviteLink", inviteLink));
+        mailOutbox.enqueue("invite", to, "You've been invited to join " + projectName, htmlContent);
+        logger.info("Invite email queued for {}", to);
     }
 
-    @Async
     public void sendPasswordResetEmail(String to, String token) {
         String resetLink = frontendUrl + "/reset-password?token=" + token;
-        logger.info("Preparing to send HTML password reset email to {} with link: {}", to, resetLink);
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(mailFrom);
-            helper.setTo(to);
-            helper.setSubject("Rhine Password Reset Request");
-
-            Context context = new Context();
-            context.setVariable("resetLink", resetLink);
-
-            String htmlContent = templateEngine.process("reset-password", context);
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-            logger.info("HTML Password reset email successfully sent to {}", to);
-        } catch (Exception e) {
-            logger.error("Failed to send HTML Password Reset email to {}: {}", to, e.getMessage());
-        }
+        String htmlContent = templateRenderer.render("reset-password", Map.of("resetLink", resetLink));
+        mailOutbox.enqueue("reset-password", to, "Rhine Password Reset Request", htmlContent);
+        logger.info("Password reset email queued for {}", to);
     }
 }
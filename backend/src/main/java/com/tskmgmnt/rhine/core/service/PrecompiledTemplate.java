@@ -0,0 +1,154 @@
+package com.tskmgmnt.rhine.core.service;
+
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.unbescape.html.HtmlEscape;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A Thymeleaf template reduced to the text between its variables.
+ * <p>
+ * {@link #compile} renders the template once through the engine with a unique
+ * marker in place of each variable and splits the output at the markers, so
+ * layouts, fragments and static attributes are resolved once and rendering is
+ * a single pass appending literal segments and escaped values into one buffer.
+ * <p>
+ * This only holds for templates that print their variables as escaped text or
+ * attributes. A template that tests, iterates over, transforms or writes a
+ * variable unescaped renders the markers differently, or not at all; it is
+ * detected by that and by rendering a second time with other markers and
+ * comparing, and is not compiled.
+ */
+final class PrecompiledTemplate {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final String[] variables;
+    /** {@code segments[i]} is followed by the value of {@code variables[slots[i]]}; the last segment by nothing. */
+    private final String[] segments;
+    private final int[] slots;
+    private final int staticLength;
+
+    private PrecompiledTemplate(String[] variables, String[] segments, int[] slots) {
+        this.variables = variables;
+        this.segments = segments;
+        this.slots = slots;
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * @return the compiled template, or {@code null} if its output depends on the
+     * variables in any way other than printing them escaped
+     */
+    static PrecompiledTemplate compile(TemplateEngine templateEngine, String template, String... variables) {
+        // Markers of two lengths, in case a value is measured.
+        PrecompiledTemplate first = probe(templateEngine, template, variables, 8);
+        PrecompiledTemplate second = probe(templateEngine, template, variables, 16);
+        return first != null && first.sameShapeAs(second) ? first : null;
+    }
+
+    boolean accepts(Map<String, ?> values) {
+        if (values.size() != variables.length) {
+            return false;
+        }
+        for (String variable : variables) {
+            // A null drops the attribute or text it feeds, which only the engine knows how to do.
+            if (!(values.get(variable) instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Callers check {@link #accepts} first. */
+    String render(Map<String, ?> values) {
+        String[] escaped = new String[variables.length];
+        int length = staticLength;
+        for (int i = 0; i < variables.length; i++) {
+            escaped[i] = HtmlEscape.escapeHtml4Xml((String) values.get(variables[i]));
+        }
+        for (int slot : slots) {
+            length += escaped[slot].length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(segments[i]).append(escaped[slots[i]]);
+        }
+        return out.append(segments[segments.length - 1]).toString();
+    }
+
+    private boolean sameShapeAs(PrecompiledTemplate other) {
+        return other != null && Arrays.equals(segments, other.segments)
+                && Arrays.equals(slots, other.slots);
+    }
+
+    /**
+     * Renders with the marker {@code <prefix><index>&slot} for each variable. The
+     * {@code &} is there to tell escaped output, {@code &amp;slot}, from raw.
+     */
+    private static PrecompiledTemplate probe(TemplateEngine templateEngine, String template, String[] variables,
+                                             int nonceBytes) {
+        byte[] nonce = new byte[nonceBytes];
+        random.nextBytes(nonce);
+        String prefix = "tpl" + HexFormat.of().formatHex(nonce) + "_";
+
+        Context context = new Context();
+        for (int i = 0; i < variables.length; i++) {
+            context.setVariable(variables[i], prefix + i + "&slot");
+        }
+        String output = templateEngine.process(template, context);
+        if (output.contains("&slot")) {
+            return null;
+        }
+
+        List<String> segments = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int from = 0;
+        int at;
+        while ((at = output.indexOf(prefix, from)) >= 0) {
+            int digits = at + prefix.length();
+            int end = digits;
+            while (end < output.length() && Character.isDigit(output.charAt(end))) {
+                end++;
+            }
+            if (end == digits || !output.startsWith("&amp;slot", end)) {
+                return null;
+            }
+            int slot = Integer.parseInt(output, digits, end, 10);
+            if (slot >= variables.length) {
+                return null;
+            }
+            segments.add(output.substring(from, at));
+            slots.add(slot);
+            from = end + "&amp;slot".length();
+        }
+        segments.add(output.substring(from));
+
+        // A variable that is missing, or whose marker survives only in part or in
+        // altered form, is used in a way a plain substitution cannot reproduce.
+        String head = prefix.substring(0, 8);
+        for (int i = 0; i < variables.length; i++) {
+            if (!slots.contains(i)) {
+                return null;
+            }
+        }
+        for (String segment : segments) {
+            if (segment.toLowerCase(Locale.ROOT).contains(head)) {
+                return null;
+            }
+        }
+        return new PrecompiledTemplate(variables.clone(), segments.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+}
@@ -0,0 +1,187 @@
+package com.tskmgmnt.rhine.core.service;
+
+import com.tskmgmnt.rhine.core.config.RetentionPolicy;
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import com.tskmgmnt.rhine.core.entity.RetentionCheckpoint;
+import com.tskmgmnt.rhine.core.repository.RetentionCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Purges expired rows in small primary-key-ordered chunks.
+ * <p>
+ * Each chunk selects at most {@code chunk-size} ids above the last deleted one,
+ * deletes them by id and records the new position in a {@link RetentionCheckpoint},
+ * all in one short transaction. The worker then pauses before the next chunk, so a
+ * large backlog never holds one long transaction open or floods replication.
+ * <p>
+ * Ids are time-ordered and taken when the row is created, which is no later than
+ * its cutoff attribute (a creation time, or an expiry after it) give or take the
+ * moment between the two. The select is therefore also bounded by the first id of
+ * the cutoff instant, which keeps it a primary-key range scan instead of needing
+ * an index on the cutoff column. A row whose id was taken just after the cutoff
+ * is left for the next run.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    private final List<RetentionPolicy> policies;
+    private final RetentionCheckpointRepository checkpointRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${application.retention.pause-ms:200}")
+    private long pauseMillis;
+
+    public RetentionService(List<RetentionPolicy> policies,
+                            RetentionCheckpointRepository checkpointRepository,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry) {
+        this.policies = policies;
+        this.checkpointRepository = checkpointRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Published after a policy run finishes, so owners of in-memory state derived
+     * from the purged table can refresh it.
+     */
+    public record PurgeCompleted(String policyName, long rowsDeleted) {}
+
+    public void purgeAll() {
+        for (RetentionPolicy policy : policies) {
+            if (!policy.enabled()) {
+                continue;
+            }
+            try {
+                purge(policy);
+            } catch (Exception e) {
+                logger.error("Retention run for {} failed, will resume from its checkpoint: {}", policy.name(), e.getMessage());
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    public long purge(RetentionPolicy policy) {
+        RetentionCheckpoint checkpoint = checkpointRepository.findById(policy.name())
+                .orElseGet(() -> new RetentionCheckpoint(policy.name()));
+        if (checkpoint.isInProgress()) {
+            logger.info("Resuming retention run for {} after id {}", policy.name(), checkpoint.getLastDeletedId());
+        } else {
+            checkpoint.setCutoff(Instant.now().minus(policy.maxAge()));
+            checkpoint.setLastDeletedId(0L);
+            checkpoint.setRowsDeleted(0L);
+            checkpoint.setStartedAt(Instant.now());
+            checkpoint.setCompletedAt(null);
+            checkpoint = checkpointRepository.save(checkpoint);
+        }
+
+        Counter deletedCounter = Counter.builder("rhine.retention.rows.deleted")
+                .tag("policy", policy.name())
+                .register(meterRegistry);
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        String entityName = entityManager.getMetamodel().entity(policy.entity()).getName();
+        Object cutoff = cutoffValue(policy, checkpoint.getCutoff());
+        long before = TsidGenerator.floorOf(checkpoint.getCutoff().toEpochMilli());
+        String selectIds = "SELECT e.id FROM " + entityName + " e WHERE e.id > :after AND e.id < :before AND e."
+                + policy.cutoffAttribute() + " < :cutoff ORDER BY e.id";
+        String deleteByIds = "DELETE FROM " + entityName + " e WHERE e.id IN :ids";
+
+        long deletedThisRun = 0;
+        boolean finished = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                RetentionCheckpoint current = checkpoint;
+                Integer deleted = transactionTemplate.execute(status -> {
+                    List<Long> ids = entityManager.createQuery(selectIds, Long.class)
+                            .setParameter("after", current.getLastDeletedId())
+                            .setParameter("before", before)
+                            .setParameter("cutoff", cutoff)
+                            .setMaxResults(chunkSize)
+                            .getResultList();
+                    if (ids.isEmpty()) {
+                        return 0;
+                    }
+                    int count = entityManager.createQuery(deleteByIds)
+                            .setParameter("ids", ids)
+                            .executeUpdate();
+                    current.setLastDeletedId(ids.get(ids.size() - 1));
+                    current.setRowsDeleted(current.getRowsDeleted() + count);
+                    checkpointRepository.save(current);
+                    return count;
+                });
+                if (deleted == null || deleted == 0) {
+                    finished = true;
+                    break;
+                }
+                deletedThisRun += deleted;
+                deletedCounter.increment(deleted);
+                pause();
+            }
+        } finally {
+            sample.stop(Timer.builder("rhine.retention.duration")
+                    .tag("policy", policy.name())
+                    .register(meterRegistry));
+        }
+
+        if (finished) {
+            checkpoint.setCompletedAt(Instant.now());
+            checkpointRepository.save(checkpoint);
+            logger.info("Retention run for {} deleted {} rows older than {}", policy.name(), checkpoint.getRowsDeleted(), checkpoint.getCutoff());
+        }
+        if (deletedThisRun > 0) {
+            eventPublisher.publishEvent(new PurgeCompleted(policy.name(), deletedThisRun));
+        }
+        return deletedThisRun;
+    }
+
+    private Object cutoffValue(RetentionPolicy policy, Instant cutoff) {
+        Class<?> type = entityManager.getMetamodel().entity(policy.entity())
+                .getAttribute(policy.cutoffAttribute()).getJavaType();
+        if (type == LocalDateTime.class) {
+            // LocalDateTime columns are written with LocalDateTime.now(), i.e. in the server's zone.
+            return LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        }
+        return cutoff;
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.tskmgmnt.rhine.core.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Holds single-use secrets that only live for minutes, such as email OTPs and
+ * password reset tokens. Entries are addressed by a {@code purpose} (which kind
+ * of credential) and a {@code key} within it, and disappear on their own once
+ * their time to live has passed.
+ * <p>
+ * By default they live in memory on this node ({@link InMemoryCredentialStore}).
+ * Deployments with several replicas, where the request that checks a credential
+ * may land on another node than the one that issued it, set
+ * {@code application.credentials.store=database} ({@link JpaCredentialStore}).
+ */
+public interface ShortLivedCredentialStore {
+
+    /** Stores the value, replacing any previous one for the same purpose and key. */
+    void put(String purpose, String key, String value, Duration ttl);
+
+    /** The live value, left in place. */
+    Optional<String> peek(String purpose, String key);
+
+    /** Removes the entry and returns its value, if it was still live. */
+    Optional<String> take(String purpose, String key);
+
+    /**
+     * Removes the entry if its value equals {@code candidate}, compared in
+     * constant time. Only one of several concurrent callers can succeed.
+     */
+    boolean consumeIfMatches(String purpose, String key, String candidate);
+}
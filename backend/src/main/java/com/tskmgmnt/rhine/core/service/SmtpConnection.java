@@ -0,0 +1,147 @@
+package com.tskmgmnt.rhine.core.service;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * One SMTP connection kept open across messages, instead of the connect,
+ * handshake and login {@link JavaMailSenderImpl#send} repeats for every message.
+ * <p>
+ * The connection is opened on first use and closed after {@code idleMillis}
+ * without traffic. A server may drop an idle connection at any time, so a
+ * message that fails on a reused connection is retried once on a fresh one.
+ * Not thread-safe: each delivery worker owns one.
+ */
+class SmtpConnection implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnection.class);
+
+    private final JavaMailSenderImpl mailSender;
+    private final long idleMillis;
+    private final LongSupplier clock;
+    private final Runnable onConnect;
+
+    private Transport transport;
+    private long lastUsed;
+
+    SmtpConnection(JavaMailSenderImpl mailSender, long idleMillis, Runnable onConnect) {
+        this(mailSender, idleMillis, onConnect, System::currentTimeMillis);
+    }
+
+    SmtpConnection(JavaMailSenderImpl mailSender, long idleMillis, Runnable onConnect, LongSupplier clock) {
+        this.mailSender = mailSender;
+        this.idleMillis = idleMillis;
+        this.onConnect = onConnect;
+        this.clock = clock;
+    }
+
+    /**
+     * @throws SendFailedException if the server refused the message or its recipients,
+     *                             for good or for now; see {@link #isPermanent}
+     * @throws MessagingException  if the message could not be handed over at all
+     */
+    void send(MimeMessage message) throws MessagingException {
+        message.saveChanges();
+        boolean reused = transport != null;
+        if (reused && clock.getAsLong() - lastUsed > idleMillis) {
+            close();
+            reused = false;
+        }
+        try {
+            transport().sendMessage(message, message.getAllRecipients());
+        } catch (SendFailedException e) {
+            if (returnCodes(e).contains(421)) {
+                // The server is closing the connection.
+                close();
+            }
+            throw e;
+        } catch (MessagingException e) {
+            close();
+            if (!reused) {
+                throw e;
+            }
+            transport().sendMessage(message, message.getAllRecipients());
+        }
+        lastUsed = clock.getAsLong();
+    }
+
+    /**
+     * Whether a failed send is not worth trying again. Temporary 4xx replies, such
+     * as greylisting (450, 451), a full mailbox (452) or a server shutting down
+     * (421), are not permanent even though they also arrive as a
+     * {@link SendFailedException}. Otherwise a 5xx reply is, and so is a refusal
+     * that leaves no valid recipient unsent.
+     */
+    static boolean isPermanent(MessagingException e) {
+        if (!(e instanceof SendFailedException failed)) {
+            return false;
+        }
+        List<Integer> codes = returnCodes(e);
+        if (codes.stream().anyMatch(code -> code >= 400 && code < 500)) {
+            return false;
+        }
+        if (codes.stream().anyMatch(code -> code >= 500 && code < 600)) {
+            return true;
+        }
+        Address[] unsent = failed.getValidUnsentAddresses();
+        return unsent == null || unsent.length == 0;
+    }
+
+    /** The SMTP reply codes carried by the exception and the per-recipient ones chained to it. */
+    private static List<Integer> returnCodes(MessagingException e) {
+        List<Integer> codes = new ArrayList<>();
+        for (Exception next = e; next != null;
+             next = next instanceof MessagingException m ? m.getNextException() : null) {
+            if (next instanceof SMTPAddressFailedException failed) {
+                codes.add(failed.getReturnCode());
+            } else if (next instanceof SMTPSendFailedException failed) {
+                codes.add(failed.getReturnCode());
+            }
+        }
+        return codes;
+    }
+
+    /** Closes the connection if it has been idle for longer than allowed. */
+    void closeIfIdle() {
+        if (transport != null && clock.getAsLong() - lastUsed > idleMillis) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+        transport = null;
+    }
+
+    private Transport transport() throws MessagingException {
+        if (transport == null) {
+            String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+            Transport opened = mailSender.getSession().getTransport(protocol);
+            opened.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            transport = opened;
+            lastUsed = clock.getAsLong();
+            onConnect.run();
+        }
+        return transport;
+    }
+}
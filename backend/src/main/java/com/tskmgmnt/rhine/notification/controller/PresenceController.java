@@ -0,0 +1,41 @@
+package com.tskmgmnt.rhine.notification.controller;
+
+import com.tskmgmnt.rhine.core.exception.ResourceNotFoundException;
+import com.tskmgmnt.rhine.notification.service.PresenceRegistry;
+import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/projects/{projectId}/presence")
+@Tag(name = "Project Presence")
+@SecurityRequirement(name = "bearerAuth")
+public class PresenceController {
+
+    private final PresenceRegistry presenceRegistry;
+    private final ProjectMemberRepository projectMemberRepository;
+
+    public PresenceController(PresenceRegistry presenceRegistry, ProjectMemberRepository projectMemberRepository) {
+        this.presenceRegistry = presenceRegistry;
+        this.projectMemberRepository = projectMemberRepository;
+    }
+
+    @Operation(summary = "Get the emails of project members currently connected to the project's live updates")
+    @GetMapping
+    public ResponseEntity<List<String>> getOnlineMembers(@PathVariable Long projectId, Authentication auth) {
+        if (!projectMemberRepository.existsByUserEmailAndProjectId(auth.getName(), projectId)) {
+            throw new ResourceNotFoundException("Project not found");
+        }
+
+        return ResponseEntity.ok(presenceRegistry.onlineMembers(projectId));
+    }
+}
@@ -0,0 +1,42 @@
+package com.tskmgmnt.rhine.notification.controller;
+
+import com.tskmgmnt.rhine.notification.dto.EventReplay;
+import com.tskmgmnt.rhine.notification.dto.ResyncRequest;
+import com.tskmgmnt.rhine.notification.service.EventReplayService;
+import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+/**
+ * Lets a client that (re)subscribed to a project's topics catch up on frames it
+ * missed. The answer goes to the requesting session only.
+ */
+@Controller
+public class ProjectEventController {
+
+    private final EventReplayService eventReplayService;
+    private final ProjectMemberRepository projectMemberRepository;
+
+    public ProjectEventController(EventReplayService eventReplayService,
+                                  ProjectMemberRepository projectMemberRepository) {
+        this.eventReplayService = eventReplayService;
+        this.projectMemberRepository = projectMemberRepository;
+    }
+
+    @MessageMapping("/project/{projectId}/resync")
+    @SendToUser(destinations = "/queue/replay", broadcast = false)
+    public EventReplay resync(@DestinationVariable Long projectId,
+                              @Payload(required = false) ResyncRequest request,
+                              Principal principal) {
+        if (principal == null || !projectMemberRepository.existsByUserEmailAndProjectId(principal.getName(), projectId)) {
+            throw new MessageDeliveryException("Not a member of project " + projectId);
+        }
+        return eventReplayService.replaySince(projectId, request != null ? request.getLastSeq() : null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tskmgmnt.rhine.notification.controller;
+
+import com.tskmgmnt.rhine.auth.dto.AuthenticatedUser;
+import com.tskmgmnt.rhine.auth.service.JwtService;
+import com.tskmgmnt.rhine.core.exception.ResourceNotFoundException;
+import com.tskmgmnt.rhine.notification.dto.StreamToken;
+import com.tskmgmnt.rhine.notification.service.ProjectEventStream;
+import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/projects/{projectId}/events")
+@Tag(name = "Project Events")
+@SecurityRequirement(name = "bearerAuth")
+public class ProjectEventStreamController {
+
+    private final ProjectEventStream projectEventStream;
+    private final ProjectMemberRepository projectMemberRepository;
+    private final JwtService jwtService;
+
+    public ProjectEventStreamController(ProjectEventStream projectEventStream,
+                                        ProjectMemberRepository projectMemberRepository,
+                                        JwtService jwtService) {
+        this.projectEventStream = projectEventStream;
+        this.projectMemberRepository = projectMemberRepository;
+        this.jwtService = jwtService;
+    }
+
+    @Operation(summary = "Issue a short-lived token that opens the project's event stream from a browser EventSource")
+    @PostMapping("/token")
+    public ResponseEntity<StreamToken> issueStreamToken(@PathVariable Long projectId, Authentication auth) {
+        if (!projectMemberRepository.existsByUserEmailAndProjectId(auth.getName(), projectId)) {
+            throw new ResourceNotFoundException("Project not found");
+        }
+
+        AuthenticatedUser user = (AuthenticatedUser) auth.getPrincipal();
+        return ResponseEntity.ok(new StreamToken(
+                jwtService.generateStreamToken(user, projectId), jwtService.getStreamExpiration()));
+    }
+
+    /**
+     * Opens the stream. Besides the bearer header this accepts a token from
+     * {@link #issueStreamToken} in the {@code access_token} query parameter. An
+     * {@code EventSource} resends {@code Last-Event-ID} when it reconnects by
+     * itself, but its URL and so its token stay the same; once the token has
+     * expired the client fetches a new one and opens a new stream, passing the
+     * last id it saw as {@code lastEventId}.
+     */
+    @Operation(summary = "Stream the project's task, comment and member events as Server-Sent Events, resuming after Last-Event-ID")
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @PathVariable Long projectId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) Long lastEventIdParam,
+            Authentication auth) {
+        if (!projectMemberRepository.existsByUserEmailAndProjectId(auth.getName(), projectId)) {
+            throw new ResourceNotFoundException("Project not found");
+        }
+
+        Long lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        return projectEventStream.open(projectId, auth.getName(), lastEventId);
+    }
+}
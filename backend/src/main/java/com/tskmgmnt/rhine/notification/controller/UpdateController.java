@@ -1,9 +1,11 @@
 package com.tskmgmnt.rhine.notification.controller;
 
+import com.tskmgmnt.rhine.notification.dto.UpdateFeedPage;
 import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
 import com.tskmgmnt.rhine.notification.service.UpdateService;
 import com.tskmgmnt.rhine.user.entity.User;
 import com.tskmgmnt.rhine.user.repository.UserRepository;
+import com.tskmgmnt.rhine.core.exception.BadRequestException;
 import com.tskmgmnt.rhine.core.exception.ResourceNotFoundException;
 import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
 import io.swagger.v3.oas.annotations.Operation;
@@ -22,6 +24,8 @@ import java.util.Map;
 @SecurityRequirement(name = "bearerAuth")
 public class UpdateController {
 
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+
     private final UpdateService updateService;
     private final ProjectMemberRepository projectMemberRepository;
 
@@ -41,7 +45,34 @@ public class UpdateController {
         return ResponseEntity.ok(updates);
     }
 
-    @Operation(summary = "Mark a list of specific updates as read")
+    @Operation(summary = "Get one page of the requesting user's update feed, newest first")
+    @GetMapping("/feed")
+    public ResponseEntity<UpdateFeedPage> getUpdateFeed(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication auth) {
+        if (!projectMemberRepository.existsByUserEmailAndProjectId(auth.getName(), projectId)) {
+            throw new ResourceNotFoundException("Project not found");
+        }
+        if (limit < 1 || limit > MAX_FEED_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_FEED_PAGE_SIZE);
+        }
+
+        return ResponseEntity.ok(updateService.getUpdateFeed(auth.getName(), projectId, before, limit));
+    }
+
+    @Operation(summary = "Get the number of unread updates for the requesting user in a specific project")
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Integer>> getUnreadCount(@PathVariable Long projectId, Authentication auth) {
+        if (!projectMemberRepository.existsByUserEmailAndProjectId(auth.getName(), projectId)) {
+            throw new ResourceNotFoundException("Project not found");
+        }
+
+        return ResponseEntity.ok(Map.of("count", updateService.getUnreadCount(auth.getName(), projectId)));
+    }
+
+    @Operation(summary = "Mark a list of specific updates as read, e.g. when read out of order")
     @PostMapping("/read")
     public ResponseEntity<Void> markUpdatesAsRead(
             @PathVariable Long projectId,
@@ -54,9 +85,23 @@ public class UpdateController {
                 
         List<Long> updateIds = request.get("updateIds");
         if (updateIds != null && !updateIds.isEmpty()) {
-            updateService.markUpdatesAsRead(updateIds, auth.getName());
+            updateService.markUpdatesAsRead(projectId, updateIds, auth.getName());
         }
         
         return ResponseEntity.ok().build();
     }
+
+    @Operation(summary = "Mark every update in a specific project as read, up to the newest one the client displayed")
+    @PostMapping("/read-all")
+    public ResponseEntity<Void> markAllUpdatesAsRead(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) Long upTo,
+            Authentication auth) {
+        if (!projectMemberRepository.existsByUserEmailAndProjectId(auth.getName(), projectId)) {
+            throw new ResourceNotFoundException("Project not found");
+        }
+
+        updateService.markAllUpdatesAsRead(projectId, auth.getName(), upTo);
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,73 @@
+package com.tskmgmnt.rhine.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public class EventReplay {
+
+    @Schema(description = "Project the replay belongs to")
+    private Long projectId;
+
+    @Schema(description = "Sequence number of the newest frame sent on the project's topics")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private long latestSeq;
+
+    @Schema(description = "False when some missed frames are no longer held and the client must refetch")
+    private boolean complete;
+
+    @Schema(description = "Missed frames, oldest first")
+    private List<Frame> frames;
+
+    public EventReplay() {}
+
+    public EventReplay(Long projectId, long latestSeq, boolean complete, List<Frame> frames) {
+        this.projectId = projectId;
+        this.latestSeq = latestSeq;
+        this.complete = complete;
+        this.frames = frames;
+    }
+
+    public Long getProjectId() { return projectId; }
+    public void setProjectId(Long projectId) { this.projectId = projectId; }
+
+    public long getLatestSeq() { return latestSeq; }
+    public void setLatestSeq(long latestSeq) { this.latestSeq = latestSeq; }
+
+    public boolean isComplete() { return complete; }
+    public void setComplete(boolean complete) { this.complete = complete; }
+
+    public List<Frame> getFrames() { return frames; }
+    public void setFrames(List<Frame> frames) { this.frames = frames; }
+
+    public static class Frame {
+
+        @Schema(description = "Sequence number of the frame")
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        private long seq;
+
+        @Schema(description = "Topic suffix the frame was sent on", example = "task-updated")
+        private String event;
+
+        @Schema(description = "Events carried by the frame")
+        private List<Object> payloads;
+
+        public Frame() {}
+
+        public Frame(long seq, String event, List<Object> payloads) {
+            this.seq = seq;
+            this.event = event;
+            this.payloads = payloads;
+        }
+
+        public long getSeq() { return seq; }
+        public void setSeq(long seq) { this.seq = seq; }
+
+        public String getEvent() { return event; }
+        public void setEvent(String event) { this.event = event; }
+
+        public List<Object> getPayloads() { return payloads; }
+        public void setPayloads(List<Object> payloads) { this.payloads = payloads; }
+    }
+}
@@ -0,0 +1,14 @@
+package com.tskmgmnt.rhine.notification.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class ResyncRequest {
+
+    @Schema(description = "Sequence number of the last frame the client processed; omit on first subscribe")
+    private Long lastSeq;
+
+    public ResyncRequest() {}
+
+    public Long getLastSeq() { return lastSeq; }
+    public void setLastSeq(Long lastSeq) { this.lastSeq = lastSeq; }
+}
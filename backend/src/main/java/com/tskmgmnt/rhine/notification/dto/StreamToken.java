@@ -0,0 +1,25 @@
+package com.tskmgmnt.rhine.notification.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public class StreamToken {
+
+    @Schema(description = "Token to pass as the access_token query parameter when opening the project's event stream")
+    private String token;
+
+    @Schema(description = "Milliseconds until the token can no longer open a stream; an open stream is not affected")
+    private long expiresIn;
+
+    public StreamToken() {}
+
+    public StreamToken(String token, long expiresIn) {
+        this.token = token;
+        this.expiresIn = expiresIn;
+    }
+
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+
+    public long getExpiresIn() { return expiresIn; }
+    public void setExpiresIn(long expiresIn) { this.expiresIn = expiresIn; }
+}
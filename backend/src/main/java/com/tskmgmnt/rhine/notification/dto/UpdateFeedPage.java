@@ -0,0 +1,30 @@
+package com.tskmgmnt.rhine.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public class UpdateFeedPage {
+
+    @Schema(description = "Updates on this page, newest first")
+    private List<ProjectUpdate> items;
+
+    @Schema(description = "Pass as 'before' to fetch the next page; null when there are no older updates")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Long nextCursor;
+
+    public UpdateFeedPage() {}
+
+    public UpdateFeedPage(List<ProjectUpdate> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ProjectUpdate> getItems() { return items; }
+    public void setItems(List<ProjectUpdate> items) { this.items = items; }
+
+    public Long getNextCursor() { return nextCursor; }
+    public void setNextCursor(Long nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,66 @@
+package com.tskmgmnt.rhine.notification.entity;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One run of the daily digest, covering activity from {@code windowStart} up to
+ * {@code windowEnd}. The unique {@code runDate} lets only one replica run it.
+ */
+@Entity
+@Table(name = "digest_runs")
+public class DigestRun {
+
+    @Id
+    @GeneratedValue(generator = "tsid-generator")
+    @GenericGenerator(name = "tsid-generator", type = TsidGenerator.class)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private LocalDate runDate;
+
+    @Column(nullable = false)
+    private Instant windowStart;
+
+    @Column(nullable = false)
+    private Instant windowEnd;
+
+    private Instant startedAt = Instant.now();
+    private Instant finishedAt;
+    private int usersScanned;
+    private int digestsQueued;
+
+    public DigestRun() {}
+
+    public DigestRun(LocalDate runDate, Instant windowStart, Instant windowEnd) {
+        this.runDate = runDate;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.startedAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDate getRunDate() { return runDate; }
+    public void setRunDate(LocalDate runDate) { this.runDate = runDate; }
+    public Instant getWindowStart() { return windowStart; }
+    public void setWindowStart(Instant windowStart) { this.windowStart = windowStart; }
+    public Instant getWindowEnd() { return windowEnd; }
+    public void setWindowEnd(Instant windowEnd) { this.windowEnd = windowEnd; }
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+    public int getUsersScanned() { return usersScanned; }
+    public void setUsersScanned(int usersScanned) { this.usersScanned = usersScanned; }
+    public int getDigestsQueued() { return digestsQueued; }
+    public void setDigestsQueued(int digestsQueued) { this.digestsQueued = digestsQueued; }
+}
@@ -0,0 +1,68 @@
+package com.tskmgmnt.rhine.notification.entity;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.Instant;
+
+/**
+ * A WebSocket event recorded in the same transaction as the change it describes.
+ * Either {@code projectId} names the project whose topic {@code event} is sent on,
+ * or {@code userEmail} names the recipient of the personal queue {@code event}.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_project", columnList = "project_id, id")
+})
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(generator = "tsid-generator")
+    @GenericGenerator(name = "tsid-generator", type = TsidGenerator.class)
+    private Long id;
+
+    private Long projectId;
+    private String userEmail;
+
+    @Column(nullable = false)
+    private String event;
+
+    private String entityKey;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    private Instant createdAt = Instant.now();
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(Long projectId, String userEmail, String event, String entityKey, String payload) {
+        this.projectId = projectId;
+        this.userEmail = userEmail;
+        this.event = event;
+        this.entityKey = entityKey;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getProjectId() { return projectId; }
+    public void setProjectId(Long projectId) { this.projectId = projectId; }
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+    public String getEvent() { return event; }
+    public void setEvent(String event) { this.event = event; }
+    public String getEntityKey() { return entityKey; }
+    public void setEntityKey(String entityKey) { this.entityKey = entityKey; }
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
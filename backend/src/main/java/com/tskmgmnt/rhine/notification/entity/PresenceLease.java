@@ -0,0 +1,65 @@
+package com.tskmgmnt.rhine.notification.entity;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.Instant;
+
+/**
+ * A user looking at a project through a session held by one node. Each node
+ * renews its own leases while the sessions last; a lease that is not renewed
+ * (the node died) stops counting once {@code expiresAt} passes.
+ */
+@Entity
+@Table(name = "presence_leases", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"node_id", "project_id", "user_email"})
+}, indexes = {
+        @Index(name = "idx_presence_leases_project", columnList = "project_id, expires_at"),
+        @Index(name = "idx_presence_leases_expiry", columnList = "expires_at")
+})
+public class PresenceLease {
+
+    @Id
+    @GeneratedValue(generator = "tsid-generator")
+    @GenericGenerator(name = "tsid-generator", type = TsidGenerator.class)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false, length = 36)
+    private String nodeId;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public PresenceLease() {}
+
+    public PresenceLease(String nodeId, Long projectId, String userEmail, Instant expiresAt) {
+        this.nodeId = nodeId;
+        this.projectId = projectId;
+        this.userEmail = userEmail;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    public Long getProjectId() { return projectId; }
+    public void setProjectId(Long projectId) { this.projectId = projectId; }
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -1,10 +1,12 @@
 package com.tskmgmnt.rhine.notification.entity;
 
 import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import org.hibernate.annotations.GenericGenerator;
 
@@ -12,7 +14,10 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import java.time.Instant;
 
 @Entity
-@Table(name = "project_updates")
+@Table(name = "project_updates", indexes = {
+        @Index(name = "idx_project_updates_feed", columnList = "project_id, user_email, id"),
+        @Index(name = "idx_project_updates_user", columnList = "user_email, id")
+})
 public class ProjectUpdate {
 
     @Id
@@ -25,6 +30,10 @@ public class ProjectUpdate {
     private Long projectId;
     private String userEmail;
     private String message;
+    // Derived from the user's UpdateReadMarker when the feed is served. The
+    // legacy NOT NULL column stays mapped so inserts satisfy it, but it is
+    // always written as false and never updated from the serve-time value.
+    @Column(name = "is_read", nullable = false, updatable = false)
     private boolean isRead = false;
     private Instant createdAt = Instant.now();
 
@@ -34,7 +43,6 @@ public class ProjectUpdate {
         this.projectId = projectId;
         this.userEmail = userEmail;
         this.message = message;
-        this.isRead = false;
         this.createdAt = Instant.now();
     }
 
@@ -0,0 +1,63 @@
+package com.tskmgmnt.rhine.notification.entity;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Read state of one user's update feed in one project.
+ * <p>
+ * Every update with an id up to {@code readUpTo} is read. Updates read out of
+ * order above the watermark are kept in the sparse {@code readAbove} set until
+ * the watermark catches up with them.
+ */
+@Entity
+@Table(name = "update_read_markers", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"user_email", "project_id"})
+})
+public class UpdateReadMarker {
+
+    @Id
+    @GeneratedValue(generator = "tsid-generator")
+    @GenericGenerator(name = "tsid-generator", type = TsidGenerator.class)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Column(nullable = false)
+    private long readUpTo;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "update_read_exceptions", joinColumns = @JoinColumn(name = "marker_id"))
+    @Column(name = "update_id", nullable = false)
+    private Set<Long> readAbove = new HashSet<>();
+
+    public UpdateReadMarker() {}
+
+    public UpdateReadMarker(String userEmail, Long projectId) {
+        this.userEmail = userEmail;
+        this.projectId = projectId;
+    }
+
+    public boolean isRead(long updateId) {
+        return updateId <= readUpTo || readAbove.contains(updateId);
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+    public Long getProjectId() { return projectId; }
+    public void setProjectId(Long projectId) { this.projectId = projectId; }
+    public long getReadUpTo() { return readUpTo; }
+    public void setReadUpTo(long readUpTo) { this.readUpTo = readUpTo; }
+    public Set<Long> getReadAbove() { return readAbove; }
+    public void setReadAbove(Set<Long> readAbove) { this.readAbove = readAbove; }
+}
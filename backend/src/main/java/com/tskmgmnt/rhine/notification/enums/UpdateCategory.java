@@ -0,0 +1,26 @@
+package com.tskmgmnt.rhine.notification.enums;
+
+/**
+ * Kinds of project update that can be merged into one digest when several reach
+ * the same recipient within the coalescing window.
+ */
+public enum UpdateCategory {
+    ASSIGNED("You were assigned to %2$d tasks"),
+    UNASSIGNED("You were unassigned from %2$d tasks"),
+    STATUS_CHANGED("%1$s changed the status of %2$d tasks"),
+    GENERAL(null);
+
+    private final String digestFormat;
+
+    UpdateCategory(String digestFormat) {
+        this.digestFormat = digestFormat;
+    }
+
+    public boolean isCoalescable() {
+        return digestFormat != null;
+    }
+
+    public String digest(String actor, int count) {
+        return String.format(digestFormat, actor, count);
+    }
+}
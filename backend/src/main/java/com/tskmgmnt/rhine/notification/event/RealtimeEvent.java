@@ -0,0 +1,52 @@
+package com.tskmgmnt.rhine.notification.event;
+
+/**
+ * Application event for a WebSocket message caused by a data change. Either
+ * {@code projectId} names the project topic {@code event} is sent on, or
+ * {@code userEmail} names the recipient of the personal queue {@code event}
+ * (with {@code projectId} kept for bookkeeping).
+ * <p>
+ * The outbox id is filled in when the event is recorded, just before the
+ * surrounding transaction commits.
+ */
+public class RealtimeEvent {
+
+    private final Long projectId;
+    private final String userEmail;
+    private final String event;
+    private final String entityKey;
+    private final Object payload;
+    private Long outboxId;
+    private long committedAtNanos;
+
+    private RealtimeEvent(Long projectId, String userEmail, String event, Object entityKey, Object payload) {
+        this.projectId = projectId;
+        this.userEmail = userEmail;
+        this.event = event;
+        // Keys read back from the outbox are strings; use the same form here so they still merge.
+        this.entityKey = entityKey != null ? String.valueOf(entityKey) : null;
+        this.payload = payload;
+    }
+
+    public static RealtimeEvent toProject(Long projectId, String event, Object entityKey, Object payload) {
+        return new RealtimeEvent(projectId, null, event, entityKey, payload);
+    }
+
+    public static RealtimeEvent toUser(String userEmail, Long projectId, String queue, Object payload) {
+        return new RealtimeEvent(projectId, userEmail.toLowerCase(), queue, null, payload);
+    }
+
+    public boolean isForUser() { return userEmail != null; }
+
+    public Long getProjectId() { return projectId; }
+    public String getUserEmail() { return userEmail; }
+    public String getEvent() { return event; }
+    public String getEntityKey() { return entityKey; }
+    public Object getPayload() { return payload; }
+
+    public Long getOutboxId() { return outboxId; }
+    public void setOutboxId(Long outboxId) { this.outboxId = outboxId; }
+
+    public long getCommittedAtNanos() { return committedAtNanos; }
+    public void setCommittedAtNanos(long committedAtNanos) { this.committedAtNanos = committedAtNanos; }
+}
@@ -0,0 +1,14 @@
+package com.tskmgmnt.rhine.notification.repository;
+
+import com.tskmgmnt.rhine.notification.entity.DigestRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DigestRunRepository extends JpaRepository<DigestRun, Long> {
+
+    /** The latest run that got to the end; a run that died part way is covered again by the next. */
+    Optional<DigestRun> findFirstByFinishedAtIsNotNullOrderByWindowEndDesc();
+}
@@ -0,0 +1,23 @@
+package com.tskmgmnt.rhine.notification.repository;
+
+import com.tskmgmnt.rhine.notification.entity.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /** Ids only, so re-reading the lag window does not drag every payload along. */
+    @Query("SELECT o.id FROM OutboxEvent o WHERE o.id > :after ORDER BY o.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Limit limit);
+
+    List<OutboxEvent> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    List<OutboxEvent> findByProjectIdAndUserEmailIsNullAndIdGreaterThanOrderByIdAsc(Long projectId, Long after, Limit limit);
+}
@@ -0,0 +1,43 @@
+package com.tskmgmnt.rhine.notification.repository;
+
+import com.tskmgmnt.rhine.notification.entity.PresenceLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PresenceLeaseRepository extends JpaRepository<PresenceLease, Long> {
+
+    /** (projectId, userEmail) pairs held live by other nodes. */
+    @Query("SELECT p.projectId, p.userEmail FROM PresenceLease p " +
+            "WHERE p.projectId IN :projectIds AND p.nodeId <> :nodeId AND p.expiresAt > :now")
+    List<Object[]> findLiveElsewhere(@Param("projectIds") Collection<Long> projectIds,
+                                     @Param("nodeId") String nodeId, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PresenceLease p SET p.expiresAt = :expiresAt WHERE p.nodeId = :nodeId")
+    int renew(@Param("nodeId") String nodeId, @Param("expiresAt") Instant expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PresenceLease p WHERE p.nodeId = :nodeId AND p.projectId = :projectId AND p.userEmail = :userEmail")
+    int release(@Param("nodeId") String nodeId, @Param("projectId") Long projectId, @Param("userEmail") String userEmail);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PresenceLease p WHERE p.nodeId = :nodeId")
+    int releaseAll(@Param("nodeId") String nodeId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PresenceLease p WHERE p.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -1,13 +1,14 @@
 package com.tskmgmnt.rhine.notification.repository;
 
 import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,13 +16,32 @@ public interface ProjectUpdateRepository extends JpaRepository<ProjectUpdate, Lo
 
     List<ProjectUpdate> findByProjectIdAndUserEmailOrderByCreatedAtDesc(Long projectId, String userEmail);
 
-    @Modifying
-    @Query("UPDATE ProjectUpdate p SET p.isRead = true WHERE p.id IN :updateIds AND p.userEmail = :userEmail")
-    void markAsRead(@Param("updateIds") List<Long> updateIds, @Param("userEmail") String userEmail);
+    List<ProjectUpdate> findByProjectIdAndUserEmailOrderByIdDesc(Long projectId, String userEmail, Limit limit);
 
-    @Modifying
-    @Query("DELETE FROM ProjectUpdate p WHERE p.createdAt < :cutoffDate")
-    void deleteOlderThan(@Param("cutoffDate") LocalDateTime cutoffDate);
+    List<ProjectUpdate> findByProjectIdAndUserEmailAndIdLessThanOrderByIdDesc(Long projectId, String userEmail, Long before, Limit limit);
+
+    long countByProjectIdAndUserEmailAndIdGreaterThan(Long projectId, String userEmail, Long after);
+
+    long countByProjectIdAndUserEmailAndIdGreaterThanAndIdNotIn(Long projectId, String userEmail, Long after, Collection<Long> excluded);
+
+    @Query("SELECT MAX(p.id) FROM ProjectUpdate p WHERE p.projectId = :projectId AND p.userEmail = :userEmail")
+    Long findMaxId(@Param("projectId") Long projectId, @Param("userEmail") String userEmail);
+
+    @Query("SELECT p.id FROM ProjectUpdate p WHERE p.projectId = :projectId AND p.userEmail = :userEmail " +
+            "AND p.id > :after ORDER BY p.id ASC")
+    List<Long> findIdsAfter(@Param("projectId") Long projectId, @Param("userEmail") String userEmail,
+                            @Param("after") Long after, Limit limit);
+
+    @Query("SELECT p.id FROM ProjectUpdate p WHERE p.projectId = :projectId AND p.userEmail = :userEmail " +
+            "AND p.id > :after AND p.id IN :ids")
+    List<Long> findOwnIdsAfter(@Param("projectId") Long projectId, @Param("userEmail") String userEmail,
+                               @Param("after") Long after, @Param("ids") Collection<Long> ids);
+
+    /** Every update for these users with an id in {@code [fromId, toId)}, newest first per user. */
+    @Query("SELECT p FROM ProjectUpdate p WHERE p.userEmail IN :emails AND p.id >= :fromId AND p.id < :toId " +
+            "ORDER BY p.userEmail, p.id DESC")
+    List<ProjectUpdate> findForDigest(@Param("emails") Collection<String> emails,
+                                      @Param("fromId") Long fromId, @Param("toId") Long toId);
 
     @Modifying
     @Query("DELETE FROM ProjectUpdate p WHERE p.projectId = :projectId AND p.userEmail = :userEmail")
@@ -0,0 +1,37 @@
+package com.tskmgmnt.rhine.notification.repository;
+
+import com.tskmgmnt.rhine.notification.entity.UpdateReadMarker;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UpdateReadMarkerRepository extends JpaRepository<UpdateReadMarker, Long> {
+
+    Optional<UpdateReadMarker> findByUserEmailAndProjectId(String userEmail, Long projectId);
+
+    /** Markers of many users at once, with their exceptions fetched in the same query. */
+    @Query("SELECT DISTINCT m FROM UpdateReadMarker m LEFT JOIN FETCH m.readAbove WHERE m.userEmail IN :emails")
+    List<UpdateReadMarker> findAllByUserEmailIn(@Param("emails") Collection<String> emails);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM UpdateReadMarker m WHERE m.userEmail = :userEmail AND m.projectId = :projectId")
+    Optional<UpdateReadMarker> findForUpdate(@Param("userEmail") String userEmail, @Param("projectId") Long projectId);
+
+    @Modifying
+    @Query(value = "DELETE FROM update_read_exceptions WHERE marker_id IN " +
+            "(SELECT id FROM update_read_markers WHERE user_email = :userEmail AND project_id = :projectId)", nativeQuery = true)
+    void deleteExceptions(@Param("userEmail") String userEmail, @Param("projectId") Long projectId);
+
+    @Modifying
+    @Query("DELETE FROM UpdateReadMarker m WHERE m.userEmail = :userEmail AND m.projectId = :projectId")
+    void deleteMarker(@Param("userEmail") String userEmail, @Param("projectId") Long projectId);
+}
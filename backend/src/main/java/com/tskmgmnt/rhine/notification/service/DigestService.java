@@ -0,0 +1,355 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.comment.repository.CommentRepository;
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import com.tskmgmnt.rhine.core.entity.OutboundMail;
+import com.tskmgmnt.rhine.core.service.MailOutbox;
+import com.tskmgmnt.rhine.core.service.TemplateRenderer;
+import com.tskmgmnt.rhine.notification.entity.DigestRun;
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import com.tskmgmnt.rhine.notification.entity.UpdateReadMarker;
+import com.tskmgmnt.rhine.notification.repository.DigestRunRepository;
+import com.tskmgmnt.rhine.notification.repository.ProjectUpdateRepository;
+import com.tskmgmnt.rhine.notification.repository.UpdateReadMarkerRepository;
+import com.tskmgmnt.rhine.project.repository.ProjectRepository;
+import com.tskmgmnt.rhine.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Emails each user a daily summary of the project updates and comments they
+ * have not read, for those who were not online to see them arrive.
+ * <p>
+ * A run covers activity since the end of the last run that finished, so a day
+ * the job missed is picked up by the next. Only one replica runs on a given
+ * day: the run is claimed by inserting its {@link DigestRun} row.
+ * <p>
+ * Users with activity are paged through in email order with keyset queries,
+ * {@code page-size} at a time, and each page's updates, read markers, comments
+ * and project names are loaded in one query apiece. The digests of a page are
+ * rendered on a {@link ForkJoinPool} of {@code render-parallelism} threads while
+ * the next page loads, then queued in the {@link MailOutbox} in one batch.
+ */
+@Service
+public class DigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DigestService.class);
+
+    private final UserRepository userRepository;
+    private final ProjectUpdateRepository projectUpdateRepository;
+    private final UpdateReadMarkerRepository updateReadMarkerRepository;
+    private final CommentRepository commentRepository;
+    private final ProjectRepository projectRepository;
+    private final DigestRunRepository digestRunRepository;
+    private final TemplateRenderer templateRenderer;
+    private final MailOutbox mailOutbox;
+
+    private final boolean enabled;
+    private final int pageSize;
+    private final int renderParallelism;
+    private final int maxItems;
+    private final Duration lookback;
+    private final Duration maxLookback;
+    private final Duration safetyLag;
+
+    @Value("${application.frontend.url}")
+    private String frontendUrl;
+
+    private final Timer runTimer;
+    private final Timer renderTimer;
+    private final Counter usersCounter;
+    private final Counter queuedCounter;
+    private final Counter failedCounter;
+    private final AtomicLong lastRunRate = new AtomicLong();
+
+    public DigestService(UserRepository userRepository,
+                         ProjectUpdateRepository projectUpdateRepository,
+                         UpdateReadMarkerRepository updateReadMarkerRepository,
+                         CommentRepository commentRepository,
+                         ProjectRepository projectRepository,
+                         DigestRunRepository digestRunRepository,
+                         TemplateRenderer templateRenderer,
+                         MailOutbox mailOutbox,
+                         MeterRegistry meterRegistry,
+                         @Value("${application.digest.enabled:true}") boolean enabled,
+                         @Value("${application.digest.page-size:500}") int pageSize,
+                         @Value("${application.digest.render-parallelism:0}") int renderParallelism,
+                         @Value("${application.digest.max-items-per-project:5}") int maxItems,
+                         @Value("${application.digest.lookback:24h}") Duration lookback,
+                         @Value("${application.digest.max-lookback:7d}") Duration maxLookback,
+                         @Value("${application.digest.safety-lag:1m}") Duration safetyLag) {
+        this.userRepository = userRepository;
+        this.projectUpdateRepository = projectUpdateRepository;
+        this.updateReadMarkerRepository = updateReadMarkerRepository;
+        this.commentRepository = commentRepository;
+        this.projectRepository = projectRepository;
+        this.digestRunRepository = digestRunRepository;
+        this.templateRenderer = templateRenderer;
+        this.mailOutbox = mailOutbox;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.renderParallelism = renderParallelism > 0 ? renderParallelism : Runtime.getRuntime().availableProcessors();
+        this.maxItems = maxItems;
+        this.lookback = lookback;
+        this.maxLookback = maxLookback;
+        this.safetyLag = safetyLag;
+
+        this.runTimer = Timer.builder("rhine.digest.run.duration")
+                .description("Time taken by a digest run")
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("rhine.digest.render.duration")
+                .description("Time to render one digest")
+                .register(meterRegistry);
+        this.usersCounter = Counter.builder("rhine.digest.users")
+                .description("Users with unread activity looked at by digest runs")
+                .register(meterRegistry);
+        this.queuedCounter = Counter.builder("rhine.digest.queued")
+                .description("Digests queued for delivery")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("rhine.digest.failed")
+                .description("Digests that could not be rendered")
+                .register(meterRegistry);
+        Gauge.builder("rhine.digest.last-run.rate", lastRunRate, AtomicLong::get)
+                .description("Digests queued per second in the last run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${application.digest.cron:0 0 7 * * ?}")
+    public void sendDailyDigests() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        DigestRun run = claim(now);
+        if (run == null) {
+            logger.info("Digest for {} already taken by another node", LocalDate.ofInstant(now, ZoneOffset.UTC));
+            return;
+        }
+        runTimer.record(() -> send(run));
+    }
+
+    private DigestRun claim(Instant now) {
+        Instant end = now.minus(safetyLag);
+        Instant start = digestRunRepository.findFirstByFinishedAtIsNotNullOrderByWindowEndDesc()
+                .map(DigestRun::getWindowEnd)
+                .orElse(end.minus(lookback));
+        Instant earliest = end.minus(maxLookback);
+        if (start.isBefore(earliest)) {
+            start = earliest;
+        }
+        try {
+            return digestRunRepository.saveAndFlush(new DigestRun(LocalDate.ofInstant(now, ZoneOffset.UTC), start, end));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    private void send(DigestRun run) {
+        long startNanos = System.nanoTime();
+        Window window = new Window(run.getWindowStart(), run.getWindowEnd());
+        int scanned = 0;
+        int queued = 0;
+
+        try (ForkJoinPool pool = new ForkJoinPool(renderParallelism)) {
+            Page page = loadPage("", window);
+            while (page != null) {
+                List<Future<OutboundMail>> rendering = new ArrayList<>(page.users.size());
+                for (Map.Entry<String, String> user : page.users.entrySet()) {
+                    Page current = page;
+                    rendering.add(pool.submit(() -> render(user.getKey(), user.getValue(), current)));
+                }
+                // The database works on the next page while this one renders.
+                Page next = page.last != null ? loadPage(page.last, window) : null;
+
+                List<OutboundMail> batch = new ArrayList<>(rendering.size());
+                for (Future<OutboundMail> future : rendering) {
+                    OutboundMail mail = join(future);
+                    if (mail != null) {
+                        batch.add(mail);
+                    }
+                }
+                mailOutbox.enqueueAll(batch);
+
+                scanned += page.users.size();
+                queued += batch.size();
+                usersCounter.increment(page.users.size());
+                queuedCounter.increment(batch.size());
+                page = next;
+            }
+        }
+
+        Duration took = Duration.ofNanos(System.nanoTime() - startNanos);
+        long rate = took.toMillis() > 0 ? queued * 1000L / took.toMillis() : queued;
+        lastRunRate.set(rate);
+        run.setUsersScanned(scanned);
+        run.setDigestsQueued(queued);
+        run.setFinishedAt(Instant.now());
+        digestRunRepository.save(run);
+        logger.info("Digest run covering {} to {}: {} users, {} digests queued in {} ms ({}/s)",
+                window.from, window.to, scanned, queued, took.toMillis(), rate);
+    }
+
+    private OutboundMail join(Future<OutboundMail> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Digest run interrupted", e);
+        } catch (ExecutionException e) {
+            failedCounter.increment();
+            logger.error("Failed to render digest: {}", e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Builds one user's digest from the page's preloaded rows.
+     *
+     * @return the message, or {@code null} if everything in the window has been read since
+     */
+    private OutboundMail render(String email, String name, Page page) {
+        Map<Long, ProjectSection> sections = new LinkedHashMap<>();
+        Map<Long, UpdateReadMarker> markers = page.markers.getOrDefault(email, Map.of());
+        for (ProjectUpdate update : page.updates.getOrDefault(email, List.of())) {
+            UpdateReadMarker marker = markers.get(update.getProjectId());
+            if (marker == null || !marker.isRead(update.getId())) {
+                sections.computeIfAbsent(update.getProjectId(), ProjectSection::new).addUpdate(update.getMessage(), maxItems);
+            }
+        }
+        for (Object[] comment : page.comments.getOrDefault(email, List.of())) {
+            sections.computeIfAbsent((Long) comment[1], ProjectSection::new).addComment(
+                    new CommentLine((String) comment[2], (String) comment[3], (String) comment[4]), maxItems);
+        }
+        if (sections.isEmpty()) {
+            return null;
+        }
+
+        return renderTimer.record(() -> {
+            List<ProjectDigest> projects = new ArrayList<>(sections.size());
+            for (ProjectSection section : sections.values()) {
+                projects.add(section.toDigest(page.projectNames.getOrDefault(section.projectId, "Project")));
+            }
+            String html = templateRenderer.render("digest-email", Map.of(
+                    "name", name,
+                    "projects", projects,
+                    "appLink", frontendUrl));
+            return new OutboundMail("digest", email, "Your Rhine daily summary", html);
+        });
+    }
+
+    /** One page of users and everything needed to render their digests. */
+    private Page loadPage(String after, Window window) {
+        List<Object[]> rows = userRepository.findDigestRecipients(after, window.fromId, window.toId,
+                window.from, window.to, Limit.of(pageSize));
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Map<String, String> users = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            users.put((String) row[0], (String) row[1]);
+        }
+        Set<String> emails = users.keySet();
+
+        Map<String, List<ProjectUpdate>> updates = new HashMap<>();
+        Set<Long> projectIds = new HashSet<>();
+        for (ProjectUpdate update : projectUpdateRepository.findForDigest(emails, window.fromId, window.toId)) {
+            updates.computeIfAbsent(update.getUserEmail(), k -> new ArrayList<>()).add(update);
+            projectIds.add(update.getProjectId());
+        }
+
+        Map<String, Map<Long, UpdateReadMarker>> markers = new HashMap<>();
+        for (UpdateReadMarker marker : updateReadMarkerRepository.findAllByUserEmailIn(emails)) {
+            markers.computeIfAbsent(marker.getUserEmail(), k -> new HashMap<>()).put(marker.getProjectId(), marker);
+        }
+
+        Map<String, List<Object[]>> comments = new HashMap<>();
+        for (Object[] comment : commentRepository.findUnreadForDigest(emails, window.from, window.to)) {
+            comments.computeIfAbsent((String) comment[0], k -> new ArrayList<>()).add(comment);
+            projectIds.add((Long) comment[1]);
+        }
+
+        Map<Long, String> projectNames = new HashMap<>();
+        if (!projectIds.isEmpty()) {
+            for (Object[] project : projectRepository.findNamesByIdIn(projectIds)) {
+                projectNames.put((Long) project[0], (String) project[1]);
+            }
+        }
+
+        String last = rows.size() == pageSize ? (String) rows.get(rows.size() - 1)[0] : null;
+        return new Page(users, updates, markers, comments, projectNames, last);
+    }
+
+    private record Window(Instant from, Instant to, long fromId, long toId) {
+        Window(Instant from, Instant to) {
+            this(from, to, TsidGenerator.floorOf(from.toEpochMilli()), TsidGenerator.floorOf(to.toEpochMilli()));
+        }
+    }
+
+    /** {@code last} is the key to continue after, or {@code null} on the final page. */
+    private record Page(Map<String, String> users,
+                        Map<String, List<ProjectUpdate>> updates,
+                        Map<String, Map<Long, UpdateReadMarker>> markers,
+                        Map<String, List<Object[]>> comments,
+                        Map<Long, String> projectNames,
+                        String last) {}
+
+    public record CommentLine(String taskTitle, String author, String content) {}
+
+    public record ProjectDigest(String name, int unreadUpdates, List<String> updates,
+                                int unreadComments, List<CommentLine> comments) {}
+
+    /** Counts every unread item but keeps only the newest {@code maxItems} of each kind. */
+    private static final class ProjectSection {
+
+        private final Long projectId;
+        private final List<String> updates = new ArrayList<>();
+        private final List<CommentLine> comments = new ArrayList<>();
+        private int unreadUpdates;
+        private int unreadComments;
+
+        ProjectSection(Long projectId) {
+            this.projectId = projectId;
+        }
+
+        void addUpdate(String message, int maxItems) {
+            if (unreadUpdates++ < maxItems) {
+                updates.add(message);
+            }
+        }
+
+        void addComment(CommentLine comment, int maxItems) {
+            if (unreadComments++ < maxItems) {
+                comments.add(comment);
+            }
+        }
+
+        ProjectDigest toDigest(String name) {
+            return new ProjectDigest(name, unreadUpdates, updates, unreadComments, comments);
+        }
+    }
+}
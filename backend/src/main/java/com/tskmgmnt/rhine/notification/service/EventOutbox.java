@@ -0,0 +1,152 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.f4b6a3.tsid.Tsid;
+import com.tskmgmnt.rhine.notification.dto.EventReplay;
+import com.tskmgmnt.rhine.notification.entity.OutboxEvent;
+import com.tskmgmnt.rhine.notification.event.RealtimeEvent;
+import com.tskmgmnt.rhine.notification.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point for WebSocket events caused by data changes. Each event is
+ * published as a {@link RealtimeEvent} and recorded as an {@link OutboxEvent}
+ * row just before the caller's transaction commits, so it is only ever sent
+ * for committed changes. Once committed, {@link LocalEventDelivery} sends it to
+ * this node's sessions off the request thread, and {@link OutboxRelay} on every
+ * other node picks the row up for theirs.
+ */
+@Service
+public class EventOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int maxReplayFrames;
+    private final Duration retention;
+
+    private final Counter writtenCounter;
+    private final Counter replayedCounter;
+    private final Counter resetCounter;
+
+    public EventOutbox(OutboxEventRepository outboxEventRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${application.websocket.replay.frames-per-project:128}") int maxReplayFrames,
+                       @Value("${application.retention.outbox.max-age:1h}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.maxReplayFrames = maxReplayFrames;
+        this.retention = retention;
+
+        this.writtenCounter = Counter.builder("rhine.outbox.written")
+                .description("Events recorded in the outbox")
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("rhine.events.replay.outbox")
+                .description("Resync requests answered from the outbox")
+                .register(meterRegistry);
+        this.resetCounter = Counter.builder("rhine.events.replay.reset")
+                .description("Resync requests that required a full refetch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends an event on {@code /topic/project/{projectId}/{event}} once the
+     * current transaction commits.
+     *
+     * @param entityKey see {@link ProjectEventDispatcher#dispatch}
+     */
+    public void toProject(Long projectId, String event, Object entityKey, Object payload) {
+        if (projectId == null) {
+            return;
+        }
+        eventPublisher.publishEvent(RealtimeEvent.toProject(projectId, event, entityKey, payload));
+    }
+
+    /**
+     * Sends an event on the user's {@code /user/queue/{queue}} once the current
+     * transaction commits. {@code projectId} is kept for bookkeeping on delivery
+     * and may be {@code null}.
+     */
+    public void toUser(String userEmail, Long projectId, String queue, Object payload) {
+        eventPublisher.publishEvent(RealtimeEvent.toUser(userEmail, projectId, queue, payload));
+    }
+
+    /**
+     * Writes the outbox row as part of the transaction that raised the event; a
+     * failure here rolls the change back. Outside a transaction the row is
+     * written on its own.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    @Order(0)
+    public void record(RealtimeEvent event) {
+        OutboxEvent row = outboxEventRepository.save(new OutboxEvent(event.getProjectId(), event.getUserEmail(),
+                event.getEvent(), event.getEntityKey(), serialize(event.getPayload())));
+        event.setOutboxId(row.getId());
+        writtenCounter.increment();
+    }
+
+    /**
+     * Rebuilds the frames a project's subscribers were sent after {@code lastSeq}
+     * from the outbox itself, for clients whose gap is older than the in-memory
+     * history (for example after a restart or when they land on another replica).
+     */
+    public EventReplay replaySince(Long projectId, long lastSeq) {
+        long horizon = System.currentTimeMillis() - retention.toMillis();
+        if (Tsid.from(lastSeq).getUnixMilliseconds() < horizon) {
+            return reset(projectId, lastSeq);
+        }
+
+        List<OutboxEvent> rows = outboxEventRepository.findByProjectIdAndUserEmailIsNullAndIdGreaterThanOrderByIdAsc(
+                projectId, lastSeq, Limit.of(maxReplayFrames + 1));
+        if (rows.size() > maxReplayFrames) {
+            return reset(projectId, rows.get(rows.size() - 1).getId());
+        }
+
+        List<EventReplay.Frame> frames = new ArrayList<>(rows.size());
+        long latestSeq = lastSeq;
+        for (OutboxEvent row : rows) {
+            frames.add(new EventReplay.Frame(row.getId(), row.getEvent(), List.of(readPayload(row))));
+            latestSeq = row.getId();
+        }
+        replayedCounter.increment();
+        return new EventReplay(projectId, latestSeq, true, frames);
+    }
+
+    JsonNode readPayload(OutboxEvent row) {
+        try {
+            return objectMapper.readTree(row.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload " + row.getId(), e);
+        }
+    }
+
+    private EventReplay reset(Long projectId, long latestSeq) {
+        resetCounter.increment();
+        return new EventReplay(projectId, latestSeq, false, List.of());
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Event payload is not serializable", e);
+        }
+    }
+}
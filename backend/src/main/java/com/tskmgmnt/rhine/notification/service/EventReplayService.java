@@ -0,0 +1,43 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.dto.EventReplay;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Answers "what did I miss on this project since {@code lastSeq}" for every
+ * transport: from {@link ProjectEventLog} when it still holds the frames, and
+ * from {@link EventOutbox} otherwise.
+ */
+@Service
+public class EventReplayService {
+
+    private final ProjectEventLog projectEventLog;
+    private final EventOutbox eventOutbox;
+
+    public EventReplayService(ProjectEventLog projectEventLog, EventOutbox eventOutbox) {
+        this.projectEventLog = projectEventLog;
+        this.eventOutbox = eventOutbox;
+    }
+
+    /**
+     * @param lastSeq the last sequence the client saw, or {@code null} for a new
+     *                client, which only needs to learn where the sequence stands
+     */
+    public EventReplay replaySince(Long projectId, Long lastSeq) {
+        if (lastSeq == null) {
+            return new EventReplay(projectId, projectEventLog.latestSeq(projectId), true, List.of());
+        }
+        EventReplay replay = projectEventLog.replaySince(projectId, lastSeq);
+        if (replay.isComplete()) {
+            return replay;
+        }
+        replay = eventOutbox.replaySince(projectId, lastSeq);
+        if (!replay.isComplete()) {
+            // The client refetches everything, so it resumes from the newest frame rather than its old position.
+            replay.setLatestSeq(Math.max(replay.getLatestSeq(), projectEventLog.latestSeq(projectId)));
+        }
+        return replay;
+    }
+}
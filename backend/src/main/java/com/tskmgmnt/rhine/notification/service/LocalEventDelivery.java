@@ -0,0 +1,153 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.event.RealtimeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends committed {@link RealtimeEvent}s to this node's sessions without holding
+ * up the request that caused them: the request thread only queues the event
+ * after its commit and returns.
+ * <p>
+ * Events run on a fixed set of single-threaded lanes with bounded queues. A
+ * project's (or a user's) events always use the same lane, so they go out in
+ * commit order. When a lane is full the event is left to {@link OutboxRelay},
+ * which picks it up from the outbox on its next poll.
+ */
+@Component
+public class LocalEventDelivery implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalEventDelivery.class);
+
+    private final OutboxRelay outboxRelay;
+    private final int laneCount;
+    private final int laneCapacity;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Timer deliveryTimer;
+    private final Timer latencyTimer;
+
+    private volatile boolean running;
+    private ThreadPoolExecutor[] lanes = new ThreadPoolExecutor[0];
+
+    public LocalEventDelivery(OutboxRelay outboxRelay,
+                              MeterRegistry meterRegistry,
+                              @Value("${application.events.dispatch.lanes:4}") int laneCount,
+                              @Value("${application.events.dispatch.queue-capacity:10000}") int queueCapacity) {
+        this.outboxRelay = outboxRelay;
+        this.laneCount = laneCount;
+        this.laneCapacity = Math.max(1, queueCapacity / laneCount);
+
+        Gauge.builder("rhine.events.dispatch.queued", this, delivery -> delivery.queued())
+                .description("Committed events waiting for a dispatch lane")
+                .register(meterRegistry);
+        Gauge.builder("rhine.events.dispatch.queue.capacity", () -> (long) laneCapacity * laneCount)
+                .register(meterRegistry);
+        this.acceptedCounter = Counter.builder("rhine.events.dispatch.accepted")
+                .description("Committed events handed to a dispatch lane")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("rhine.events.dispatch.rejected")
+                .description("Committed events left to the outbox relay because their lane was full")
+                .register(meterRegistry);
+        this.deliveryTimer = Timer.builder("rhine.events.dispatch.duration")
+                .description("Time to hand one event to the broker")
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("rhine.events.dispatch.latency")
+                .description("Time from commit to the event being handed to the broker")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(1)
+    public void onCommitted(RealtimeEvent event) {
+        if (!running || event.getOutboxId() == null) {
+            return;
+        }
+        event.setCommittedAtNanos(System.nanoTime());
+        try {
+            laneFor(event).execute(() -> deliver(event));
+            acceptedCounter.increment();
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+        }
+    }
+
+    private void deliver(RealtimeEvent event) {
+        try {
+            deliveryTimer.record(() -> outboxRelay.deliverCommitted(event));
+            latencyTimer.record(System.nanoTime() - event.getCommittedAtNanos(), TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            logger.warn("Failed to dispatch event {}: {}", event.getOutboxId(), e.getMessage());
+        }
+    }
+
+    private ThreadPoolExecutor laneFor(RealtimeEvent event) {
+        Object key = event.isForUser() ? event.getUserEmail() : event.getProjectId();
+        return lanes[Math.floorMod(key.hashCode(), lanes.length)];
+    }
+
+    private long queued() {
+        return Arrays.stream(lanes).mapToLong(lane -> lane.getQueue().size()).sum();
+    }
+
+    @Override
+    public void start() {
+        ThreadPoolExecutor[] created = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            int lane = i;
+            created[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(laneCapacity), r -> {
+                        Thread t = new Thread(r, "EventDispatch-" + lane);
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+        }
+        lanes = created;
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            try {
+                lane.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stops before the dispatcher it feeds.
+        return SmartLifecycle.DEFAULT_PHASE - 256;
+    }
+}
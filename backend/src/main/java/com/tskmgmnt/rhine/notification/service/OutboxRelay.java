@@ -0,0 +1,221 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.tskmgmnt.rhine.core.cache.ExpiringKeySet;
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import com.tskmgmnt.rhine.notification.entity.OutboxEvent;
+import com.tskmgmnt.rhine.notification.event.RealtimeEvent;
+import com.tskmgmnt.rhine.notification.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails the {@link OutboxEvent} table and publishes committed events to the
+ * STOMP sessions connected to this node. Every replica runs one, so an event
+ * written on any node reaches every client without an external broker.
+ * <p>
+ * Ids are time-ordered but assigned at insert, so a transaction that commits
+ * late can make a row appear below ids already read. Each poll therefore
+ * re-reads the ids from {@code safety-lag-ms} ago rather than from the highest
+ * id seen, and loads full rows only for ids it has not delivered yet.
+ * Transactions that take longer than the lag to commit may be missed.
+ * <p>
+ * Events committed on this node normally reach its sessions first through
+ * {@link LocalEventDelivery}; the poll is then only a backstop for them.
+ */
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final EventOutbox eventOutbox;
+    private final ProjectEventDispatcher eventDispatcher;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UnreadUpdateCounter unreadUpdateCounter;
+    private final PresenceRegistry presenceRegistry;
+    private final ProjectEventStream projectEventStream;
+    private final long pollIntervalMillis;
+    private final long safetyLagMillis;
+    private final int batchSize;
+    private final ExpiringKeySet delivered;
+
+    private final Counter deliveredCounter;
+    private final Counter failedCounter;
+    private final Counter offlineCounter;
+    private final Timer pollTimer;
+
+    private volatile boolean running;
+    private volatile long highWater;
+    private long startFloor;
+    private ScheduledExecutorService poller;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       EventOutbox eventOutbox,
+                       ProjectEventDispatcher eventDispatcher,
+                       SimpMessagingTemplate messagingTemplate,
+                       UnreadUpdateCounter unreadUpdateCounter,
+                       PresenceRegistry presenceRegistry,
+                       ProjectEventStream projectEventStream,
+                       MeterRegistry meterRegistry,
+                       @Value("${application.outbox.relay.poll-interval-ms:100}") long pollIntervalMillis,
+                       @Value("${application.outbox.relay.safety-lag-ms:2000}") long safetyLagMillis,
+                       @Value("${application.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${application.outbox.relay.dedupe-max-entries:200000}") int dedupeMaxEntries) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.eventOutbox = eventOutbox;
+        this.eventDispatcher = eventDispatcher;
+        this.messagingTemplate = messagingTemplate;
+        this.unreadUpdateCounter = unreadUpdateCounter;
+        this.presenceRegistry = presenceRegistry;
+        this.projectEventStream = projectEventStream;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.safetyLagMillis = safetyLagMillis;
+        this.batchSize = batchSize;
+        // Delivered ids only need remembering while they can still be re-read.
+        this.delivered = new ExpiringKeySet(Duration.ofMillis(2 * safetyLagMillis + 1000), 10, dedupeMaxEntries);
+
+        this.deliveredCounter = Counter.builder("rhine.outbox.relay.delivered")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("rhine.outbox.relay.failed")
+                .register(meterRegistry);
+        this.offlineCounter = Counter.builder("rhine.outbox.relay.offline")
+                .description("User events not sent because the user has no session on this node")
+                .register(meterRegistry);
+        this.pollTimer = Timer.builder("rhine.outbox.relay.poll")
+                .register(meterRegistry);
+    }
+
+    void poll() {
+        pollTimer.record(() -> {
+            long from = Math.min(highWater, TsidGenerator.floorOf(System.currentTimeMillis() - safetyLagMillis));
+            List<Long> batch;
+            do {
+                batch = outboxEventRepository.findIdsAfter(from, Limit.of(batchSize));
+                List<Long> fresh = new ArrayList<>();
+                for (Long id : batch) {
+                    from = id;
+                    // Rows from before startup were relayed by the previous process, if at all.
+                    if (id >= startFloor && !delivered.contains(id)) {
+                        fresh.add(id);
+                    }
+                }
+                if (!fresh.isEmpty()) {
+                    for (OutboxEvent event : outboxEventRepository.findByIdInOrderByIdAsc(fresh)) {
+                        if (delivered.add(event.getId())) {
+                            deliver(event);
+                        }
+                    }
+                }
+                if (from > highWater) {
+                    highWater = from;
+                }
+            } while (running && batch.size() == batchSize);
+        });
+    }
+
+    /**
+     * Delivers an event committed on this node straight away. The poll that later
+     * reads its row skips it.
+     *
+     * @return {@code false} if the event had already been delivered
+     */
+    public boolean deliverCommitted(RealtimeEvent event) {
+        if (!delivered.add(event.getOutboxId())) {
+            return false;
+        }
+        deliver(event.getOutboxId(), event.getProjectId(), event.getUserEmail(), event.getEvent(),
+                event.getEntityKey(), event.getPayload());
+        return true;
+    }
+
+    private void deliver(OutboxEvent event) {
+        JsonNode payload;
+        try {
+            payload = eventOutbox.readPayload(event);
+        } catch (Exception e) {
+            failedCounter.increment();
+            logger.warn("Failed to read outbox event {}: {}", event.getId(), e.getMessage());
+            return;
+        }
+        deliver(event.getId(), event.getProjectId(), event.getUserEmail(), event.getEvent(), event.getEntityKey(), payload);
+    }
+
+    private void deliver(long id, Long projectId, String userEmail, String event, String entityKey, Object payload) {
+        try {
+            if (userEmail == null) {
+                eventDispatcher.dispatch(projectId, event, entityKey, payload, id);
+            } else {
+                if ("updates".equals(event) && projectId != null) {
+                    // Every node keeps its own cached unread counts.
+                    unreadUpdateCounter.adjust(userEmail, projectId, 1);
+                }
+                if ("eviction".equals(event) && projectId != null) {
+                    projectEventStream.disconnect(userEmail, projectId);
+                }
+                if (!presenceRegistry.isOnline(userEmail)) {
+                    // Persisted updates and memberships are loaded on the user's next visit.
+                    offlineCounter.increment();
+                    return;
+                }
+                messagingTemplate.convertAndSendToUser(userEmail, "/queue/" + event, payload);
+            }
+            deliveredCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            logger.warn("Failed to relay outbox event {}: {}", id, e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        startFloor = TsidGenerator.floorOf(System.currentTimeMillis());
+        highWater = startFloor;
+        running = true;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "OutboxRelay");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (Exception e) {
+                logger.error("Outbox poll failed: {}", e.getMessage());
+            }
+        }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (poller != null) {
+            poller.shutdown();
+            try {
+                poller.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,324 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.entity.PresenceLease;
+import com.tskmgmnt.rhine.notification.repository.PresenceLeaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks which users have a live STOMP session on this node, and which of them
+ * are looking at each project (subscribed to any of its topics).
+ * <p>
+ * Counts are kept per user and per (project, user) in concurrent maps and only
+ * change through atomic per-key updates, so connects and disconnects never
+ * contend on a shared lock. Sessions are refreshed by every inbound frame,
+ * heartbeats included; one that has been silent for {@code expiry-ms} is
+ * dropped even if its disconnect was never seen.
+ * <p>
+ * Every {@code sync-interval-ms} the node publishes the (project, user) pairs it
+ * holds as {@link PresenceLease} rows, renews them for {@code lease-ms}, and reads
+ * back the pairs held by other nodes for the projects watched here. The online
+ * members of a project are the union of both, so every replica reports the same
+ * set give or take one sync. Leases of a node that died expire on their own.
+ * <p>
+ * When a project's set of online members changes, the new set is broadcast on
+ * {@code /topic/project/{id}/presence} at most once per {@code broadcast-interval-ms}.
+ * {@link #isOnline} stays local: it decides whether this node has a session to
+ * deliver to.
+ */
+@Component
+public class PresenceRegistry implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceRegistry.class);
+    private static final Pattern PROJECT_TOPIC = Pattern.compile("^/topic/project/(\\d+)/[^/]+$");
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceLeaseRepository presenceLeaseRepository;
+    private final long expiryMillis;
+    private final long leaseMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, Integer>> sessionsByProject = new ConcurrentHashMap<>();
+    private final Set<Long> changedProjects = ConcurrentHashMap.newKeySet();
+
+    // Only touched by syncWithCluster.
+    private Set<LeaseKey> published = new HashSet<>();
+    private boolean republish = false;
+    // Members seen on other nodes, per project watched here; replaced whole on every sync.
+    private volatile Map<Long, Set<String>> remoteMembers = Map.of();
+
+    private final Counter expiredCounter;
+
+    public PresenceRegistry(@Lazy SimpMessagingTemplate messagingTemplate,
+                            PresenceLeaseRepository presenceLeaseRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${application.presence.expiry-ms:30000}") long expiryMillis,
+                            @Value("${application.presence.lease-ms:30000}") long leaseMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.presenceLeaseRepository = presenceLeaseRepository;
+        this.expiryMillis = expiryMillis;
+        this.leaseMillis = leaseMillis;
+
+        Gauge.builder("rhine.presence.sessions", sessions, Map::size)
+                .description("STOMP sessions open on this node")
+                .register(meterRegistry);
+        Gauge.builder("rhine.presence.users", sessionsByUser, Map::size)
+                .description("Distinct users with an open session on this node")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("rhine.presence.expired")
+                .description("Sessions dropped after missing their heartbeats")
+                .register(meterRegistry);
+    }
+
+    public boolean isOnline(String userEmail) {
+        return sessionsByUser.containsKey(userEmail);
+    }
+
+    /** Members looking at the project through any node. */
+    public List<String> onlineMembers(Long projectId) {
+        Set<String> online = new HashSet<>(remoteMembers(projectId));
+        Map<String, Integer> users = sessionsByProject.get(projectId);
+        if (users != null) {
+            online.addAll(users.keySet());
+        }
+        return new ArrayList<>(online);
+    }
+
+    private Set<String> remoteMembers(Long projectId) {
+        Set<String> cached = remoteMembers.get(projectId);
+        if (cached != null) {
+            return cached;
+        }
+        // Not watched here, or only since the last sync.
+        try {
+            return group(presenceLeaseRepository.findLiveElsewhere(List.of(projectId), nodeId, Instant.now()))
+                    .getOrDefault(projectId, Set.of());
+        } catch (DataAccessException e) {
+            logger.warn("Could not read presence of project {} on other nodes", projectId, e);
+            return Set.of();
+        }
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (user == null || sessionId == null) {
+            return;
+        }
+        if (sessions.putIfAbsent(sessionId, new SessionState(user.getName())) == null) {
+            sessionsByUser.merge(user.getName(), 1, Integer::sum);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        SessionState session = sessions.get(headers.getSessionId());
+        String destination = headers.getDestination();
+        if (session == null || destination == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        Matcher project = PROJECT_TOPIC.matcher(destination);
+        if (!project.matches()) {
+            return;
+        }
+        Long projectId = Long.valueOf(project.group(1));
+        session.subscriptions.put(headers.getSubscriptionId(), projectId);
+        if (session.topicsByProject.merge(projectId, 1, Integer::sum) == 1) {
+            enterProject(projectId, session.user);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        SessionState session = sessions.get(headers.getSessionId());
+        if (session == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        Long projectId = session.subscriptions.remove(headers.getSubscriptionId());
+        if (projectId != null && session.topicsByProject.computeIfPresent(projectId, PresenceRegistry::decrement) == null) {
+            leaveProject(projectId, session.user);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        // May be published more than once per session; only the first removal counts.
+        remove(event.getSessionId());
+    }
+
+    /** Every inbound frame, heartbeats included, shows the session is alive. */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            SessionState session = sessions.get(sessionId);
+            if (session != null) {
+                session.lastSeen = System.currentTimeMillis();
+            }
+        }
+        return message;
+    }
+
+    @Scheduled(fixedDelayString = "${application.presence.sweep-interval-ms:10000}")
+    public void expireSilentSessions() {
+        long cutoff = System.currentTimeMillis() - expiryMillis;
+        sessions.forEach((sessionId, session) -> {
+            if (session.lastSeen < cutoff && remove(sessionId)) {
+                expiredCounter.increment();
+            }
+        });
+    }
+
+    /**
+     * Publishes this node's (project, user) pairs and picks up the ones held by
+     * other nodes. Projects whose remote members changed are queued for broadcast.
+     */
+    @Scheduled(fixedDelayString = "${application.presence.sync-interval-ms:5000}")
+    public void syncWithCluster() {
+        Instant now = Instant.now();
+        Map<Long, Set<String>> local = new HashMap<>();
+        sessionsByProject.forEach((projectId, users) -> local.put(projectId, new HashSet<>(users.keySet())));
+
+        try {
+            publish(local, now);
+            Map<Long, Set<String>> fresh = local.isEmpty() ? new HashMap<>()
+                    : group(presenceLeaseRepository.findLiveElsewhere(local.keySet(), nodeId, now));
+            local.keySet().forEach(projectId -> fresh.putIfAbsent(projectId, Set.of()));
+            Map<Long, Set<String>> previous = remoteMembers;
+            fresh.forEach((projectId, users) -> {
+                if (!users.equals(previous.getOrDefault(projectId, Set.of()))) {
+                    changedProjects.add(projectId);
+                }
+            });
+            remoteMembers = fresh;
+            presenceLeaseRepository.deleteExpired(now);
+        } catch (DataAccessException e) {
+            // The next sync starts over from whatever the table holds for this node.
+            republish = true;
+            logger.warn("Could not sync presence with other nodes", e);
+        }
+    }
+
+    private void publish(Map<Long, Set<String>> local, Instant now) {
+        if (republish) {
+            presenceLeaseRepository.releaseAll(nodeId);
+            published = new HashSet<>();
+            republish = false;
+        }
+        Set<LeaseKey> current = new HashSet<>();
+        local.forEach((projectId, users) -> users.forEach(user -> current.add(new LeaseKey(projectId, user))));
+
+        Instant expiresAt = now.plusMillis(leaseMillis);
+        for (LeaseKey gone : published) {
+            if (!current.contains(gone)) {
+                presenceLeaseRepository.release(nodeId, gone.projectId(), gone.user());
+            }
+        }
+        presenceLeaseRepository.renew(nodeId, expiresAt);
+        List<PresenceLease> added = current.stream()
+                .filter(key -> !published.contains(key))
+                .map(key -> new PresenceLease(nodeId, key.projectId(), key.user(), expiresAt))
+                .toList();
+        if (!added.isEmpty()) {
+            presenceLeaseRepository.saveAll(added);
+        }
+        published = current;
+    }
+
+    private static Map<Long, Set<String>> group(List<Object[]> rows) {
+        Map<Long, Set<String>> members = new HashMap<>();
+        for (Object[] row : rows) {
+            members.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((String) row[1]);
+        }
+        return members;
+    }
+
+    @Scheduled(fixedDelayString = "${application.presence.broadcast-interval-ms:1000}")
+    public void broadcastChanges() {
+        for (Long projectId : changedProjects) {
+            changedProjects.remove(projectId);
+            messagingTemplate.convertAndSend(ProjectTopics.of(projectId, "presence"),
+                    Map.of("projectId", String.valueOf(projectId), "online", onlineMembers(projectId)));
+        }
+    }
+
+    private boolean remove(String sessionId) {
+        SessionState session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.topicsByProject.keySet().forEach(projectId -> leaveProject(projectId, session.user));
+        sessionsByUser.computeIfPresent(session.user, PresenceRegistry::decrement);
+        return true;
+    }
+
+    private void enterProject(Long projectId, String user) {
+        Map<String, Integer> users = sessionsByProject.computeIfAbsent(projectId, id -> new ConcurrentHashMap<>());
+        if (users.merge(user, 1, Integer::sum) == 1) {
+            changedProjects.add(projectId);
+        }
+    }
+
+    private void leaveProject(Long projectId, String user) {
+        Map<String, Integer> users = sessionsByProject.get(projectId);
+        if (users != null && users.computeIfPresent(user, PresenceRegistry::decrement) == null) {
+            sessionsByProject.computeIfPresent(projectId, (id, remaining) -> remaining.isEmpty() ? null : remaining);
+            changedProjects.add(projectId);
+        }
+    }
+
+    private static Integer decrement(Object key, Integer count) {
+        return count <= 1 ? null : count - 1;
+    }
+
+    private record LeaseKey(Long projectId, String user) {}
+
+    private static final class SessionState {
+
+        private final String user;
+        private final Map<String, Long> subscriptions = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> topicsByProject = new ConcurrentHashMap<>();
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        SessionState(String user) {
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sits between {@link OutboxRelay} and {@link SimpMessagingTemplate} for project topics.
+ * <p>
+ * Events for a destination are collected for a short window and then sent as one
+ * JSON array frame. Within a window only the latest event per entity key is kept,
+ * so a bulk edit of the same task ten times costs one element, and a bulk edit of
+ * ten tasks costs one frame per subscriber instead of ten.
+ * <p>
+ * Every frame is recorded by {@link ProjectEventLog} and numbered by the highest
+ * outbox id it carries; the number is sent in the {@value #SEQ_HEADER} header so clients can ask for a replay after
+ * reconnecting. The same frames go to {@link ProjectEventStream} for SSE viewers.
+ */
+@Component
+public class ProjectEventDispatcher implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectEventDispatcher.class);
+
+    /** STOMP header carrying the frame's sequence number; see {@link ProjectEventLog}. */
+    public static final String SEQ_HEADER = "seq";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ProjectEventLog projectEventLog;
+    private final ProjectEventStream projectEventStream;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final Map<String, PendingFrame> pending = new ConcurrentHashMap<>();
+
+    private final Counter receivedCounter;
+    private final Counter framesCounter;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    public ProjectEventDispatcher(SimpMessagingTemplate messagingTemplate,
+                                  ProjectEventLog projectEventLog,
+                                  ProjectEventStream projectEventStream,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.websocket.coalesce-window-ms:40}") long windowMillis,
+                                  @Value("${application.websocket.coalesce-max-batch:500}") int maxBatchSize) {
+        this.messagingTemplate = messagingTemplate;
+        this.projectEventLog = projectEventLog;
+        this.projectEventStream = projectEventStream;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+
+        this.receivedCounter = Counter.builder("rhine.events.received")
+                .description("Project events handed to the dispatcher")
+                .register(meterRegistry);
+        this.framesCounter = Counter.builder("rhine.events.frames")
+                .description("Array frames sent after coalescing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues an event for {@code /topic/project/{projectId}/{event}}.
+     *
+     * @param entityKey identifies the entity the payload describes; a later event with
+     *                  the same key in the same window replaces the earlier one. Events
+     *                  with a {@code null} key are never merged.
+     * @param seq       the event's outbox id; a frame is numbered by its highest one
+     */
+    public void dispatch(Long projectId, String event, Object entityKey, Object payload, long seq) {
+        if (projectId == null) {
+            return;
+        }
+        receivedCounter.increment();
+        String destination = ProjectTopics.of(projectId, event);
+        if (!running || windowMillis <= 0) {
+            send(destination, projectId, event, List.of(payload), seq);
+            return;
+        }
+
+        boolean[] opened = {false};
+        boolean[] full = {false};
+        pending.compute(destination, (d, frame) -> {
+            if (frame == null) {
+                frame = new PendingFrame(projectId, event);
+                opened[0] = true;
+            }
+            frame.put(entityKey, payload, seq);
+            full[0] = frame.size() >= maxBatchSize;
+            return frame;
+        });
+
+        if (full[0]) {
+            flush(destination);
+        } else if (opened[0]) {
+            try {
+                scheduler.schedule(() -> flush(destination), windowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; don't leave the frame behind.
+                flush(destination);
+            }
+        }
+    }
+
+    private void flush(String destination) {
+        PendingFrame frame = pending.remove(destination);
+        if (frame != null) {
+            send(destination, frame.projectId, frame.event, frame.payloads(), frame.seq);
+        }
+    }
+
+    private void send(String destination, Long projectId, String event, List<Object> payloads, long seq) {
+        projectEventLog.append(projectId, event, payloads, seq, () -> {
+            try {
+                messagingTemplate.convertAndSend(destination, payloads, Map.of(SEQ_HEADER, seq));
+                framesCounter.increment();
+            } catch (Exception e) {
+                // Still recorded, so clients pick it up on their next resync.
+                logger.warn("Failed to send {} events to {}: {}", payloads.size(), destination, e.getMessage());
+            }
+            projectEventStream.publish(projectId, event, payloads, seq);
+        });
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ProjectEventDispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        pending.keySet().forEach(this::flush);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stops after the OutboxRelay feeding it.
+        return SmartLifecycle.DEFAULT_PHASE - 512;
+    }
+
+    private static final class PendingFrame {
+
+        private final Long projectId;
+        private final String event;
+        private final Map<Object, Object> latestByKey = new LinkedHashMap<>();
+        private long seq;
+
+        PendingFrame(Long projectId, String event) {
+            this.projectId = projectId;
+            this.event = event;
+        }
+
+        void put(Object entityKey, Object payload, long eventSeq) {
+            // Unkeyed events get a unique slot so they are kept in order and never merged.
+            latestByKey.put(entityKey != null ? entityKey : new Object(), payload);
+            seq = Math.max(seq, eventSeq);
+        }
+
+        int size() {
+            return latestByKey.size();
+        }
+
+        List<Object> payloads() {
+            return new ArrayList<>(latestByKey.values());
+        }
+    }
+}
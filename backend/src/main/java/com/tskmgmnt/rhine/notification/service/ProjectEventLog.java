@@ -0,0 +1,186 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import com.tskmgmnt.rhine.notification.dto.EventReplay;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most recent frames sent on each project's topics so a reconnecting
+ * client can catch up with a replay instead of refetching tasks, members and
+ * updates.
+ * <p>
+ * A frame's sequence number is the highest outbox id it carries, so numbers
+ * are shared by all replicas and keep growing across restarts. Each project
+ * remembers the highest sequence it can no longer replay; older gaps are
+ * left to {@link EventOutbox#replaySince}.
+ */
+@Component
+public class ProjectEventLog {
+
+    private final AtomicLong highestSeq;
+    private final int framesPerProject;
+    private final int maxProjects;
+    private final Map<Long, EventRing> rings;
+
+    private final Counter replayedCounter;
+    private final Counter missedCounter;
+
+    @Autowired
+    public ProjectEventLog(MeterRegistry meterRegistry,
+                           @Value("${application.websocket.replay.frames-per-project:128}") int framesPerProject,
+                           @Value("${application.websocket.replay.max-projects:2000}") int maxProjects) {
+        // Nothing sent before startup is held here.
+        this(meterRegistry, framesPerProject, maxProjects, TsidGenerator.floorOf(System.currentTimeMillis()));
+    }
+
+    ProjectEventLog(MeterRegistry meterRegistry, int framesPerProject, int maxProjects, long initialSeq) {
+        this.highestSeq = new AtomicLong(initialSeq);
+        this.framesPerProject = framesPerProject;
+        this.maxProjects = maxProjects;
+        this.rings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, EventRing> eldest) {
+                return size() > ProjectEventLog.this.maxProjects;
+            }
+        };
+
+        Gauge.builder("rhine.events.replay.projects", this, log -> log.projectCount())
+                .description("Projects with replayable event history")
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("rhine.events.replay.memory")
+                .description("Resync requests answered from in-memory history")
+                .register(meterRegistry);
+        this.missedCounter = Counter.builder("rhine.events.replay.missed")
+                .description("Resync requests older than the in-memory history")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a frame and runs {@code publish} while holding the project's lock,
+     * so a replay never misses a frame that has already gone out.
+     */
+    public void append(Long projectId, String event, List<Object> payloads, long seq, Runnable publish) {
+        EventRing ring = ringFor(projectId);
+        synchronized (ring) {
+            ring.add(new EventReplay.Frame(seq, event, payloads));
+            highestSeq.accumulateAndGet(seq, Math::max);
+            publish.run();
+        }
+    }
+
+    /**
+     * Returns the frames of a project sent after {@code lastSeq}, or a replay
+     * marked incomplete when some of them are no longer held.
+     */
+    public EventReplay replaySince(Long projectId, long lastSeq) {
+        EventRing ring;
+        synchronized (rings) {
+            ring = rings.get(projectId);
+        }
+        if (ring == null) {
+            // Nothing sent since startup or since the history was dropped: only a
+            // client that is already ahead of everything we could have sent is current.
+            long latest = highestSeq.get();
+            return lastSeq >= latest ? complete(projectId, latest, List.of()) : missed(projectId, latest);
+        }
+        synchronized (ring) {
+            if (lastSeq < ring.evictedUpTo) {
+                return missed(projectId, ring.latestSeq());
+            }
+            return complete(projectId, ring.latestSeq(), ring.since(lastSeq));
+        }
+    }
+
+    /**
+     * The sequence a client subscribing now should remember; replaying from it
+     * later yields exactly the frames sent after this call.
+     */
+    public long latestSeq(Long projectId) {
+        EventRing ring;
+        synchronized (rings) {
+            ring = rings.get(projectId);
+        }
+        if (ring == null) {
+            return highestSeq.get();
+        }
+        synchronized (ring) {
+            return ring.latestSeq();
+        }
+    }
+
+    private EventReplay complete(Long projectId, long latestSeq, List<EventReplay.Frame> frames) {
+        replayedCounter.increment();
+        return new EventReplay(projectId, latestSeq, true, frames);
+    }
+
+    private EventReplay missed(Long projectId, long latestSeq) {
+        missedCounter.increment();
+        return new EventReplay(projectId, latestSeq, false, List.of());
+    }
+
+    private EventRing ringFor(Long projectId) {
+        synchronized (rings) {
+            // A new ring cannot replay anything numbered before it existed.
+            return rings.computeIfAbsent(projectId, id -> new EventRing(framesPerProject, highestSeq.get()));
+        }
+    }
+
+    private int projectCount() {
+        synchronized (rings) {
+            return rings.size();
+        }
+    }
+
+    private static final class EventRing {
+
+        private final EventReplay.Frame[] frames;
+        private int head;
+        private int size;
+        private long evictedUpTo;
+        private long latestSeq;
+
+        EventRing(int capacity, long evictedUpTo) {
+            this.frames = new EventReplay.Frame[capacity];
+            this.evictedUpTo = evictedUpTo;
+            this.latestSeq = evictedUpTo;
+        }
+
+        void add(EventReplay.Frame frame) {
+            int tail = (head + size) % frames.length;
+            if (size == frames.length) {
+                evictedUpTo = Math.max(evictedUpTo, frames[head].getSeq());
+                head = (head + 1) % frames.length;
+            } else {
+                size++;
+            }
+            frames[tail] = frame;
+            latestSeq = Math.max(latestSeq, frame.getSeq());
+        }
+
+        long latestSeq() {
+            return latestSeq;
+        }
+
+        List<EventReplay.Frame> since(long lastSeq) {
+            List<EventReplay.Frame> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                EventReplay.Frame frame = frames[(head + i) % frames.length];
+                if (frame.getSeq() > lastSeq) {
+                    result.add(frame);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tskmgmnt.rhine.core.exception.ServiceUnavailableException;
+import com.tskmgmnt.rhine.notification.dto.EventReplay;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams a project's frames as Server-Sent Events to read-only viewers such as
+ * wallboards, without a STOMP session or broker subscription per viewer.
+ * <p>
+ * Frames come from {@link ProjectEventDispatcher} alongside the STOMP send, with
+ * the same sequence number as their SSE {@code id}, so a reconnecting
+ * {@code EventSource} resumes through {@link EventReplayService} using the
+ * {@code Last-Event-ID} it sends automatically. Each frame is rendered once and
+ * the same text is queued to every viewer of the project.
+ * <p>
+ * Every viewer has a bounded queue drained by its own virtual thread, so a slow
+ * viewer only delays itself. A viewer whose queue fills up is disconnected and
+ * catches up through the replay when it reconnects.
+ */
+@Component
+public class ProjectEventStream implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectEventStream.class);
+
+    private static final MediaType TEXT_UTF8 = new MediaType("text", "plain", StandardCharsets.UTF_8);
+    private static final String HEARTBEAT = ":\n\n";
+
+    private final EventReplayService eventReplayService;
+    private final ObjectMapper objectMapper;
+    private final long heartbeatMillis;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final int maxConnections;
+
+    private final Map<Long, Set<Viewer>> viewers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final Counter framesCounter;
+    private final Counter droppedCounter;
+
+    private volatile boolean running;
+
+    public ProjectEventStream(EventReplayService eventReplayService,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${application.sse.heartbeat-ms:15000}") long heartbeatMillis,
+                              @Value("${application.sse.timeout-ms:1800000}") long timeoutMillis,
+                              @Value("${application.sse.queue-capacity:256}") int queueCapacity,
+                              @Value("${application.sse.max-connections:10000}") int maxConnections) {
+        this.eventReplayService = eventReplayService;
+        this.objectMapper = objectMapper;
+        this.heartbeatMillis = heartbeatMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.queueCapacity = queueCapacity;
+        this.maxConnections = maxConnections;
+
+        Gauge.builder("rhine.sse.connections", connections, AtomicInteger::get)
+                .description("Open project event streams on this node")
+                .register(meterRegistry);
+        this.framesCounter = Counter.builder("rhine.sse.frames")
+                .description("Frames rendered for project event streams")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("rhine.sse.dropped")
+                .description("Event streams closed because the viewer fell too far behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the project's frames sent after {@code lastSeq}. The
+     * stream starts with any missed frames, followed by a {@code replay} event
+     * whose {@code complete} flag tells the viewer whether it must refetch.
+     */
+    public SseEmitter open(Long projectId, String userEmail, Long lastSeq) {
+        if (!running) {
+            throw new ServiceUnavailableException("Event streams are not available");
+        }
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new ServiceUnavailableException("Too many open event streams");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Viewer viewer = new Viewer(projectId, userEmail, emitter, queueCapacity);
+        emitter.onCompletion(() -> close(viewer));
+        emitter.onTimeout(() -> close(viewer));
+        emitter.onError(e -> close(viewer));
+
+        // Registered before the replay is read, so nothing sent in between is lost.
+        viewers.computeIfAbsent(projectId, id -> ConcurrentHashMap.newKeySet()).add(viewer);
+        EventReplay replay;
+        try {
+            replay = eventReplayService.replaySince(projectId, lastSeq);
+        } catch (RuntimeException e) {
+            close(viewer);
+            throw e;
+        }
+
+        List<String> backlog = new ArrayList<>(replay.getFrames().size() + 1);
+        for (EventReplay.Frame frame : replay.getFrames()) {
+            backlog.add(render(frame.getSeq(), frame.getEvent(), frame.getPayloads()));
+        }
+        backlog.add(render(replay.getLatestSeq(), "replay",
+                new EventReplay(projectId, replay.getLatestSeq(), replay.isComplete(), List.of())));
+        viewer.writer = Thread.ofVirtual()
+                .name("ProjectEventStream-" + projectId)
+                .start(() -> write(viewer, backlog, replay.getLatestSeq()));
+        return emitter;
+    }
+
+    /** Queues a frame for the project's viewers. Never blocks. */
+    public void publish(Long projectId, String event, List<Object> payloads, long seq) {
+        Set<Viewer> projectViewers = viewers.get(projectId);
+        if (projectViewers == null || projectViewers.isEmpty()) {
+            return;
+        }
+        String text = render(seq, event, payloads);
+        framesCounter.increment();
+        for (Viewer viewer : projectViewers) {
+            if (!viewer.queue.offer(new Frame(seq, text))) {
+                droppedCounter.increment();
+                close(viewer);
+            }
+        }
+    }
+
+    /** Ends a user's streams for a project, e.g. after they were removed from it. */
+    public void disconnect(String userEmail, Long projectId) {
+        Set<Viewer> projectViewers = viewers.get(projectId);
+        if (projectViewers != null) {
+            projectViewers.stream()
+                    .filter(viewer -> viewer.userEmail.equals(userEmail))
+                    .forEach(this::close);
+        }
+    }
+
+    private void write(Viewer viewer, List<String> backlog, long replayedUpTo) {
+        boolean failed = false;
+        try {
+            for (String text : backlog) {
+                viewer.send(text);
+            }
+            while (!viewer.closed.get()) {
+                Frame frame = viewer.queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    viewer.send(HEARTBEAT);
+                } else if (frame.seq > replayedUpTo) {
+                    viewer.send(frame.text);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed while waiting for the next frame.
+        } catch (IOException | IllegalStateException e) {
+            // The viewer went away; the container reports it and completes the emitter.
+            failed = true;
+        } finally {
+            close(viewer);
+            if (!failed) {
+                viewer.emitter.complete();
+            }
+        }
+    }
+
+    /** Unregisters a viewer and wakes its writer, which completes the response. */
+    private void close(Viewer viewer) {
+        if (!viewer.closed.compareAndSet(false, true)) {
+            return;
+        }
+        viewers.computeIfPresent(viewer.projectId, (id, projectViewers) -> {
+            projectViewers.remove(viewer);
+            return projectViewers.isEmpty() ? null : projectViewers;
+        });
+        connections.decrementAndGet();
+        Thread writer = viewer.writer;
+        if (writer != null && writer != Thread.currentThread()) {
+            writer.interrupt();
+        }
+    }
+
+    private String render(long seq, String event, Object data) {
+        try {
+            // Compact JSON has no line breaks, so it fits in a single data line.
+            return "id:" + seq + "\nevent:" + event + "\ndata:" + objectMapper.writeValueAsString(data) + "\n\n";
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to render {} frame {}: {}", event, seq, e.getMessage());
+            return HEARTBEAT;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        viewers.values().forEach(projectViewers -> projectViewers.forEach(this::close));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private record Frame(long seq, String text) {}
+
+    private static final class Viewer {
+
+        private final Long projectId;
+        private final String userEmail;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Thread writer;
+
+        Viewer(Long projectId, String userEmail, SseEmitter emitter, int queueCapacity) {
+            this.projectId = projectId;
+            this.userEmail = userEmail;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        void send(String text) throws IOException {
+            // Already in SSE wire format; written as is.
+            emitter.send(Set.of(new ResponseBodyEmitter.DataWithMediaType(text, TEXT_UTF8)));
+        }
+    }
+}
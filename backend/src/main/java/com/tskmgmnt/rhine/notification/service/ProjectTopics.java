@@ -0,0 +1,14 @@
+package com.tskmgmnt.rhine.notification.service;
+
+/**
+ * Builds the per-project STOMP destinations that task and comment events are
+ * published to. Only members of the project may subscribe to them.
+ */
+public final class ProjectTopics {
+
+    private ProjectTopics() {}
+
+    public static String of(Long projectId, String event) {
+        return String.format("/topic/project/%d/%s", projectId, event);
+    }
+}
@@ -0,0 +1,264 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import com.tskmgmnt.rhine.notification.repository.ProjectUpdateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind pipeline for {@link ProjectUpdate}s.
+ * <p>
+ * Request threads only enqueue; a single worker drains the bounded queue and
+ * group-commits rows in one transaction (JDBC-batched) once either
+ * {@code batch-size} items are waiting or {@code flush-interval-ms} has passed.
+ * The WebSocket event for each row is recorded in the same transaction.
+ * <p>
+ * A batch that fails to commit is retried up to {@code persist.retries} times,
+ * waiting {@code persist.retry-backoff-ms} and doubling, then written one row per
+ * transaction so a single bad row does not take the rest down with it. Rows that
+ * still fail are reported to the {@link #onDropped drop listener}.
+ */
+@Component
+public class ProjectUpdateWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectUpdateWriter.class);
+
+    private final ProjectUpdateRepository projectUpdateRepository;
+    private final EventOutbox eventOutbox;
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<ProjectUpdate> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final boolean blockWhenFull;
+    private final long blockTimeoutMillis;
+    private final int retries;
+    private final long retryBackoffMillis;
+
+    private final Counter shedCounter;
+    private final Counter persistedCounter;
+    private final Counter failedCounter;
+    private final Counter retriedCounter;
+    private final Timer flushTimer;
+
+    private volatile Consumer<ProjectUpdate> dropListener = update -> {};
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public ProjectUpdateWriter(ProjectUpdateRepository projectUpdateRepository,
+                               EventOutbox eventOutbox,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.updates.queue.capacity:10000}") int capacity,
+                               @Value("${application.updates.queue.batch-size:100}") int batchSize,
+                               @Value("${application.updates.queue.flush-interval-ms:20}") long flushIntervalMillis,
+                               @Value("${application.updates.queue.overflow:block}") String overflowPolicy,
+                               @Value("${application.updates.queue.block-timeout-ms:50}") long blockTimeoutMillis,
+                               @Value("${application.updates.persist.retries:3}") int retries,
+                               @Value("${application.updates.persist.retry-backoff-ms:100}") long retryBackoffMillis) {
+        this.projectUpdateRepository = projectUpdateRepository;
+        this.eventOutbox = eventOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.blockWhenFull = "block".equalsIgnoreCase(overflowPolicy);
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.retries = retries;
+        this.retryBackoffMillis = retryBackoffMillis;
+
+        Gauge.builder("rhine.updates.queue.depth", queue, BlockingQueue::size)
+                .description("Project updates waiting to be persisted")
+                .register(meterRegistry);
+        Gauge.builder("rhine.updates.queue.capacity", () -> capacity)
+                .register(meterRegistry);
+        this.shedCounter = Counter.builder("rhine.updates.queue.shed")
+                .description("Project updates dropped because the write-behind queue was full")
+                .register(meterRegistry);
+        this.persistedCounter = Counter.builder("rhine.updates.persisted")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("rhine.updates.persist.failed")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("rhine.updates.persist.retried")
+                .description("Batch commits of project updates that failed and were tried again")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("rhine.updates.flush")
+                .description("Time to commit one batch of project updates")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hands an update to the worker. With the {@code block} overflow policy the caller
+     * waits up to {@code block-timeout-ms} for room; otherwise a full queue sheds immediately.
+     *
+     * @return {@code false} if the update was shed
+     */
+    public boolean enqueue(ProjectUpdate update) {
+        boolean accepted;
+        try {
+            accepted = blockWhenFull
+                    ? queue.offer(update, blockTimeoutMillis, TimeUnit.MILLISECONDS)
+                    : queue.offer(update);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            shedCounter.increment();
+            logger.warn("Update queue full, dropping update for {}", update.getUserEmail());
+        }
+        return accepted;
+    }
+
+    /** Called on the writer thread with each update that could not be persisted. */
+    public void onDropped(Consumer<ProjectUpdate> listener) {
+        this.dropListener = listener;
+    }
+
+    private void drainLoop() {
+        List<ProjectUpdate> batch = new ArrayList<>(batchSize);
+        boolean interrupted = false;
+        while (!interrupted && (running || !queue.isEmpty())) {
+            try {
+                ProjectUpdate first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ProjectUpdate next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = true;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<ProjectUpdate> batch) {
+        flushTimer.record(() -> {
+            Exception failure = null;
+            for (int attempt = 0; attempt <= retries; attempt++) {
+                if (attempt > 0 && !backOff(attempt)) {
+                    break;
+                }
+                try {
+                    persist(batch);
+                    persistedCounter.increment(batch.size());
+                    return;
+                } catch (Exception e) {
+                    failure = e;
+                    if (attempt < retries) {
+                        retriedCounter.increment();
+                        logger.warn("Failed to persist batch of {} project updates (attempt {}), retrying: {}",
+                                batch.size(), attempt + 1, e.getMessage());
+                    }
+                }
+            }
+            logger.error("Failed to persist batch of {} project updates, writing them one at a time", batch.size(), failure);
+            for (ProjectUpdate update : batch) {
+                try {
+                    persist(List.of(update));
+                    persistedCounter.increment();
+                } catch (Exception e) {
+                    failedCounter.increment();
+                    logger.error("Dropping project update for {} in project {}",
+                            update.getUserEmail(), update.getProjectId(), e);
+                    dropListener.accept(update);
+                }
+            }
+        });
+    }
+
+    private void persist(List<ProjectUpdate> updates) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (ProjectUpdate update : projectUpdateRepository.saveAll(updates)) {
+                    eventOutbox.toUser(update.getUserEmail(), update.getProjectId(), "updates", update);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Ids handed out inside the rolled-back transaction were never used; clear them so
+            // the next attempt inserts again instead of merging.
+            updates.forEach(update -> update.setId(null));
+            throw e;
+        }
+    }
+
+    /** @return {@code false} if interrupted while waiting */
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis << Math.min(attempt - 1, 10));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "ProjectUpdateWriter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            // No interrupt: the worker notices within one flush interval and drains the rest of the queue.
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!queue.isEmpty()) {
+                logger.warn("Shutting down with {} unsaved project updates", queue.size());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server has stopped taking requests, so the final flush sees every enqueued update.
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+}
@@ -0,0 +1,96 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.core.service.RetentionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory unread update count per (user, project), so the notification badge
+ * never has to load the update list.
+ * <p>
+ * A count is loaded from the database the first time it is asked for and is then
+ * kept current by the write paths: the writer increments after each commit, and
+ * marking individual updates read decrements by the number that were still unread.
+ * Mark-all-read and bulk deletes simply evict, and the next read reloads. Entries
+ * are capped; going over the cap evicts arbitrary entries, which again only costs
+ * a reload.
+ */
+@Component
+public class UnreadUpdateCounter {
+
+    private final UpdateReadService updateReadService;
+    private final int maxEntries;
+    private final Map<Key, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    public UnreadUpdateCounter(UpdateReadService updateReadService,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.updates.unread-counter.max-entries:50000}") int maxEntries) {
+        this.updateReadService = updateReadService;
+        this.maxEntries = maxEntries;
+
+        Gauge.builder("rhine.updates.unread.cached", counts, Map::size)
+                .description("(user, project) unread counts held in memory")
+                .register(meterRegistry);
+    }
+
+    public int get(String userEmail, Long projectId) {
+        Key key = new Key(userEmail.toLowerCase(), projectId);
+        AtomicInteger count = counts.get(key);
+        if (count == null) {
+            trimToCapacity();
+            count = counts.computeIfAbsent(key, k -> new AtomicInteger(
+                    (int) updateReadService.countUnread(k.userEmail(), k.projectId())));
+        }
+        return Math.max(count.get(), 0);
+    }
+
+    /**
+     * Adjusts a loaded count. Counts that are not loaded are left alone: the next
+     * {@link #get} reads the committed state anyway.
+     */
+    public void adjust(String userEmail, Long projectId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        AtomicInteger count = counts.get(new Key(userEmail.toLowerCase(), projectId));
+        if (count != null) {
+            count.addAndGet(delta);
+        }
+    }
+
+    public void evict(String userEmail, Long projectId) {
+        counts.remove(new Key(userEmail.toLowerCase(), projectId));
+    }
+
+    public void evictAll() {
+        counts.clear();
+    }
+
+    @EventListener
+    public void onPurgeCompleted(RetentionService.PurgeCompleted event) {
+        if ("project-updates".equals(event.policyName())) {
+            evictAll();
+        }
+    }
+
+    private void trimToCapacity() {
+        if (counts.size() < maxEntries) {
+            return;
+        }
+        Iterator<Key> it = counts.keySet().iterator();
+        for (int excess = counts.size() - maxEntries + 1; excess > 0 && it.hasNext(); excess--) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private record Key(String userEmail, Long projectId) {}
+}
@@ -0,0 +1,196 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import com.tskmgmnt.rhine.notification.enums.UpdateCategory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds related updates for the same recipient for a short window and persists
+ * them as one digest ("You were assigned to 10 tasks") instead of one row and
+ * one frame per edit.
+ * <p>
+ * Updates are grouped by (project, recipient, category, actor). The first update
+ * of a group opens its window; when the window closes a group holding a single
+ * message is written as-is and larger groups are written as the category's digest.
+ * The number of open groups is bounded: once full, new groups skip the window and
+ * go straight to the writer.
+ */
+@Component
+public class UpdateCoalescer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpdateCoalescer.class);
+
+    private final ProjectUpdateWriter projectUpdateWriter;
+    private final long windowMillis;
+    private final int maxPendingGroups;
+    private final Map<GroupKey, PendingGroup> pending = new ConcurrentHashMap<>();
+
+    private final Counter mergedCounter;
+    private final Counter bypassedCounter;
+
+    private volatile boolean running;
+    private ScheduledExecutorService flusher;
+
+    public UpdateCoalescer(ProjectUpdateWriter projectUpdateWriter,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.updates.coalesce.window-ms:3000}") long windowMillis,
+                           @Value("${application.updates.coalesce.max-pending:10000}") int maxPendingGroups) {
+        this.projectUpdateWriter = projectUpdateWriter;
+        this.windowMillis = windowMillis;
+        this.maxPendingGroups = maxPendingGroups;
+
+        Gauge.builder("rhine.updates.coalesce.pending", pending, Map::size)
+                .description("Recipient groups waiting for their coalescing window to close")
+                .register(meterRegistry);
+        this.mergedCounter = Counter.builder("rhine.updates.coalesce.merged")
+                .description("Updates folded into another update's digest")
+                .register(meterRegistry);
+        this.bypassedCounter = Counter.builder("rhine.updates.coalesce.bypassed")
+                .description("Updates written directly because the coalescing buffer was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return {@code false} if the update could not be buffered or queued
+     */
+    public boolean submit(Long projectId, String recipientEmail, String message, UpdateCategory category, String actor) {
+        if (!running || windowMillis <= 0 || !category.isCoalescable()) {
+            return projectUpdateWriter.enqueue(new ProjectUpdate(projectId, recipientEmail, message));
+        }
+
+        GroupKey key = new GroupKey(projectId, recipientEmail, category, actor);
+        boolean[] merged = {false};
+        PendingGroup group = pending.compute(key, (k, existing) -> {
+            if (existing != null) {
+                merged[0] = existing.add(message);
+                return existing;
+            }
+            if (pending.size() >= maxPendingGroups) {
+                return null;
+            }
+            return new PendingGroup(message, System.currentTimeMillis() + windowMillis);
+        });
+
+        if (group == null) {
+            bypassedCounter.increment();
+            return projectUpdateWriter.enqueue(new ProjectUpdate(projectId, recipientEmail, message));
+        }
+        if (merged[0]) {
+            mergedCounter.increment();
+        }
+        return true;
+    }
+
+    private void flushExpired() {
+        flush(System.currentTimeMillis());
+    }
+
+    private void flush(long now) {
+        List<GroupKey> due = new ArrayList<>();
+        pending.forEach((key, group) -> {
+            if (group.deadline <= now) {
+                due.add(key);
+            }
+        });
+        for (GroupKey key : due) {
+            PendingGroup group = pending.remove(key);
+            if (group != null) {
+                projectUpdateWriter.enqueue(new ProjectUpdate(key.projectId(), key.recipientEmail(), group.render(key)));
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "UpdateCoalescer");
+            t.setDaemon(true);
+            return t;
+        });
+        long tick = Math.max(windowMillis / 10, 50);
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flushExpired();
+            } catch (Exception e) {
+                logger.error("Failed to flush coalesced updates: {}", e.getMessage());
+            }
+        }, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Hand everything still open to the writer, which stops after us.
+        flush(Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private record GroupKey(Long projectId, String recipientEmail, UpdateCategory category, String actor) {}
+
+    private static final class PendingGroup {
+
+        // Distinct messages are tracked so re-editing the same task is not counted twice;
+        // past this many only the count grows.
+        private static final int MAX_TRACKED_MESSAGES = 256;
+
+        private final Set<String> messages = new LinkedHashSet<>();
+        private final long deadline;
+        private int overflow;
+
+        PendingGroup(String message, long deadline) {
+            this.messages.add(message);
+            this.deadline = deadline;
+        }
+
+        boolean add(String message) {
+            if (messages.size() < MAX_TRACKED_MESSAGES) {
+                return messages.add(message);
+            }
+            if (!messages.contains(message)) {
+                overflow++;
+                return true;
+            }
+            return false;
+        }
+
+        String render(GroupKey key) {
+            int count = messages.size() + overflow;
+            return count == 1 ? messages.iterator().next() : key.category().digest(key.actor(), count);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import com.tskmgmnt.rhine.notification.entity.UpdateReadMarker;
+import com.tskmgmnt.rhine.notification.repository.ProjectUpdateRepository;
+import com.tskmgmnt.rhine.notification.repository.UpdateReadMarkerRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tracks which project updates a user has read using a "read up to" watermark
+ * over the time-ordered update ids, instead of a flag on every row.
+ */
+@Service
+public class UpdateReadService {
+
+    private final UpdateReadMarkerRepository updateReadMarkerRepository;
+    private final ProjectUpdateRepository projectUpdateRepository;
+
+    public UpdateReadService(UpdateReadMarkerRepository updateReadMarkerRepository,
+                             ProjectUpdateRepository projectUpdateRepository) {
+        this.updateReadMarkerRepository = updateReadMarkerRepository;
+        this.projectUpdateRepository = projectUpdateRepository;
+    }
+
+    public long countUnread(String userEmail, Long projectId) {
+        String email = userEmail.toLowerCase();
+        UpdateReadMarker marker = updateReadMarkerRepository.findByUserEmailAndProjectId(email, projectId).orElse(null);
+        if (marker == null) {
+            return projectUpdateRepository.countByProjectIdAndUserEmailAndIdGreaterThan(projectId, email, 0L);
+        }
+        if (marker.getReadAbove().isEmpty()) {
+            return projectUpdateRepository.countByProjectIdAndUserEmailAndIdGreaterThan(projectId, email, marker.getReadUpTo());
+        }
+        return projectUpdateRepository.countByProjectIdAndUserEmailAndIdGreaterThanAndIdNotIn(
+                projectId, email, marker.getReadUpTo(), marker.getReadAbove());
+    }
+
+    /**
+     * Fills in the transient read flag of each update from the user's marker.
+     */
+    public void applyReadState(String userEmail, Long projectId, List<ProjectUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        updateReadMarkerRepository.findByUserEmailAndProjectId(userEmail.toLowerCase(), projectId)
+                .ifPresent(marker -> updates.forEach(u -> u.setIsRead(marker.isRead(u.getId()))));
+    }
+
+    /**
+     * Moves the watermark to the newest update the user has been shown,
+     * {@code upTo}, or to the newest committed one if the client did not say.
+     * <p>
+     * A "now" id would be wrong: ids are assigned before commit, so an update
+     * created just before this call but committed just after it would be marked
+     * read unseen. The watermark never passes the newest committed id either, so
+     * a client cannot mark updates that do not exist yet.
+     */
+    @Transactional
+    public void markAllRead(String userEmail, Long projectId, Long upTo) {
+        String email = userEmail.toLowerCase();
+        Long newest = projectUpdateRepository.findMaxId(projectId, email);
+        if (newest == null) {
+            return;
+        }
+        long readUpTo = upTo != null ? Math.min(upTo, newest) : newest;
+        UpdateReadMarker marker = lockMarker(email, projectId);
+        if (readUpTo <= marker.getReadUpTo()) {
+            return;
+        }
+        marker.setReadUpTo(readUpTo);
+        // Reads above the new watermark are still needed.
+        marker.getReadAbove().removeIf(id -> id <= readUpTo);
+        updateReadMarkerRepository.save(marker);
+    }
+
+    /**
+     * Marks individual updates as read.
+     *
+     * @return how many of the ids were unread before this call
+     */
+    @Transactional
+    public int markRead(String userEmail, Long projectId, Collection<Long> updateIds) {
+        String email = userEmail.toLowerCase();
+        UpdateReadMarker marker = lockMarker(email, projectId);
+
+        // Only ids that really belong to this feed and sit above the watermark are recorded.
+        List<Long> ownIds = projectUpdateRepository.findOwnIdsAfter(projectId, email, marker.getReadUpTo(), updateIds);
+        int newlyRead = 0;
+        for (Long id : ownIds) {
+            if (marker.getReadAbove().add(id)) {
+                newlyRead++;
+            }
+        }
+        if (newlyRead > 0) {
+            compact(marker);
+            updateReadMarkerRepository.save(marker);
+        }
+        return newlyRead;
+    }
+
+    @Transactional
+    public void clear(String userEmail, Long projectId) {
+        String email = userEmail.toLowerCase();
+        updateReadMarkerRepository.deleteExceptions(email, projectId);
+        updateReadMarkerRepository.deleteMarker(email, projectId);
+    }
+
+    /**
+     * Advances the watermark over the run of read ids directly above it, so the
+     * exception set only holds reads that are genuinely out of order. Exceptions
+     * for rows that have since been purged are dropped on the way.
+     */
+    private void compact(UpdateReadMarker marker) {
+        Set<Long> readAbove = marker.getReadAbove();
+        int limit = readAbove.size() + 1;
+        List<Long> ids = projectUpdateRepository.findIdsAfter(
+                marker.getProjectId(), marker.getUserEmail(), marker.getReadUpTo(), Limit.of(limit));
+
+        long watermark = marker.getReadUpTo();
+        // Rows above the last fetched one may exist but were not looked at.
+        long firstUnread = ids.size() < limit ? Long.MAX_VALUE : ids.get(ids.size() - 1);
+        for (Long id : ids) {
+            if (!readAbove.remove(id)) {
+                firstUnread = id;
+                break;
+            }
+            watermark = id;
+        }
+        marker.setReadUpTo(watermark);
+
+        // The scan lists every row between the watermark and the first unread one, so
+        // exceptions in that range that were not matched point at purged rows.
+        for (Iterator<Long> it = readAbove.iterator(); it.hasNext(); ) {
+            if (it.next() < firstUnread) {
+                it.remove();
+            }
+        }
+    }
+
+    private UpdateReadMarker lockMarker(String email, Long projectId) {
+        return updateReadMarkerRepository.findForUpdate(email, projectId)
+                .orElseGet(() -> updateReadMarkerRepository.save(new UpdateReadMarker(email, projectId)));
+    }
+}
@@ -1,95 +1,179 @@
 package com.tskmgmnt.rhine.notification.service;
 
+import com.tskmgmnt.rhine.core.cache.ExpiringKeySet;
+import com.tskmgmnt.rhine.core.cache.Hash64;
+import com.tskmgmnt.rhine.notification.dto.UpdateFeedPage;
 import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import com.tskmgmnt.rhine.notification.enums.UpdateCategory;
 import com.tskmgmnt.rhine.notification.repository.ProjectUpdateRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 
-import java.time.Instant;
+import java.time.Duration;
 
 @Service
 public class UpdateService {
 
     private final ProjectUpdateRepository projectUpdateRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final EventOutbox eventOutbox;
+    private final UpdateCoalescer updateCoalescer;
+    private final UnreadUpdateCounter unreadUpdateCounter;
+    private final UpdateReadService updateReadService;
 
-    private final ConcurrentHashMap<String, Instant> recentUpdates = new ConcurrentHashMap<>();
+    private final ExpiringKeySet recentUpdates;
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UpdateService.class);
 
-    public UpdateService(ProjectUpdateRepository projectUpdateRepository, SimpMessagingTemplate messagingTemplate) {
+    public UpdateService(ProjectUpdateRepository projectUpdateRepository,
+                         EventOutbox eventOutbox,
+                         UpdateCoalescer updateCoalescer,
+                         UnreadUpdateCounter unreadUpdateCounter,
+                         UpdateReadService updateReadService,
+                         ProjectUpdateWriter projectUpdateWriter,
+                         MeterRegistry meterRegistry,
+                         @Value("${application.updates.dedupe.window-seconds:30}") int dedupeWindowSeconds,
+                         @Value("${application.updates.dedupe.max-entries:100000}") int dedupeMaxEntries) {
         this.projectUpdateRepository = projectUpdateRepository;
-        this.messagingTemplate = messagingTemplate;
+        this.eventOutbox = eventOutbox;
+        this.updateCoalescer = updateCoalescer;
+        this.unreadUpdateCounter = unreadUpdateCounter;
+        this.updateReadService = updateReadService;
+        Duration dedupeWindow = Duration.ofSeconds(dedupeWindowSeconds);
+        // One-second buckets, plus one so a key always survives at least the full window.
+        this.recentUpdates = new ExpiringKeySet(dedupeWindow.plusSeconds(1), dedupeWindowSeconds + 1, dedupeMaxEntries);
+        // An update that was never saved must not hold back the same update sent again.
+        projectUpdateWriter.onDropped(update ->
+                recentUpdates.remove(dedupeKey(update.getProjectId(), update.getUserEmail(), update.getMessage())));
+
+        Gauge.builder("rhine.updates.dedupe.entries", recentUpdates, ExpiringKeySet::size)
+                .description("Keys currently held by the update dedupe window")
+                .register(meterRegistry);
+        Gauge.builder("rhine.updates.dedupe.capacity", recentUpdates, ExpiringKeySet::capacity)
+                .register(meterRegistry);
+        FunctionCounter.builder("rhine.updates.dedupe.hits", recentUpdates, ExpiringKeySet::hits)
+                .description("Updates skipped as duplicates")
+                .register(meterRegistry);
+        FunctionCounter.builder("rhine.updates.dedupe.evictions", recentUpdates, ExpiringKeySet::evictedEntries)
+                .description("Keys dropped early because the dedupe window hit its memory cap")
+                .register(meterRegistry);
     }
 
     public List<ProjectUpdate> getUpdatesForUserInProject(String userEmail, Long projectId) {
-        return projectUpdateRepository.findByProjectIdAndUserEmailOrderByCreatedAtDesc(projectId, userEmail);
+        List<ProjectUpdate> updates = projectUpdateRepository.findByProjectIdAndUserEmailOrderByCreatedAtDesc(projectId, userEmail);
+        updateReadService.applyReadState(userEmail, projectId, updates);
+        return updates;
     }
 
-    @Transactional
-    public void markUpdatesAsRead(List<Long> updateIds, String userEmail) {
+    /**
+     * One page of the user's update feed, newest first. Pages are keyed on the
+     * (time-ordered) update id rather than an offset, so each page is a single
+     * range scan of the (project_id, user_email, id) index.
+     */
+    public UpdateFeedPage getUpdateFeed(String userEmail, Long projectId, Long before, int limit) {
+        // Fetch one extra row to learn whether an older page exists.
+        Limit fetch = Limit.of(limit + 1);
+        List<ProjectUpdate> rows = before == null
+                ? projectUpdateRepository.findByProjectIdAndUserEmailOrderByIdDesc(projectId, userEmail, fetch)
+                : projectUpdateRepository.findByProjectIdAndUserEmailAndIdLessThanOrderByIdDesc(projectId, userEmail, before, fetch);
+
+        List<ProjectUpdate> page = rows.size() > limit ? rows.subList(0, limit) : rows;
+        updateReadService.applyReadState(userEmail, projectId, page);
+        return new UpdateFeedPage(page, rows.size() > limit ? page.get(limit - 1).getId() : null);
+    }
+
+    public int getUnreadCount(String userEmail, Long projectId) {
+        return unreadUpdateCounter.get(userEmail, projectId);
+    }
+
+    public void markUpdatesAsRead(Long projectId, List<Long> updateIds, String userEmail) {
         if (updateIds != null && !updateIds.isEmpty()) {
-            projectUpdateRepository.markAsRead(updateIds, userEmail);
+            int newlyRead = updateReadService.markRead(userEmail, projectId, updateIds);
+            unreadUpdateCounter.adjust(userEmail, projectId, -newlyRead);
         }
     }
 
+    public void markAllUpdatesAsRead(Long projectId, String userEmail, Long upTo) {
+        updateReadService.markAllRead(userEmail, projectId, upTo);
+        unreadUpdateCounter.evict(userEmail, projectId);
+    }
+
     public void createAndSendUpdate(Long projectId, String recipientEmail, String message) {
+        createAndSendUpdate(projectId, recipientEmail, message, UpdateCategory.GENERAL, null);
+    }
+
+    /**
+     * Queues an update for the recipient. Updates of a coalescable category from the
+     * same actor are merged with others arriving within the coalescing window.
+     * Inside a transaction the update is only queued once it commits, so a rolled
+     * back change neither leaves an update behind nor holds its dedupe key.
+     */
+    public void createAndSendUpdate(Long projectId, String recipientEmail, String message, UpdateCategory category, String actor) {
         if (recipientEmail == null || message == null) return;
         
         String normalizedEmail = recipientEmail.toLowerCase();
-        String cacheKey = String.format("%d|%s|%s", projectId, normalizedEmail, message);
-        Instant now = Instant.now();
-        Instant cutoff = now.minusSeconds(30);
+        long dedupeKey = dedupeKey(projectId, normalizedEmail, message);
 
-        Instant lastSent = recentUpdates.get(cacheKey);
-        if (lastSent != null && lastSent.isAfter(cutoff)) {
+        if (!recentUpdates.add(dedupeKey)) {
             logger.info("Skipping duplicate update (cached): {} for {}", message, normalizedEmail);
             return;
         }
 
-        synchronized (this) {
-            List<ProjectUpdate> recent = projectUpdateRepository.findByProjectIdAndUserEmailOrderByCreatedAtDesc(projectId, normalizedEmail);
-            boolean exists = recent.stream()
-                .anyMatch(u -> u.getMessage().equals(message) && u.getCreatedAt().isAfter(cutoff));
-            
-            if (exists) {
-                logger.info("Skipping duplicate update (db): {} for {}", message, normalizedEmail);
-                recentUpdates.put(cacheKey, now);
-                return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(projectId, normalizedEmail, message, category, actor, dedupeKey);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(projectId, normalizedEmail, message, category, actor, dedupeKey);
             }
 
-            logger.info("Creating update: {} for {}", message, normalizedEmail);
-            ProjectUpdate update = new ProjectUpdate(projectId, normalizedEmail, message);
-            ProjectUpdate savedUpdate = projectUpdateRepository.saveAndFlush(update);
-            recentUpdates.put(cacheKey, now);
-
-            recentUpdates.entrySet().removeIf(entry -> entry.getValue().isBefore(now.minusSeconds(60)));
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    recentUpdates.remove(dedupeKey);
+                }
+            }
+        });
+    }
 
-            String destination = String.format("/topic/project/%d/updates/%s", projectId, normalizedEmail);
-            messagingTemplate.convertAndSend(destination, savedUpdate);
+    private void submit(Long projectId, String normalizedEmail, String message, UpdateCategory category,
+                        String actor, long dedupeKey) {
+        logger.info("Queueing update: {} for {}", message, normalizedEmail);
+        if (!updateCoalescer.submit(projectId, normalizedEmail, message, category, actor)) {
+            recentUpdates.remove(dedupeKey);
         }
     }
 
+    private static long dedupeKey(Long projectId, String normalizedEmail, String message) {
+        return Hash64.mix(Hash64.mix(Hash64.mix(Hash64.SEED, projectId == null ? 0L : projectId), normalizedEmail), message);
+    }
+
     public void sendProjectBroadcast(Long projectId, Object payload) {
-        String destination = String.format("/topic/project/%d/members", projectId);
-        messagingTemplate.convertAndSend(destination, payload);
+        // Identical broadcasts in the same window carry no extra information.
+        eventOutbox.toProject(projectId, "members", payload, payload);
     }
 
     public void sendEvictionNotice(Long projectId, String userEmail) {
-        String destination = String.format("/topic/user/%s/eviction", userEmail);
-        messagingTemplate.convertAndSend(destination, projectId);
+        eventOutbox.toUser(userEmail, projectId, "eviction", projectId);
     }
 
     public void sendTaskEvictionNotice(Long taskId, String userEmail) {
-        String destination = String.format("/topic/user/%s/task-eviction", userEmail);
-        messagingTemplate.convertAndSend(destination, taskId);
+        eventOutbox.toUser(userEmail, null, "task-eviction", taskId);
     }
 
     @Transactional
     public void deleteUpdatesForUserInProject(String userEmail, Long projectId) {
         projectUpdateRepository.deleteByProjectIdAndUserEmail(projectId, userEmail);
+        updateReadService.clear(userEmail, projectId);
+        unreadUpdateCounter.evict(userEmail, projectId);
     }
 }
@@ -1,13 +0,0 @@
-package com.tskmgmnt.rhine.otp.repository;
-
-import com.tskmgmnt.rhine.otp.entity.Otp;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
-
-import java.util.Optional;
-
-@Repository
-public interface OtpRepository extends JpaRepository<Otp, Long> {
-    Optional<Otp> findByEmail(String email);
-    void deleteByEmail(String email);
-}
@@ -1,50 +1,38 @@
 package com.tskmgmnt.rhine.otp.service;
 
 import com.tskmgmnt.rhine.core.service.MailService;
-import com.tskmgmnt.rhine.otp.entity.Otp;
-import com.tskmgmnt.rhine.otp.repository.OtpRepository;
+import com.tskmgmnt.rhine.core.service.ShortLivedCredentialStore;
 
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.Random;
+import java.security.SecureRandom;
+import java.time.Duration;
 
 @Service
 public class OtpService {
 
-    private final OtpRepository otpRepository;
+    private static final String PURPOSE = "otp";
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    private final ShortLivedCredentialStore credentialStore;
     private final MailService mailService;
+    private final SecureRandom random = new SecureRandom();
 
-    public OtpService(OtpRepository otpRepository, MailService mailService) {
-        this.otpRepository = otpRepository;
+    public OtpService(ShortLivedCredentialStore credentialStore, MailService mailService) {
+        this.credentialStore = credentialStore;
         this.mailService = mailService;
     }
 
+    /** Issues a new code for the email, replacing any earlier one. */
     public void generateOtp(String email) {
-        otpRepository.findByEmail(email).ifPresent(otpRepository::delete);
-
-        String otpCode = String.format("%06d", new Random().nextInt(999999));
-        LocalDateTime expiryDate = LocalDateTime.now().plusMinutes(15);
-
-        Otp otp = new Otp(email, otpCode, expiryDate);
-        otpRepository.save(otp);
+        String otpCode = String.format("%06d", random.nextInt(1_000_000));
+        credentialStore.put(PURPOSE, email, otpCode, TTL);
 
         mailService.sendOtpEmail(email, otpCode);
     }
 
+    /** Checks the code and uses it up if it matches; expired codes never match. */
     public boolean validateOtp(String email, String otpCode) {
-        return otpRepository.findByEmail(email)
-                .map(otp -> {
-                    if (otp.getExpiryDate().isBefore(LocalDateTime.now())) {
-                        otpRepository.delete(otp);
-                        return false;
-                    }
-                    if (otp.getOtpCode().equals(otpCode)) {
-                        otpRepository.delete(otp);
-                        return true;
-                    }
-                    return false;
-                })
-                .orElse(false);
+        return credentialStore.consumeIfMatches(PURPOSE, email, otpCode);
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +14,7 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
     @Query("SELECT p, (SELECT COUNT(m) FROM ProjectMember m WHERE m.project = p AND m.status = 'ACTIVE') " +
            "FROM Project p JOIN p.members mem WHERE mem.user.email = :email AND mem.status = 'ACTIVE'")
     List<Object[]> findProjectsWithMemberCountByUserEmail(@Param("email") String email);
+
+    @Query("SELECT p.id, p.name FROM Project p WHERE p.id IN :ids")
+    List<Object[]> findNamesByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -1,5 +1,7 @@
 package com.tskmgmnt.rhine.task.service;
 import com.tskmgmnt.rhine.notification.dto.NotificationDto;
+import com.tskmgmnt.rhine.notification.enums.UpdateCategory;
+import com.tskmgmnt.rhine.notification.service.EventOutbox;
 import com.tskmgmnt.rhine.user.entity.User;
 import com.tskmgmnt.rhine.user.repository.UserRepository;
 import com.tskmgmnt.rhine.task.dto.TaskDto;
@@ -15,8 +17,8 @@ import com.tskmgmnt.rhine.core.exception.BadRequestException;
 import com.tskmgmnt.rhine.core.exception.ConflictException;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -29,7 +31,7 @@ public class TaskService {
     private final UserRepository userRepository;
     private final ProjectRepository projectRepository;
     private final ProjectMemberRepository projectMemberRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final EventOutbox eventOutbox;
     private final UpdateService updateService;
 
     @Autowired
@@ -37,16 +39,17 @@ public class TaskService {
                        UserRepository userRepository,
                        ProjectRepository projectRepository,
                        ProjectMemberRepository projectMemberRepository,
-                       SimpMessagingTemplate messagingTemplate,
+                       EventOutbox eventOutbox,
                        UpdateService updateService) {
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
         this.projectRepository = projectRepository;
         this.projectMemberRepository = projectMemberRepository;
-        this.messagingTemplate = messagingTemplate;
+        this.eventOutbox = eventOutbox;
         this.updateService = updateService;
     }
 
+    @Transactional
     public TaskDto createTask(Long projectId, TaskDto taskReq, String requestingUserEmail) {
         projectMemberRepository.findByUserEmailAndProjectId(requestingUserEmail, projectId)
                 .filter(m -> m.getProjectRole() == ProjectRole.PROJECT_ADMIN)
@@ -81,12 +84,12 @@ public class TaskService {
 
         Task savedTask = taskRepository.save(task);
 
-        messagingTemplate.convertAndSend("/topic/task-created",
+        sendToProject(savedTask, "task-created",
                 new NotificationDto<>("TASK_CREATED", mapToTaskResponse(savedTask)));
 
         if (savedTask.getAssignee() != null && !savedTask.getAssignee().getEmail().equals(requestingUserEmail)) {
             String message = String.format("You were assigned to %s", savedTask.getTitle());
-            updateService.createAndSendUpdate(projectId, savedTask.getAssignee().getEmail(), message);
+            updateService.createAndSendUpdate(projectId, savedTask.getAssignee().getEmail(), message, UpdateCategory.ASSIGNED, null);
         }
 
         return mapToTaskResponse(savedTask);
@@ -150,6 +153,7 @@ public class TaskService {
         return mapToTaskResponse(task);
     }
 
+    @Transactional
     public TaskDto updateTaskById(Long id, TaskDto taskReq, String modifierEmail) {
         Task existingTask = taskRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Task not found"));
@@ -189,12 +193,12 @@ public class TaskService {
 
                 if (!assignee.getEmail().equals(modifierEmail)) {
                      String message = String.format("You were assigned to %s", existingTask.getTitle());
-                     updateService.createAndSendUpdate(projectId, assignee.getEmail(), message);
+                     updateService.createAndSendUpdate(projectId, assignee.getEmail(), message, UpdateCategory.ASSIGNED, null);
                 }
 
                 if (formerAssignee != null && !formerAssignee.getEmail().equals(modifierEmail)) {
                     String unassignedMsg = String.format("You were unassigned from %s", existingTask.getTitle());
-                    updateService.createAndSendUpdate(projectId, formerAssignee.getEmail(), unassignedMsg);
+                    updateService.createAndSendUpdate(projectId, formerAssignee.getEmail(), unassignedMsg, UpdateCategory.UNASSIGNED, null);
                     updateService.sendTaskEvictionNotice(existingTask.getId(), formerAssignee.getEmail());
                 }
             }
@@ -202,17 +206,18 @@ public class TaskService {
             existingTask.setAssignee(null);
             if (formerAssignee != null && !formerAssignee.getEmail().equals(modifierEmail)) {
                 String unassignedMsg = String.format("You were unassigned from %s", existingTask.getTitle());
-                updateService.createAndSendUpdate(projectId, formerAssignee.getEmail(), unassignedMsg);
+                updateService.createAndSendUpdate(projectId, formerAssignee.getEmail(), unassignedMsg, UpdateCategory.UNASSIGNED, null);
                 updateService.sendTaskEvictionNotice(existingTask.getId(), formerAssignee.getEmail());
             }
         }
         Task updatedTask = taskRepository.save(existingTask);
         TaskDto taskResponse = mapToTaskResponse(updatedTask);
-        messagingTemplate.convertAndSend("/topic/task-updated",
+        sendToProject(updatedTask, "task-updated",
                 new NotificationDto<>("TASK_UPDATED", taskResponse));
         return taskResponse;
     }
 
+    @Transactional
     public TaskDto updateStatusById(Long id, TaskDto taskReq, String modifierEmail) {
         Task task = taskRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Task not found"));
@@ -226,7 +231,7 @@ public class TaskService {
         task.setTaskStatus(taskReq.getTaskStatus());
         Task updatedTask = taskRepository.save(task);
 
-        messagingTemplate.convertAndSend("/topic/task-status-updated",
+        sendToProject(updatedTask, "task-status-updated",
                 new NotificationDto<>("TASK_STATUS_UPDATED", mapToTaskResponse(updatedTask)));
 
         Long projectId = task.getProject() != null ? task.getProject().getId() : null;
@@ -252,18 +257,18 @@ public class TaskService {
                     taskReq.getTaskStatus().name());
 
             if (assignee != null && assignee.getEmail().equals(modifierEmail) && creator != null) {
-                updateService.createAndSendUpdate(projectId, creator.getEmail(), message);
+                updateService.createAndSendUpdate(projectId, creator.getEmail(), message, UpdateCategory.STATUS_CHANGED, firstName);
             } 
             else if (creator != null && creator.getEmail().equals(modifierEmail) && assignee != null) {
-                updateService.createAndSendUpdate(projectId, assignee.getEmail(), message);
+                updateService.createAndSendUpdate(projectId, assignee.getEmail(), message, UpdateCategory.STATUS_CHANGED, firstName);
             }
             else {
                  if (creator != null && !creator.getEmail().equals(modifierEmail)) {
-                     updateService.createAndSendUpdate(projectId, creator.getEmail(), message);
+                     updateService.createAndSendUpdate(projectId, creator.getEmail(), message, UpdateCategory.STATUS_CHANGED, firstName);
                  }
                  if (assignee != null && !assignee.getEmail().equals(modifierEmail) && 
                      (creator == null || !assignee.getEmail().equals(creator.getEmail()))) {
-                     updateService.createAndSendUpdate(projectId, assignee.getEmail(), message);
+                     updateService.createAndSendUpdate(projectId, assignee.getEmail(), message, UpdateCategory.STATUS_CHANGED, firstName);
                  }
             }
         }
@@ -271,6 +276,7 @@ public class TaskService {
         return mapToTaskResponse(updatedTask);
     }
 
+    @Transactional
     public TaskDto updateIsNewState(Long id, TaskDto taskReq, String modifierEmail) {
         Task task = taskRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Task not found"));
@@ -288,7 +294,7 @@ public class TaskService {
         response.setId(updatedTaskState.getId());
         response.setIsNew(updatedTaskState.getIsNew());
         
-        messagingTemplate.convertAndSend("/topic/task-new-state",
+        sendToProject(updatedTaskState, "task-new-state",
                 new NotificationDto<>("TASK_NEW_STATE", response));
         return response;
     }
@@ -308,6 +314,7 @@ public class TaskService {
         return response;
     }
 
+    @Transactional
     public Task deleteTaskById(Long id, String requestingUserEmail) {
         Task task = taskRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Task not found"));
@@ -323,7 +330,7 @@ public class TaskService {
         
         try {
             System.out.println("Task deleted successfully: " + task.getId());
-            messagingTemplate.convertAndSend("/topic/task-deleted",
+            sendToProject(task, "task-deleted",
                     new NotificationDto<>("TASK_DELETED", response.getId()));
         } catch (Exception e) {
             System.err.println("Error sending delete notification: " + e.getMessage());
@@ -331,4 +338,10 @@ public class TaskService {
         
         return task;
     }
-}
\ No newline at end of file
+
+    private void sendToProject(Task task, String event, Object payload) {
+        if (task.getProject() != null) {
+            eventOutbox.toProject(task.getProject().getId(), event, task.getId(), payload);
+        }
+    }
+}
@@ -18,7 +18,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
-import java.util.Collections;
 import java.util.List;
 import java.util.Base64;
 
@@ -88,8 +87,8 @@ public class UserController {
         String currentPassword = new String(Base64.getDecoder().decode(request.getCurrentPassword()));
         String newPassword = new String(Base64.getDecoder().decode(request.getNewPassword()));
         
-        String data = userService.changePassword(email, currentPassword, newPassword);
-        return ResponseEntity.ok(Collections.singletonMap("message", data));
+        String token = userService.changePassword(email, currentPassword, newPassword);
+        return ResponseEntity.ok(Map.of("message", "Password changed successfully.", "token", token));
     }
 
 
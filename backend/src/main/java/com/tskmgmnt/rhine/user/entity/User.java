@@ -33,6 +33,10 @@ public class User implements UserDetails {
     @JsonFormat(shape = JsonFormat.Shape.STRING)
     private Long lastProjectId;
 
+    @Column(nullable = false)
+    @JsonIgnore
+    private int tokenVersion = 0;
+
     @OneToMany(mappedBy = "createdBy", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
     private List<Task> tasks;
@@ -89,6 +93,14 @@ public class User implements UserDetails {
         this.lastProjectId = lastProjectId;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public List<Task> getTasks() {
         return tasks;
     }
@@ -1,10 +1,40 @@
 package com.tskmgmnt.rhine.user.repository;
 import com.tskmgmnt.rhine.user.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository <User, String> {
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.email = :email")
+    Optional<Integer> findTokenVersionByEmail(@Param("email") String email);
+
+    /** Swaps the hash only if it is still the one that was checked, so a concurrent password change wins. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.pwd = :newHash WHERE u.email = :email AND u.pwd = :oldHash")
+    int replacePasswordHash(@Param("email") String email, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    /**
+     * The next verified users after {@code after}, in email order, who received
+     * project updates with ids in {@code [fromId, toId)} or unread comments
+     * created in {@code [from, to)}, as {@code [email, name]}.
+     */
+    @Query("SELECT u.email, u.name FROM User u WHERE u.email > :after AND u.isVerified = true AND (" +
+            "EXISTS (SELECT 1 FROM ProjectUpdate p WHERE p.userEmail = u.email AND p.id >= :fromId AND p.id < :toId) " +
+            "OR EXISTS (SELECT 1 FROM Comment c WHERE c.recipient = u AND c.isReadByRecipient = false " +
+            "AND c.createdAt >= :from AND c.createdAt < :to)) ORDER BY u.email")
+    List<Object[]> findDigestRecipients(@Param("after") String after,
+                                        @Param("fromId") Long fromId, @Param("toId") Long toId,
+                                        @Param("from") Instant from, @Param("to") Instant to, Limit limit);
 }
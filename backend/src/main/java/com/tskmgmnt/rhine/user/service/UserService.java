@@ -1,11 +1,13 @@
 package com.tskmgmnt.rhine.user.service;
+import com.tskmgmnt.rhine.auth.service.JwtService;
+import com.tskmgmnt.rhine.auth.service.PasswordHashingService;
+import com.tskmgmnt.rhine.auth.service.TokenVersionCache;
 import com.tskmgmnt.rhine.user.dto.UserRes;
 import com.tskmgmnt.rhine.user.entity.User;
 import com.tskmgmnt.rhine.user.repository.UserRepository;
 import com.tskmgmnt.rhine.core.exception.ResourceNotFoundException;
 import com.tskmgmnt.rhine.core.exception.BadRequestException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,11 +16,16 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final JwtService jwtService;
+    private final TokenVersionCache tokenVersionCache;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                       JwtService jwtService, TokenVersionCache tokenVersionCache) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.jwtService = jwtService;
+        this.tokenVersionCache = tokenVersionCache;
     }
 
     public List<User> getAllUsers() {
@@ -50,21 +57,28 @@ public class UserService {
         return response;
     }
 
+    /**
+     * Changes the password and signs out every other session. Returns a fresh token
+     * so the caller's own session carries on.
+     */
     public String changePassword(String email, String currentPassword, String newPassword) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
 
-        if (!passwordEncoder.matches(currentPassword, user.getPwd())) {
+        if (!passwordHashingService.matches(currentPassword, user.getPwd())) {
             throw new BadRequestException("Incorrect current password.");
         }
 
-        if (passwordEncoder.matches(newPassword, user.getPwd())) {
+        // The current password was just verified, so comparing with it avoids a second hash check.
+        if (newPassword.equals(currentPassword)) {
             throw new BadRequestException("New password cannot be the same as the old password.");
         }
 
-        user.setPwd(passwordEncoder.encode(newPassword));
+        user.setPwd(passwordHashingService.encode(newPassword));
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
-        return "Password changed successfully.";
+        tokenVersionCache.invalidate(user.getEmail());
+        return jwtService.generateToken(user);
     }
 
     public void updateLastProjectId(String email, Long projectId) {
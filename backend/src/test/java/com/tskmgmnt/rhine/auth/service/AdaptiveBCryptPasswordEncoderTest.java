@@ -0,0 +1,58 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveBCryptPasswordEncoderTest {
+
+    @Test
+    void testCalibrationStaysWithinBounds() {
+        AdaptiveBCryptPasswordEncoder fast = AdaptiveBCryptPasswordEncoder.calibrated(Duration.ofNanos(1), 4, 6);
+        AdaptiveBCryptPasswordEncoder slow = AdaptiveBCryptPasswordEncoder.calibrated(Duration.ofHours(1), 4, 6);
+
+        assertEquals(4, fast.getCost());
+        assertEquals(6, slow.getCost());
+        assertEquals(6, AdaptiveBCryptPasswordEncoder.costOf(slow.encode("secret")));
+    }
+
+    @Test
+    void testLegacyAndOtherCostHashesAreUpgraded() {
+        AdaptiveBCryptPasswordEncoder bcrypt = new AdaptiveBCryptPasswordEncoder(5);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.<String, PasswordEncoder>of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        String legacy = new AdaptiveBCryptPasswordEncoder(4).encode("secret");
+        String current = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + new AdaptiveBCryptPasswordEncoder(6).encode("secret")));
+        assertTrue(encoder.matches("secret", current));
+        assertFalse(encoder.upgradeEncoding(current));
+    }
+
+    @Test
+    void testCostWithinToleranceIsNotRehashed() {
+        AdaptiveBCryptPasswordEncoder bcrypt = new AdaptiveBCryptPasswordEncoder(6, 5, 7);
+
+        assertTrue(bcrypt.upgradeEncoding(new AdaptiveBCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(bcrypt.upgradeEncoding(new AdaptiveBCryptPasswordEncoder(5).encode("secret")));
+        assertFalse(bcrypt.upgradeEncoding(new AdaptiveBCryptPasswordEncoder(7).encode("secret")));
+        assertTrue(bcrypt.upgradeEncoding(new AdaptiveBCryptPasswordEncoder(8).encode("secret")));
+    }
+
+    @Test
+    void testNodesCalibratedDifferentlyKeepEachOthersHashes() {
+        AdaptiveBCryptPasswordEncoder small = AdaptiveBCryptPasswordEncoder.calibrated(Duration.ofNanos(1), 4, 6);
+        AdaptiveBCryptPasswordEncoder large = AdaptiveBCryptPasswordEncoder.calibrated(Duration.ofHours(1), 4, 6);
+
+        assertFalse(small.upgradeEncoding(large.encode("secret")));
+        assertFalse(large.upgradeEncoding(small.encode("secret")));
+    }
+}
@@ -0,0 +1,75 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import com.tskmgmnt.rhine.core.exception.ResourceNotFoundException;
+import com.tskmgmnt.rhine.core.service.InMemoryCredentialStore;
+import com.tskmgmnt.rhine.core.service.MailService;
+import com.tskmgmnt.rhine.otp.service.OtpService;
+import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
+import com.tskmgmnt.rhine.user.entity.User;
+import com.tskmgmnt.rhine.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AuthServiceTest {
+
+    private UserRepository userRepository;
+    private PasswordHashingService passwordHashingService;
+    private MailService mailService;
+    private InMemoryCredentialStore credentialStore;
+    private AuthService authService;
+    private User alice;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        passwordHashingService = mock(PasswordHashingService.class);
+        mailService = mock(MailService.class);
+        credentialStore = new InMemoryCredentialStore(new SimpleMeterRegistry(), 1000, 64);
+        authService = new AuthService(userRepository, passwordHashingService, mock(JwtService.class),
+                mock(OtpService.class), mock(ProjectMemberRepository.class), credentialStore, mailService,
+                mock(TokenVersionCache.class), mock(TokenRevocationService.class));
+
+        alice = new User("Alice", "alice@example.com", "old-hash");
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(alice));
+        when(passwordHashingService.encode("new password")).thenReturn("new-hash");
+    }
+
+    @Test
+    void testOnlyTheLatestResetLinkWorks() {
+        String first = requestReset();
+        String second = requestReset();
+
+        assertThrows(ResourceNotFoundException.class, () -> authService.validateResetToken(first));
+        assertThrows(ResourceNotFoundException.class, () -> authService.resetPassword(first, "new password"));
+        assertEquals("old-hash", alice.getPwd());
+
+        authService.validateResetToken(second);
+        authService.resetPassword(second, "new password");
+        assertEquals("new-hash", alice.getPwd());
+        assertThrows(ResourceNotFoundException.class, () -> authService.resetPassword(second, "new password"));
+    }
+
+    @Test
+    void testRawTokenIsNotStoredAsAValue() {
+        String token = requestReset();
+
+        String stored = credentialStore.peek("reset-token-user", "alice@example.com").orElseThrow();
+        assertNotEquals(token, stored);
+        assertFalse(stored.contains(token));
+    }
+
+    private String requestReset() {
+        clearInvocations(mailService);
+        authService.forgotPassword("alice@example.com");
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(mailService).sendPasswordResetEmail(eq("alice@example.com"), token.capture());
+        return token.getValue();
+    }
+}
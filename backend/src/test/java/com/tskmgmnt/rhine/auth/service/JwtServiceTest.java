@@ -0,0 +1,70 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtServiceTest {
+
+    private static final String SECRET = "testing_dummy_secret_key_which_is_at_least_256_bits_long!";
+    private static final UserDetails ALICE = new User("alice@example.com", "x", List.of());
+
+    private AtomicLong now;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(1_700_000_000_000L);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testRepeatVerificationIsServedFromCache() {
+        JwtService jwtService = new JwtService(SECRET, 60_000, 60_000, 100, meterRegistry, now::get);
+        String token = jwtService.generateToken(ALICE);
+
+        assertEquals("alice@example.com", jwtService.verify(token).getSubject());
+        assertEquals("alice@example.com", jwtService.verify(token).getSubject());
+        assertEquals(1.0, meterRegistry.get("rhine.auth.jwt.cache").tag("result", "miss").counter().count());
+        assertEquals(1.0, meterRegistry.get("rhine.auth.jwt.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testCachedTokenStillExpires() {
+        JwtService jwtService = new JwtService(SECRET, 60_000, 60_000, 100, meterRegistry, now::get);
+        String token = jwtService.generateToken(ALICE);
+        jwtService.verify(token);
+
+        now.addAndGet(61_000);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        JwtService jwtService = new JwtService(SECRET, 60_000, 60_000, 100, meterRegistry, now::get);
+        JwtService otherKey = new JwtService(SECRET.replace('!', '?'), 60_000, 60_000, 100, new SimpleMeterRegistry(), now::get);
+
+        assertThrows(JwtException.class, () -> jwtService.verify(otherKey.generateToken(ALICE)));
+    }
+
+    @Test
+    void testCacheStaysBounded() {
+        JwtService jwtService = new JwtService(SECRET, 60_000, 60_000, 10, meterRegistry, now::get);
+        for (int i = 0; i < 50; i++) {
+            now.incrementAndGet();
+            jwtService.verify(jwtService.generateToken(ALICE));
+        }
+
+        assertTrue(meterRegistry.get("rhine.auth.jwt.cache.size").gauge().value() <= 10);
+    }
+}
@@ -0,0 +1,83 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import com.tskmgmnt.rhine.core.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHashingServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private PasswordHashingService service;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void testUnknownUserIsRejectedAfterADummyCheck() {
+        service = new PasswordHashingService(new PlainEncoder(null), new SimpleMeterRegistry(), 1, 4);
+        service.start();
+
+        assertFalse(service.matches("secret", null));
+        assertTrue(service.matches("secret", "{plain}secret"));
+    }
+
+    @Test
+    void testSaturatedPoolFailsFast() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        service = new PasswordHashingService(new PlainEncoder(release), meterRegistry, 1, 1);
+        service.start();
+
+        // One check running, one queued.
+        callers.submit(() -> service.matches("a", "{plain}a"));
+        callers.submit(() -> service.matches("b", "{plain}b"));
+        waitUntil(() -> meterRegistry.get("rhine.auth.hashing.queued").gauge().value() == 1);
+
+        assertThrows(ServiceUnavailableException.class, () -> service.matches("c", "{plain}c"));
+        assertEquals(1.0, meterRegistry.get("rhine.auth.hashing.rejected").counter().count());
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    /** Stands in for BCrypt; optionally blocks until released. */
+    private record PlainEncoder(CountDownLatch gate) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "{plain}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.tskmgmnt.rhine.auth.service;
+
+import com.tskmgmnt.rhine.auth.dto.AuthenticatedUser;
+import com.tskmgmnt.rhine.auth.repository.RevokedTokenRepository;
+import com.tskmgmnt.rhine.user.entity.User;
+import com.tskmgmnt.rhine.user.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TokenAuthenticationServiceTest {
+
+    private static final String SECRET = "testing_dummy_secret_key_which_is_at_least_256_bits_long!";
+
+    private UserRepository userRepository;
+    private RevokedTokenRepository revokedTokenRepository;
+    private JwtService jwtService;
+    private TokenRevocationService tokenRevocationService;
+    private TokenAuthenticationService tokenAuthenticationService;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        userRepository = mock(UserRepository.class);
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        jwtService = new JwtService(SECRET, 60_000, 60_000, 100, meterRegistry);
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, meterRegistry, 100, 0.001, 2000);
+        tokenRevocationService.start();
+        tokenAuthenticationService = new TokenAuthenticationService(jwtService,
+                new TokenVersionCache(userRepository, meterRegistry, 60_000, 100), tokenRevocationService);
+    }
+
+    @Test
+    void testPrincipalIsBuiltFromClaims() {
+        User alice = new User("Alice", "alice@example.com", "hash");
+        alice.setVerified(true);
+        when(userRepository.findTokenVersionByEmail("alice@example.com")).thenReturn(Optional.of(0));
+
+        String token = jwtService.generateToken(alice);
+        AuthenticatedUser user = tokenAuthenticationService.authenticate(token);
+        tokenAuthenticationService.authenticate(token);
+
+        assertEquals("alice@example.com", user.getName());
+        assertEquals("Alice", user.getDisplayName());
+        assertTrue(user.isVerified());
+        verify(userRepository, times(1)).findTokenVersionByEmail("alice@example.com");
+        verify(userRepository, never()).findByEmail(any());
+        verify(revokedTokenRepository, never()).existsByJti(any());
+    }
+
+    @Test
+    void testTokenFromBeforePasswordChangeIsRejected() {
+        User alice = new User("Alice", "alice@example.com", "hash");
+        when(userRepository.findTokenVersionByEmail("alice@example.com")).thenReturn(Optional.of(1));
+
+        String token = jwtService.generateToken(alice);
+
+        assertThrows(BadCredentialsException.class, () -> tokenAuthenticationService.authenticate(token));
+    }
+
+    @Test
+    void testSignedOutTokenIsRejected() {
+        User alice = new User("Alice", "alice@example.com", "hash");
+        when(userRepository.findTokenVersionByEmail("alice@example.com")).thenReturn(Optional.of(0));
+        String signedOut = jwtService.generateToken(alice);
+        String other = jwtService.generateToken(alice);
+        Claims claims = jwtService.verify(signedOut);
+
+        tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+        when(revokedTokenRepository.existsByJti(claims.getId())).thenReturn(true);
+
+        assertThrows(BadCredentialsException.class, () -> tokenAuthenticationService.authenticate(signedOut));
+        assertEquals("alice@example.com", tokenAuthenticationService.authenticate(other).getName());
+    }
+
+    @Test
+    void testTokenRevokedElsewhereIsRejectedBeforeTheFilterIsLoaded() {
+        User alice = new User("Alice", "alice@example.com", "hash");
+        when(userRepository.findTokenVersionByEmail("alice@example.com")).thenReturn(Optional.of(0));
+        String token = jwtService.generateToken(alice);
+        when(revokedTokenRepository.existsByJti(jwtService.verify(token).getId())).thenReturn(true);
+
+        // Signed out on another node; this one has not loaded its filter yet.
+        TokenRevocationService starting = new TokenRevocationService(revokedTokenRepository, new SimpleMeterRegistry(),
+                100, 0.001, 2000);
+        TokenAuthenticationService beforeStart = new TokenAuthenticationService(jwtService,
+                new TokenVersionCache(userRepository, new SimpleMeterRegistry(), 60_000, 100), starting);
+
+        assertThrows(BadCredentialsException.class, () -> beforeStart.authenticate(token));
+    }
+
+    @Test
+    void testConcurrentSignOutOfTheSameTokenIsNotAnError() {
+        User alice = new User("Alice", "alice@example.com", "hash");
+        when(userRepository.findTokenVersionByEmail("alice@example.com")).thenReturn(Optional.of(0));
+        String token = jwtService.generateToken(alice);
+        Claims claims = jwtService.verify(token);
+        // The other logout inserted the row after our existence check.
+        when(revokedTokenRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate jti"));
+        when(revokedTokenRepository.existsByJti(claims.getId())).thenReturn(false, true);
+
+        assertDoesNotThrow(() -> tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant()));
+        assertThrows(BadCredentialsException.class, () -> tokenAuthenticationService.authenticate(token));
+    }
+
+    @Test
+    void testStreamTokenOnlyOpensItsProjectStream() {
+        User alice = new User("Alice", "alice@example.com", "hash");
+        when(userRepository.findTokenVersionByEmail("alice@example.com")).thenReturn(Optional.of(0));
+        AuthenticatedUser principal = tokenAuthenticationService.authenticate(jwtService.generateToken(alice));
+
+        String streamToken = jwtService.generateStreamToken(principal, 1L);
+
+        assertEquals("alice@example.com", tokenAuthenticationService.authenticateStream(streamToken, 1L).getName());
+        assertThrows(BadCredentialsException.class, () -> tokenAuthenticationService.authenticateStream(streamToken, 2L));
+        assertThrows(BadCredentialsException.class, () -> tokenAuthenticationService.authenticate(streamToken));
+        assertThrows(BadCredentialsException.class,
+                () -> tokenAuthenticationService.authenticateStream(jwtService.generateToken(alice), 1L));
+    }
+}
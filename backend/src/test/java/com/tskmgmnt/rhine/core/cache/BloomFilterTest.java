@@ -0,0 +1,39 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    void testAddedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(1_000, 0.001);
+
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("token-" + i);
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(filter.mightContain("token-" + i));
+        }
+        assertFalse(filter.isSaturated());
+        assertFalse(filter.add("token-7"));
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("live-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
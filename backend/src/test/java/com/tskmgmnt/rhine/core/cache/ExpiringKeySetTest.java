@@ -0,0 +1,101 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringKeySetTest {
+
+    private AtomicLong now;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(1_000_000L);
+    }
+
+    @Test
+    void testRepeatWithinWindowIsRejected() {
+        ExpiringKeySet set = new ExpiringKeySet(Duration.ofSeconds(30), 30, 100, now::get);
+
+        assertTrue(set.add(42L));
+        now.addAndGet(29_000);
+        assertFalse(set.add(42L));
+        assertEquals(1, set.hits());
+    }
+
+    @Test
+    void testKeysExpireWithTheirBucket() {
+        ExpiringKeySet set = new ExpiringKeySet(Duration.ofSeconds(30), 30, 100, now::get);
+
+        set.add(1L);
+        set.add(2L);
+        now.addAndGet(31_000);
+
+        assertFalse(set.contains(1L));
+        assertTrue(set.add(1L));
+        assertTrue(set.add(3L));
+    }
+
+    @Test
+    void testWrappedBucketIsClearedWholesale() {
+        ExpiringKeySet set = new ExpiringKeySet(Duration.ofSeconds(4), 4, 100, now::get);
+
+        set.add(1L);
+        set.add(2L);
+        assertEquals(2, set.size());
+
+        now.addAndGet(4_000);
+        set.add(3L);
+
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void testMemoryCapEvictsOldestBucketFirst() {
+        ExpiringKeySet set = new ExpiringKeySet(Duration.ofSeconds(10), 10, 3, now::get);
+
+        set.add(1L);
+        set.add(2L);
+        now.addAndGet(1_000);
+        set.add(3L);
+        set.add(4L);
+
+        assertEquals(2, set.size());
+        assertEquals(2, set.evictedEntries());
+        assertFalse(set.contains(1L));
+        assertTrue(set.contains(4L));
+    }
+
+    @Test
+    void testFullCurrentBucketRejectsWithoutGrowing() {
+        ExpiringKeySet set = new ExpiringKeySet(Duration.ofSeconds(10), 10, 2, now::get);
+
+        assertTrue(set.add(1L));
+        assertTrue(set.add(2L));
+        assertTrue(set.add(3L));
+
+        assertEquals(2, set.size());
+        assertEquals(1, set.rejected());
+    }
+
+    @Test
+    void testRemoveAndRehashAcrossGrowth() {
+        ExpiringKeySet set = new ExpiringKeySet(Duration.ofSeconds(10), 10, 10_000, now::get);
+
+        for (long key = 0; key < 1_000; key++) {
+            assertTrue(set.add(key * 31));
+        }
+        for (long key = 0; key < 1_000; key += 2) {
+            set.remove(key * 31);
+        }
+
+        assertEquals(500, set.size());
+        for (long key = 0; key < 1_000; key++) {
+            assertEquals(key % 2 == 1, set.contains(key * 31));
+        }
+    }
+}
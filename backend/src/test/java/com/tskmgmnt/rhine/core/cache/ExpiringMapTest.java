@@ -0,0 +1,53 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringMapTest {
+
+    private AtomicLong now;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(1_000_000L);
+    }
+
+    @Test
+    void testEntriesExpireOnReadAndAreSweptWhenDue() {
+        ExpiringMap<String> map = new ExpiringMap<>(Duration.ofSeconds(1), 8, now::get);
+        map.put("otp:alice", "123456", Duration.ofSeconds(3));
+        map.put("otp:bob", "654321", Duration.ofSeconds(20));
+
+        now.addAndGet(2_000);
+        assertEquals(0, map.advance());
+        assertEquals("123456", map.get("otp:alice"));
+
+        now.addAndGet(1_000);
+        assertNull(map.get("otp:alice"));
+        assertEquals(0, map.advance());
+
+        // bob's deadline is more than one rotation out; its slot is passed over until then.
+        now.addAndGet(17_000);
+        assertEquals(1, map.advance());
+        assertEquals(0, map.size());
+        assertEquals(1, map.expired());
+    }
+
+    @Test
+    void testReplacedEntryIsNotSweptWithTheOldDeadline() {
+        ExpiringMap<String> map = new ExpiringMap<>(Duration.ofSeconds(1), 8, now::get);
+        map.put("otp:alice", "111111", Duration.ofSeconds(2));
+        map.put("otp:alice", "222222", Duration.ofSeconds(10));
+
+        now.addAndGet(5_000);
+        assertEquals(0, map.advance());
+        assertFalse(map.removeIf("otp:alice", "111111"::equals));
+        assertTrue(map.removeIf("otp:alice", "222222"::equals));
+        assertNull(map.get("otp:alice"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.tskmgmnt.rhine.core.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketLimiterTest {
+
+    private AtomicLong now;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+    }
+
+    @Test
+    void testBurstUpToCapacityThenRefillsOneTokenPerInterval() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, Duration.ofSeconds(30), 100, now::get);
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(TimeUnit.SECONDS.toNanos(10), limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.2"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+    }
+
+    @Test
+    void testIdleBucketsAreEvictedAndNewKeysOverflowWhenFull() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, Duration.ofSeconds(10), 2, now::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("b"));
+        // The map is full and nothing has refilled: new keys share one bucket.
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertTrue(limiter.tryAcquire("d") > 0);
+        assertEquals(2, limiter.size());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        limiter.evictIdle();
+        assertEquals(0, limiter.size());
+        assertEquals(0, limiter.tryAcquire("d"));
+    }
+
+    @Test
+    void testSaturatedLimiterThatAllowsOverflowDoesNotLockOutNewKeys() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, Duration.ofSeconds(10), 2,
+                TokenBucketLimiter.Overflow.ALLOW, now::get);
+
+        // An attacker fills the map with made-up keys and exhausts them.
+        assertEquals(0, limiter.tryAcquire("made-up-1@example.com"));
+        assertEquals(0, limiter.tryAcquire("made-up-2@example.com"));
+        assertEquals(0, limiter.tryAcquire("made-up-3@example.com"));
+        assertEquals(0, limiter.tryAcquire("made-up-4@example.com"));
+
+        // A real user arriving meanwhile is not throttled along with them.
+        assertEquals(0, limiter.tryAcquire("alice@example.com"));
+        assertEquals(0, limiter.tryAcquire("alice@example.com"));
+        assertEquals(2, limiter.size());
+        // Keys that do have a bucket are still limited.
+        assertTrue(limiter.tryAcquire("made-up-1@example.com") > 0);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        limiter.evictIdle();
+        assertEquals(0, limiter.tryAcquire("alice@example.com"));
+        assertTrue(limiter.tryAcquire("alice@example.com") > 0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.tskmgmnt.rhine.core.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrecompiledTemplateTest {
+
+    private SpringTemplateEngine templateEngine;
+
+    @BeforeEach
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+    }
+
+    @Test
+    void testRendersTheSameAsThymeleaf() {
+        assertSameAsEngine("otp-email", Map.of("otpCode", "482913"));
+        assertSameAsEngine("reset-password", Map.of(
+                "resetLink", "http://localhost:5173/reset-password?token=a&b=\"c\"<d>'e'"));
+        assertSameAsEngine("invite-email", Map.of(
+                "projectName", "R&D <Tools> \"Ünïcode\" 'quoted'",
+                "role", "MEMBER",
+                "inviteLink", "http://localhost:5173/accept-invite?token=x&y=1"));
+    }
+
+    @Test
+    void testTemplatesThatDependOnTheirValuesAreNotCompiled() {
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(new StringTemplateResolver());
+
+        assertNotNull(PrecompiledTemplate.compile(templateEngine, "<p th:text=\"${name}\">x</p>", "name"));
+        assertNull(PrecompiledTemplate.compile(templateEngine, "<p th:utext=\"${name}\">x</p>", "name"));
+        assertNull(PrecompiledTemplate.compile(templateEngine, "<p th:text=\"${name.toUpperCase()}\">x</p>", "name"));
+        assertNull(PrecompiledTemplate.compile(templateEngine, "<p th:text=\"${#strings.abbreviate(name, 12)}\">x</p>", "name"));
+        assertNull(PrecompiledTemplate.compile(templateEngine,
+                "<p th:text=\"${name.length() > 40 ? 'long' : name}\">x</p>", "name"));
+        assertNull(PrecompiledTemplate.compile(templateEngine, "<p th:text=\"${name}\">x</p>", "name", "unused"));
+    }
+
+    @Test
+    void testRefusesValuesItWasNotCompiledFor() {
+        PrecompiledTemplate template = PrecompiledTemplate.compile(templateEngine, "otp-email", "otpCode");
+        assertNotNull(template);
+
+        Map<String, String> withNull = new HashMap<>();
+        withNull.put("otpCode", null);
+        assertFalse(template.accepts(withNull));
+        assertFalse(template.accepts(Map.of("code", "1")));
+        assertFalse(template.accepts(Map.of("otpCode", "1", "extra", "2")));
+        assertTrue(template.accepts(Map.of("otpCode", "1")));
+    }
+
+    private void assertSameAsEngine(String name, Map<String, String> values) {
+        PrecompiledTemplate template = PrecompiledTemplate.compile(templateEngine, name, values.keySet().toArray(String[]::new));
+        assertNotNull(template, name);
+
+        Context context = new Context();
+        values.forEach(context::setVariable);
+        assertEquals(templateEngine.process(name, context), template.render(values), name);
+    }
+}
@@ -0,0 +1,172 @@
+package com.tskmgmnt.rhine.core.service;
+
+import com.tskmgmnt.rhine.core.config.RetentionPolicy;
+import com.tskmgmnt.rhine.core.config.TsidGenerator;
+import com.tskmgmnt.rhine.core.entity.RetentionCheckpoint;
+import com.tskmgmnt.rhine.core.repository.RetentionCheckpointRepository;
+import com.tskmgmnt.rhine.notification.entity.OutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RetentionServiceTest {
+
+    private static final RetentionPolicy OUTBOX_HOUR =
+            new RetentionPolicy("outbox", OutboxEvent.class, "createdAt", Duration.ofHours(1), true);
+
+    /** The purged table: id to createdAt, ids taken at createdAt as in production. */
+    private TreeMap<Long, Instant> rows;
+    private Map<String, RetentionCheckpoint> checkpoints;
+    private Query delete;
+    private RetentionService retentionService;
+    private Instant now;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        rows = new TreeMap<>();
+        checkpoints = new HashMap<>();
+        now = Instant.now();
+
+        RetentionCheckpointRepository checkpointRepository = mock(RetentionCheckpointRepository.class);
+        when(checkpointRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(checkpoints.get(invocation.<String>getArgument(0))));
+        when(checkpointRepository.save(any(RetentionCheckpoint.class))).thenAnswer(invocation -> {
+            RetentionCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.put(checkpoint.getPolicyName(), checkpoint);
+            return checkpoint;
+        });
+
+        EntityManager entityManager = mock(EntityManager.class);
+        Metamodel metamodel = mock(Metamodel.class);
+        EntityType<OutboxEvent> entityType = mock(EntityType.class);
+        Attribute<OutboxEvent, Instant> createdAt = mock(Attribute.class);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        when(metamodel.entity(OutboxEvent.class)).thenReturn(entityType);
+        when(entityType.getName()).thenReturn("OutboxEvent");
+        doReturn(createdAt).when(entityType).getAttribute("createdAt");
+        when(createdAt.getJavaType()).thenReturn(Instant.class);
+
+        Map<String, Object> params = new HashMap<>();
+        TypedQuery<Long> select = mock(TypedQuery.class);
+        when(entityManager.createQuery(startsWith("SELECT"), eq(Long.class))).thenReturn(select);
+        when(select.setParameter(anyString(), any())).thenAnswer(invocation -> {
+            params.put(invocation.getArgument(0), invocation.getArgument(1));
+            return select;
+        });
+        when(select.setMaxResults(anyInt())).thenAnswer(invocation -> {
+            params.put("max", invocation.getArgument(0));
+            return select;
+        });
+        when(select.getResultList()).thenAnswer(invocation -> rows.entrySet().stream()
+                .filter(row -> row.getKey() > (long) params.get("after"))
+                .filter(row -> row.getKey() < (long) params.get("before"))
+                .filter(row -> row.getValue().isBefore((Instant) params.get("cutoff")))
+                .map(Map.Entry::getKey)
+                .limit((int) params.get("max"))
+                .toList());
+
+        delete = mock(Query.class);
+        when(entityManager.createQuery(startsWith("DELETE"))).thenReturn(delete);
+        when(delete.setParameter(eq("ids"), any())).thenAnswer(invocation -> {
+            params.put("ids", invocation.getArgument(1));
+            return delete;
+        });
+        when(delete.executeUpdate()).thenAnswer(invocation -> {
+            Collection<Long> ids = (Collection<Long>) params.get("ids");
+            ids.forEach(rows::remove);
+            return ids.size();
+        });
+
+        retentionService = new RetentionService(List.of(OUTBOX_HOUR), checkpointRepository, entityManager,
+                mock(PlatformTransactionManager.class), mock(ApplicationEventPublisher.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(retentionService, "chunkSize", 2);
+        ReflectionTestUtils.setField(retentionService, "pauseMillis", 0L);
+    }
+
+    private long row(Duration age) {
+        Instant createdAt = now.minus(age);
+        long id = TsidGenerator.floorOf(createdAt.toEpochMilli()) + rows.size();
+        rows.put(id, createdAt);
+        return id;
+    }
+
+    @Test
+    void testExpiredRowsAreDeletedInChunks() {
+        for (int i = 0; i < 5; i++) {
+            row(Duration.ofHours(3).minusMinutes(i));
+        }
+        long fresh = row(Duration.ofMinutes(5));
+
+        assertEquals(5, retentionService.purge(OUTBOX_HOUR));
+
+        assertEquals(List.of(fresh), List.copyOf(rows.keySet()));
+        // Two full chunks, then the last one.
+        verify(delete, times(3)).executeUpdate();
+        RetentionCheckpoint checkpoint = checkpoints.get("outbox");
+        assertEquals(5, checkpoint.getRowsDeleted());
+        assertNotNull(checkpoint.getCompletedAt());
+    }
+
+    @Test
+    void testInterruptedRunResumesFromItsCheckpoint() {
+        long kept = row(Duration.ofHours(5));
+        long lastDeleted = row(Duration.ofHours(4));
+        row(Duration.ofHours(3));
+        row(Duration.ofMinutes(150));
+        long newerThanSavedCutoff = row(Duration.ofMinutes(90));
+
+        // The previous run stopped after lastDeleted, with the cutoff it started with.
+        RetentionCheckpoint checkpoint = new RetentionCheckpoint("outbox");
+        checkpoint.setCutoff(now.minus(Duration.ofHours(2)));
+        checkpoint.setLastDeletedId(lastDeleted);
+        checkpoint.setRowsDeleted(1);
+        checkpoint.setStartedAt(now.minus(Duration.ofMinutes(10)));
+        checkpoints.put("outbox", checkpoint);
+
+        assertEquals(2, retentionService.purge(OUTBOX_HOUR));
+
+        // Nothing at or below the checkpoint is selected again, and the saved cutoff still applies.
+        assertEquals(List.of(kept, lastDeleted, newerThanSavedCutoff), List.copyOf(rows.keySet()));
+        assertEquals(3, checkpoints.get("outbox").getRowsDeleted());
+        assertNotNull(checkpoints.get("outbox").getCompletedAt());
+    }
+
+    @Test
+    void testCutoffFollowsEachPolicyMaxAge() {
+        long day = row(Duration.ofDays(2));
+        long hours = row(Duration.ofHours(3));
+        long recent = row(Duration.ofMinutes(30));
+
+        retentionService.purge(new RetentionPolicy("outbox-week", OutboxEvent.class, "createdAt", Duration.ofDays(7), true));
+        assertEquals(List.of(day, hours, recent), List.copyOf(rows.keySet()));
+
+        retentionService.purge(new RetentionPolicy("outbox-day", OutboxEvent.class, "createdAt", Duration.ofDays(1), true));
+        assertEquals(List.of(hours, recent), List.copyOf(rows.keySet()));
+
+        retentionService.purge(OUTBOX_HOUR);
+        assertEquals(List.of(recent), List.copyOf(rows.keySet()));
+    }
+}
@@ -0,0 +1,206 @@
+package com.tskmgmnt.rhine.core.service;
+
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpConnectionTest {
+
+    private SmtpStub server;
+    private JavaMailSenderImpl mailSender;
+    private AtomicInteger connects;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new SmtpStub();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(server.port());
+        connects = new AtomicInteger();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void testMessagesShareOneConnection() throws Exception {
+        try (SmtpConnection connection = new SmtpConnection(mailSender, 60_000, connects::incrementAndGet)) {
+            connection.send(message("alice@example.com"));
+            connection.send(message("bob@example.com"));
+            connection.send(message("carol@example.com"));
+        }
+
+        assertEquals(3, server.messages.get());
+        assertEquals(1, server.connections.get());
+        assertEquals(1, connects.get());
+    }
+
+    @Test
+    void testReconnectsWhenTheServerDropsTheConnection() throws Exception {
+        server.dropAfterMessage = true;
+        try (SmtpConnection connection = new SmtpConnection(mailSender, 60_000, connects::incrementAndGet)) {
+            connection.send(message("alice@example.com"));
+            connection.send(message("bob@example.com"));
+        }
+
+        assertEquals(2, server.messages.get());
+        assertEquals(2, connects.get());
+    }
+
+    @Test
+    void testReconnectsAfterIdleTimeout() throws Exception {
+        long[] now = {0};
+        try (SmtpConnection connection = new SmtpConnection(mailSender, 1_000, connects::incrementAndGet, () -> now[0])) {
+            connection.send(message("alice@example.com"));
+            now[0] += 500;
+            connection.closeIfIdle();
+            connection.send(message("bob@example.com"));
+            now[0] += 2_000;
+            connection.closeIfIdle();
+            connection.send(message("carol@example.com"));
+        }
+
+        assertEquals(3, server.messages.get());
+        assertEquals(2, connects.get());
+    }
+
+    @Test
+    void testRefusedRecipientIsReportedAsPermanent() throws Exception {
+        try (SmtpConnection connection = new SmtpConnection(mailSender, 60_000, connects::incrementAndGet)) {
+            SendFailedException e = assertThrows(SendFailedException.class,
+                    () -> connection.send(message("nobody@rejected.example")));
+            assertTrue(SmtpConnection.isPermanent(e));
+        }
+
+        assertEquals(0, server.messages.get());
+    }
+
+    @Test
+    void testGreylistedRecipientIsRetried() throws Exception {
+        try (SmtpConnection connection = new SmtpConnection(mailSender, 60_000, connects::incrementAndGet)) {
+            SendFailedException e = assertThrows(SendFailedException.class,
+                    () -> connection.send(message("alice@greylist.example")));
+            assertFalse(SmtpConnection.isPermanent(e));
+
+            // The retry the delivery worker schedules is accepted.
+            connection.send(message("alice@greylist.example"));
+        }
+
+        assertEquals(1, server.messages.get());
+    }
+
+    private MimeMessage message(String to) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("rhine@example.com");
+        helper.setTo(to);
+        helper.setSubject("Test");
+        helper.setText("<p>Hello</p>", true);
+        return message;
+    }
+
+    /**
+     * Just enough of an SMTP server to accept messages, one session at a time.
+     * Recipients at {@code rejected.example} are refused; those at
+     * {@code greylist.example} are told to try again later the first time.
+     */
+    private static final class SmtpStub implements AutoCloseable {
+
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger messages = new AtomicInteger();
+        volatile boolean dropAfterMessage;
+
+        private final Set<String> greylisted = ConcurrentHashMap.newKeySet();
+
+        private final ServerSocket socket;
+
+        SmtpStub() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread thread = new Thread(this::serve, "SmtpStub");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void serve() {
+            while (!socket.isClosed()) {
+                try (Socket client = socket.accept()) {
+                    connections.incrementAndGet();
+                    session(client);
+                } catch (IOException e) {
+                    // Closed by the client or by close().
+                }
+            }
+        }
+
+        private void session(Socket client) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = client.getOutputStream();
+            reply(out, "220 stub ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "RCPT" -> {
+                        if (line.contains("@rejected.example")) {
+                            reply(out, "550 no such user");
+                        } else if (line.contains("@greylist.example") && greylisted.add(line)) {
+                            reply(out, "450 greylisted, try again later");
+                        } else {
+                            reply(out, "250 ok");
+                        }
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 go ahead");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Message content is not inspected.
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 queued");
+                        if (dropAfterMessage) {
+                            return;
+                        }
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 bye");
+                        return;
+                    }
+                    default -> reply(out, "250 ok");
+                }
+            }
+        }
+
+        private static void reply(OutputStream out, String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.tskmgmnt.rhine.notification.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tskmgmnt.rhine.auth.config.JwtAuthenticationFilter;
+import com.tskmgmnt.rhine.auth.repository.RevokedTokenRepository;
+import com.tskmgmnt.rhine.auth.service.JwtService;
+import com.tskmgmnt.rhine.auth.service.TokenAuthenticationService;
+import com.tskmgmnt.rhine.auth.service.TokenRevocationService;
+import com.tskmgmnt.rhine.auth.service.TokenVersionCache;
+import com.tskmgmnt.rhine.notification.dto.EventReplay;
+import com.tskmgmnt.rhine.notification.service.EventReplayService;
+import com.tskmgmnt.rhine.notification.service.ProjectEventStream;
+import com.tskmgmnt.rhine.project.repository.ProjectMemberRepository;
+import com.tskmgmnt.rhine.user.entity.User;
+import com.tskmgmnt.rhine.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.servletapi.SecurityContextHolderAwareRequestWrapper;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ProjectEventStreamControllerTest {
+
+    private static final String SECRET = "testing_dummy_secret_key_which_is_at_least_256_bits_long!";
+
+    private EventReplayService eventReplayService;
+    private ProjectEventStream projectEventStream;
+    private JwtService jwtService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findTokenVersionByEmail("alice@example.com")).thenReturn(Optional.of(0));
+        ProjectMemberRepository projectMemberRepository = mock(ProjectMemberRepository.class);
+        when(projectMemberRepository.existsByUserEmailAndProjectId("alice@example.com", 1L)).thenReturn(true);
+
+        jwtService = new JwtService(SECRET, 60_000, 60_000, 100, meterRegistry);
+        TokenAuthenticationService tokenAuthenticationService = new TokenAuthenticationService(jwtService,
+                new TokenVersionCache(userRepository, meterRegistry, 60_000, 100),
+                new TokenRevocationService(mock(RevokedTokenRepository.class), meterRegistry, 100, 0.001, 2000));
+
+        eventReplayService = mock(EventReplayService.class);
+        projectEventStream = new ProjectEventStream(eventReplayService, new ObjectMapper(), meterRegistry,
+                60_000, 60_000, 16, 10);
+        projectEventStream.start();
+
+        // Exposes the authentication the JWT filter sets as the request's principal, as Spring Security does.
+        Filter principal = (request, response, chain) ->
+                chain.doFilter(new SecurityContextHolderAwareRequestWrapper((HttpServletRequest) request, ""), response);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ProjectEventStreamController(projectEventStream, projectMemberRepository, jwtService))
+                .addFilters(new JwtAuthenticationFilter(tokenAuthenticationService), principal)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        projectEventStream.stop();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testStreamTokenOpensStreamAndResumesAfterLastEventId() throws Exception {
+        String bearer = jwtService.generateToken(new User("Alice", "alice@example.com", "hash"));
+        String body = mockMvc.perform(post("/api/projects/1/events/token").header("Authorization", "Bearer " + bearer))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        SecurityContextHolder.clearContext();
+        String streamToken = new ObjectMapper().readTree(body).get("token").asText();
+
+        when(eventReplayService.replaySince(1L, 5L)).thenReturn(new EventReplay(1L, 7L, true, List.of(
+                new EventReplay.Frame(6L, "task-updated", List.of("a")),
+                new EventReplay.Frame(7L, "task-updated", List.of("b")))));
+
+        MvcResult result = mockMvc.perform(get("/api/projects/1/events")
+                        .param(JwtAuthenticationFilter.STREAM_TOKEN_PARAM, streamToken)
+                        .header("Last-Event-ID", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Frame 7 was replayed already and is not sent twice.
+        projectEventStream.publish(1L, "task-updated", List.of("b"), 7L);
+        projectEventStream.publish(1L, "task-updated", List.of("c"), 8L);
+
+        String stream = awaitContent(result, "id:8");
+        assertEquals(List.of("data:[\"a\"]", "data:[\"b\"]", "data:[\"c\"]"),
+                stream.lines().filter(l -> l.startsWith("data:[")).toList());
+        assertTrue(stream.indexOf("data:[\"a\"]") < stream.indexOf("event:replay"));
+        assertTrue(stream.indexOf("event:replay") < stream.indexOf("data:[\"c\"]"));
+        verify(eventReplayService).replaySince(1L, 5L);
+    }
+
+    @Test
+    void testRemovedMemberStreamIsEnded() throws Exception {
+        when(eventReplayService.replaySince(1L, null)).thenReturn(new EventReplay(1L, 0L, true, List.of()));
+        String bearer = jwtService.generateToken(new User("Alice", "alice@example.com", "hash"));
+        MvcResult result = mockMvc.perform(get("/api/projects/1/events").header("Authorization", "Bearer " + bearer))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        projectEventStream.publish(1L, "task-updated", List.of("a"), 1L);
+        awaitContent(result, "id:1\n");
+
+        projectEventStream.disconnect("alice@example.com", 1L);
+        result.getAsyncResult(5_000);
+        projectEventStream.publish(1L, "task-updated", List.of("b"), 2L);
+
+        assertFalse(result.getResponse().getContentAsString().contains("data:[\"b\"]"));
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        assertTrue(content.contains(expected), content);
+        return content;
+    }
+}
@@ -0,0 +1,182 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.github.f4b6a3.tsid.TsidCreator;
+import com.tskmgmnt.rhine.comment.repository.CommentRepository;
+import com.tskmgmnt.rhine.core.entity.OutboundMail;
+import com.tskmgmnt.rhine.core.service.MailOutbox;
+import com.tskmgmnt.rhine.core.service.TemplateRenderer;
+import com.tskmgmnt.rhine.notification.entity.DigestRun;
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import com.tskmgmnt.rhine.notification.entity.UpdateReadMarker;
+import com.tskmgmnt.rhine.notification.repository.DigestRunRepository;
+import com.tskmgmnt.rhine.notification.repository.ProjectUpdateRepository;
+import com.tskmgmnt.rhine.notification.repository.UpdateReadMarkerRepository;
+import com.tskmgmnt.rhine.project.repository.ProjectRepository;
+import com.tskmgmnt.rhine.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DigestServiceTest {
+
+    private UserRepository userRepository;
+    private ProjectUpdateRepository projectUpdateRepository;
+    private UpdateReadMarkerRepository updateReadMarkerRepository;
+    private CommentRepository commentRepository;
+    private DigestRunRepository digestRunRepository;
+    private MailOutbox mailOutbox;
+    private DigestService digestService;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        projectUpdateRepository = mock(ProjectUpdateRepository.class);
+        updateReadMarkerRepository = mock(UpdateReadMarkerRepository.class);
+        commentRepository = mock(CommentRepository.class);
+        ProjectRepository projectRepository = mock(ProjectRepository.class);
+        digestRunRepository = mock(DigestRunRepository.class);
+        mailOutbox = mock(MailOutbox.class);
+
+        when(digestRunRepository.findFirstByFinishedAtIsNotNullOrderByWindowEndDesc()).thenReturn(Optional.empty());
+        when(digestRunRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(projectRepository.findNamesByIdIn(any())).thenReturn(List.<Object[]>of(new Object[]{1L, "Apollo"}));
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        digestService = new DigestService(userRepository, projectUpdateRepository, updateReadMarkerRepository,
+                commentRepository, projectRepository, digestRunRepository,
+                new TemplateRenderer(templateEngine, meterRegistry, true), mailOutbox, meterRegistry,
+                true, 2, 2, 5, Duration.ofHours(24), Duration.ofDays(7), Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(digestService, "frontendUrl", "http://localhost:5173");
+    }
+
+    private void recipients(String after, String... emails) {
+        List<Object[]> rows = new ArrayList<>();
+        for (String email : emails) {
+            rows.add(new Object[]{email, email.substring(0, email.indexOf('@'))});
+        }
+        when(userRepository.findDigestRecipients(eq(after), anyLong(), anyLong(), any(), any(), any(Limit.class)))
+                .thenReturn(rows);
+    }
+
+    private void updates(ProjectUpdate... updates) {
+        when(projectUpdateRepository.findForDigest(any(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            return List.of(updates).stream().filter(u -> emails.contains(u.getUserEmail())).toList();
+        });
+    }
+
+    private static ProjectUpdate update(String email, String message) {
+        ProjectUpdate update = new ProjectUpdate(1L, email, message);
+        update.setId(TsidCreator.getTsid().toLong());
+        return update;
+    }
+
+    private List<OutboundMail> queued() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OutboundMail>> batches = ArgumentCaptor.forClass(List.class);
+        verify(mailOutbox, atLeast(0)).enqueueAll(batches.capture());
+        return batches.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @Test
+    void testFullPageIsFollowedByTheNextOne() {
+        recipients("", "a@example.com", "b@example.com");
+        recipients("b@example.com", "c@example.com");
+        updates(update("a@example.com", "A"), update("b@example.com", "B"), update("c@example.com", "C"));
+
+        digestService.sendDailyDigests();
+
+        verify(userRepository).findDigestRecipients(eq(""), anyLong(), anyLong(), any(), any(), any(Limit.class));
+        verify(userRepository).findDigestRecipients(eq("b@example.com"), anyLong(), anyLong(), any(), any(), any(Limit.class));
+        // The second page was short, so it was the last.
+        verify(userRepository, times(2)).findDigestRecipients(any(), anyLong(), anyLong(), any(), any(), any(Limit.class));
+        assertEquals(List.of("a@example.com", "b@example.com", "c@example.com"),
+                queued().stream().map(OutboundMail::getRecipient).toList());
+    }
+
+    @Test
+    void testUserWhoReadEverythingGetsNoDigest() {
+        recipients("", "a@example.com");
+        ProjectUpdate read = update("a@example.com", "Already seen");
+        updates(read, update("b@example.com", "Not on this page"));
+        UpdateReadMarker marker = new UpdateReadMarker("a@example.com", 1L);
+        marker.setReadUpTo(read.getId());
+        when(updateReadMarkerRepository.findAllByUserEmailIn(any())).thenReturn(List.of(marker));
+
+        digestService.sendDailyDigests();
+
+        assertTrue(queued().isEmpty());
+    }
+
+    @Test
+    void testSecondReplicaDoesNotRunTheSameDay() {
+        when(digestRunRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate run_date"));
+
+        digestService.sendDailyDigests();
+
+        verifyNoInteractions(userRepository, mailOutbox);
+        verify(digestRunRepository, never()).save(any());
+    }
+
+    @Test
+    void testWindowStartsWhereTheLastFinishedRunEnded() {
+        Instant lastEnd = Instant.now().minus(3, ChronoUnit.DAYS);
+        DigestRun finished = new DigestRun(LocalDate.now().minusDays(3), lastEnd.minus(1, ChronoUnit.DAYS), lastEnd);
+        finished.setFinishedAt(lastEnd);
+        when(digestRunRepository.findFirstByFinishedAtIsNotNullOrderByWindowEndDesc()).thenReturn(Optional.of(finished));
+
+        digestService.sendDailyDigests();
+
+        ArgumentCaptor<DigestRun> claimed = ArgumentCaptor.forClass(DigestRun.class);
+        verify(digestRunRepository).saveAndFlush(claimed.capture());
+        assertEquals(lastEnd, claimed.getValue().getWindowStart());
+        assertNotNull(claimed.getValue().getFinishedAt());
+    }
+
+    @Test
+    void testDigestListsEachProjectWithItsUnreadItems() {
+        recipients("", "a@example.com");
+        updates(update("a@example.com", "You were assigned to Launch"));
+        when(commentRepository.findUnreadForDigest(any(), any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{"a@example.com", 1L, "Launch", "Bob", "Ready when you are"}));
+
+        digestService.sendDailyDigests();
+
+        List<OutboundMail> mails = queued();
+        assertEquals(1, mails.size());
+        String body = mails.get(0).getBody();
+        assertTrue(body.contains("Apollo"), body);
+        assertTrue(body.contains("You were assigned to Launch"), body);
+        assertTrue(body.contains("unread update"), body);
+        assertTrue(body.contains("Ready when you are"), body);
+        assertTrue(body.contains("http://localhost:5173"), body);
+    }
+}
@@ -0,0 +1,148 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.f4b6a3.tsid.TsidCreator;
+import com.tskmgmnt.rhine.notification.entity.OutboxEvent;
+import com.tskmgmnt.rhine.notification.event.RealtimeEvent;
+import com.tskmgmnt.rhine.notification.repository.OutboxEventRepository;
+import com.tskmgmnt.rhine.notification.repository.PresenceLeaseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OutboxRelayTest {
+
+    private List<OutboxEvent> committed;
+    private OutboxEventRepository repository;
+    private ProjectEventDispatcher eventDispatcher;
+    private SimpMessagingTemplate messagingTemplate;
+    private PresenceRegistry presenceRegistry;
+    private UnreadUpdateCounter unreadUpdateCounter;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        committed = new ArrayList<>();
+        repository = mock(OutboxEventRepository.class);
+        when(repository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            return committed.stream()
+                    .map(OutboxEvent::getId)
+                    .filter(id -> id > after)
+                    .sorted()
+                    .limit(limit.max())
+                    .toList();
+        });
+        when(repository.findByIdInOrderByIdAsc(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return committed.stream()
+                    .filter(row -> ids.contains(row.getId()))
+                    .sorted(Comparator.comparing(OutboxEvent::getId))
+                    .toList();
+        });
+        eventDispatcher = mock(ProjectEventDispatcher.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        unreadUpdateCounter = mock(UnreadUpdateCounter.class);
+        presenceRegistry = new PresenceRegistry(messagingTemplate, mock(PresenceLeaseRepository.class), meterRegistry,
+                30_000, 30_000);
+        EventOutbox eventOutbox = new EventOutbox(repository, mock(ApplicationEventPublisher.class), new ObjectMapper(),
+                meterRegistry, 128, Duration.ofHours(1));
+
+        // Polled by hand; the scheduled poll never comes round during a test.
+        relay = new OutboxRelay(repository, eventOutbox, eventDispatcher, messagingTemplate,
+                unreadUpdateCounter, presenceRegistry, mock(ProjectEventStream.class), meterRegistry,
+                3_600_000, 2_000, 10, 1000);
+        relay.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        relay.stop();
+    }
+
+    private OutboxEvent projectRow(long id, String payload) {
+        OutboxEvent row = new OutboxEvent(1L, null, "task-updated", null, "\"" + payload + "\"");
+        row.setId(id);
+        return row;
+    }
+
+    @Test
+    void testLateCommitInsideTheLagWindowIsDelivered() {
+        // The slow transaction took its id first but commits after the next one.
+        long slowId = TsidCreator.getTsid().toLong();
+        long fastId = TsidCreator.getTsid().toLong();
+        assertTrue(slowId < fastId);
+
+        committed.add(projectRow(fastId, "fast"));
+        relay.poll();
+        verify(eventDispatcher).dispatch(eq(1L), eq("task-updated"), any(), any(), eq(fastId));
+
+        committed.add(projectRow(slowId, "slow"));
+        relay.poll();
+        verify(eventDispatcher).dispatch(eq(1L), eq("task-updated"), any(), any(), eq(slowId));
+        // Its id is re-read on the second poll, but its row is neither loaded nor sent again.
+        verify(eventDispatcher, times(1)).dispatch(eq(1L), eq("task-updated"), any(), any(), eq(fastId));
+        verify(repository).findByIdInOrderByIdAsc(List.of(slowId));
+    }
+
+    @Test
+    void testEventDeliveredAfterCommitIsNotRelayedAgain() {
+        long id = TsidCreator.getTsid().toLong();
+        RealtimeEvent event = RealtimeEvent.toProject(1L, "task-updated", null, "local");
+        event.setOutboxId(id);
+
+        assertTrue(relay.deliverCommitted(event));
+        assertFalse(relay.deliverCommitted(event));
+        committed.add(projectRow(id, "local"));
+        relay.poll();
+
+        verify(eventDispatcher, times(1)).dispatch(eq(1L), eq("task-updated"), any(), any(), eq(id));
+        verify(repository, never()).findByIdInOrderByIdAsc(anyCollection());
+    }
+
+    @Test
+    void testUserEventIsOnlySentWhileTheUserIsOnline() {
+        OutboxEvent first = new OutboxEvent(1L, "alice@example.com", "updates", null, "\"first\"");
+        first.setId(TsidCreator.getTsid().toLong());
+        committed.add(first);
+        relay.poll();
+
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any());
+        // Still counted, so the badge is right when the user comes back.
+        verify(unreadUpdateCounter).adjust("alice@example.com", 1L, 1);
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+        headers.setSessionId("session-1");
+        Principal alice = () -> "alice@example.com";
+        presenceRegistry.onConnected(new SessionConnectedEvent(this,
+                MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders()), alice));
+
+        OutboxEvent second = new OutboxEvent(1L, "alice@example.com", "updates", null, "\"second\"");
+        second.setId(TsidCreator.getTsid().toLong());
+        committed.add(second);
+        relay.poll();
+
+        verify(messagingTemplate, times(1)).convertAndSendToUser(eq("alice@example.com"), eq("/queue/updates"), any());
+    }
+}
@@ -0,0 +1,108 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.entity.PresenceLease;
+import com.tskmgmnt.rhine.notification.repository.PresenceLeaseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PresenceRegistryTest {
+
+    private PresenceLeaseRepository presenceLeaseRepository;
+    private SimpMessagingTemplate messagingTemplate;
+    private PresenceRegistry presenceRegistry;
+    private List<Object[]> elsewhere;
+
+    @BeforeEach
+    public void setUp() {
+        presenceLeaseRepository = mock(PresenceLeaseRepository.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        elsewhere = new ArrayList<>();
+        when(presenceLeaseRepository.findLiveElsewhere(any(), anyString(), any())).thenAnswer(invocation -> elsewhere);
+        presenceRegistry = new PresenceRegistry(messagingTemplate, presenceLeaseRepository, new SimpleMeterRegistry(),
+                30_000, 30_000);
+    }
+
+    @Test
+    void testMembersOnOtherNodesAreReportedAndBroadcast() {
+        watch("session-1", "alice@example.com", 7L);
+        presenceRegistry.syncWithCluster();
+        presenceRegistry.broadcastChanges();
+        clearInvocations(messagingTemplate);
+
+        elsewhere.add(new Object[]{7L, "bob@example.com"});
+        presenceRegistry.syncWithCluster();
+
+        assertEquals(Set.of("alice@example.com", "bob@example.com"), Set.copyOf(presenceRegistry.onlineMembers(7L)));
+        // Bob joined on another node, so this node's viewers must hear about it.
+        presenceRegistry.broadcastChanges();
+        verify(messagingTemplate).convertAndSend(eq("/topic/project/7/presence"), any(Map.class));
+        // Delivery decisions stay local.
+        assertFalse(presenceRegistry.isOnline("bob@example.com"));
+    }
+
+    @Test
+    void testProjectNotWatchedHereIsReadFromTheLeases() {
+        elsewhere.add(new Object[]{9L, "bob@example.com"});
+
+        assertEquals(List.of("bob@example.com"), presenceRegistry.onlineMembers(9L));
+    }
+
+    @Test
+    void testLeasesFollowLocalSessions() {
+        watch("session-1", "alice@example.com", 7L);
+        presenceRegistry.syncWithCluster();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PresenceLease>> added = ArgumentCaptor.forClass(List.class);
+        verify(presenceLeaseRepository).saveAll(added.capture());
+        assertEquals(1, added.getValue().size());
+        assertEquals("alice@example.com", added.getValue().get(0).getUserEmail());
+        assertEquals(7L, added.getValue().get(0).getProjectId());
+        String nodeId = added.getValue().get(0).getNodeId();
+
+        // Unchanged sessions are only renewed.
+        presenceRegistry.syncWithCluster();
+        verify(presenceLeaseRepository, times(1)).saveAll(any());
+        verify(presenceLeaseRepository, times(2)).renew(eq(nodeId), any());
+
+        presenceRegistry.onDisconnect(new SessionDisconnectEvent(this,
+                MessageBuilder.withPayload(new byte[0]).build(), "session-1", CloseStatus.NORMAL));
+        presenceRegistry.syncWithCluster();
+        verify(presenceLeaseRepository).release(nodeId, 7L, "alice@example.com");
+    }
+
+    private void watch(String sessionId, String user, Long projectId) {
+        Principal principal = () -> user;
+        SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+        connect.setSessionId(sessionId);
+        presenceRegistry.onConnected(new SessionConnectedEvent(this,
+                MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()), principal));
+
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId(sessionId);
+        subscribe.setSubscriptionId("sub-" + projectId);
+        subscribe.setDestination("/topic/project/" + projectId + "/tasks");
+        presenceRegistry.onSubscribe(new SessionSubscribeEvent(this,
+                MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()), principal));
+    }
+}
@@ -0,0 +1,81 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.dto.EventReplay;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProjectEventLogTest {
+
+    private ProjectEventLog log;
+    private AtomicLong outboxIds;
+
+    @BeforeEach
+    public void setUp() {
+        log = new ProjectEventLog(new SimpleMeterRegistry(), 3, 2, 100L);
+        outboxIds = new AtomicLong(100L);
+    }
+
+    private long append(Long projectId, String payload) {
+        long seq = outboxIds.incrementAndGet();
+        boolean[] published = {false};
+        log.append(projectId, "task-updated", List.of(payload), seq, () -> published[0] = true);
+        assertTrue(published[0]);
+        return seq;
+    }
+
+    @Test
+    void testReplaysFramesAfterLastSeq() {
+        long baseline = log.latestSeq(1L);
+        long first = append(1L, "a");
+        long second = append(1L, "b");
+
+        EventReplay replay = log.replaySince(1L, first);
+        assertTrue(replay.isComplete());
+        assertEquals(second, replay.getLatestSeq());
+        assertEquals(1, replay.getFrames().size());
+        assertEquals(List.of("b"), replay.getFrames().get(0).getPayloads());
+
+        assertEquals(2, log.replaySince(1L, baseline).getFrames().size());
+    }
+
+    @Test
+    void testGapLargerThanBufferRequiresRefetch() {
+        long baseline = log.latestSeq(1L);
+        long first = append(1L, "a");
+        for (String p : List.of("b", "c", "d")) {
+            append(1L, p);
+        }
+
+        assertFalse(log.replaySince(1L, baseline).isComplete());
+        EventReplay replay = log.replaySince(1L, first);
+        assertTrue(replay.isComplete());
+        assertEquals(3, replay.getFrames().size());
+    }
+
+    @Test
+    void testSequenceIsSharedButReplayIsPerProject() {
+        long before = append(1L, "a");
+        long other = append(2L, "x");
+        long after = append(1L, "b");
+
+        assertTrue(other > before && after > other);
+        EventReplay replay = log.replaySince(1L, before);
+        assertTrue(replay.isComplete());
+        assertEquals(List.of(after), replay.getFrames().stream().map(EventReplay.Frame::getSeq).toList());
+    }
+
+    @Test
+    void testDroppedProjectHistoryRequiresRefetch() {
+        long seen = append(1L, "a");
+        append(2L, "x");
+        append(3L, "y");
+
+        assertFalse(log.replaySince(1L, seen).isComplete());
+    }
+}
@@ -0,0 +1,97 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.entity.ProjectUpdate;
+import com.tskmgmnt.rhine.notification.repository.ProjectUpdateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ProjectUpdateWriterTest {
+
+    private ProjectUpdateRepository repository;
+    private List<String> saved;
+    private List<String> dropped;
+    private ProjectUpdateWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(ProjectUpdateRepository.class);
+        saved = new CopyOnWriteArrayList<>();
+        dropped = new CopyOnWriteArrayList<>();
+        writer = new ProjectUpdateWriter(repository, mock(EventOutbox.class), mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), 100, 10, 50, "block", 50, 2, 1);
+        writer.onDropped(update -> dropped.add(update.getMessage()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void testBadRowIsDroppedAndTheRestOfTheBatchIsSaved() throws Exception {
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ProjectUpdate> updates = invocation.getArgument(0);
+            if (updates.stream().anyMatch(u -> u.getMessage().equals("bad"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            updates.forEach(u -> saved.add(u.getMessage()));
+            return updates;
+        });
+
+        enqueueAll("a", "bad", "c");
+        awaitSettled(3);
+
+        assertEquals(List.of("a", "c"), saved);
+        assertEquals(List.of("bad"), dropped);
+        // The batch, two retries, then one call per row.
+        verify(repository, times(6)).saveAll(anyList());
+    }
+
+    @Test
+    void testBatchIsRetriedAfterATransientFailure() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ProjectUpdate> updates = invocation.getArgument(0);
+            if (calls.incrementAndGet() == 1) {
+                throw new DataIntegrityViolationException("deadlock");
+            }
+            updates.forEach(u -> saved.add(u.getMessage()));
+            return updates;
+        });
+
+        enqueueAll("a", "b");
+        awaitSettled(2);
+
+        assertEquals(List.of("a", "b"), saved);
+        assertTrue(dropped.isEmpty());
+        verify(repository, times(2)).saveAll(anyList());
+    }
+
+    private void enqueueAll(String... messages) {
+        // Queued before the worker starts so they are flushed as one batch.
+        for (String message : messages) {
+            assertTrue(writer.enqueue(new ProjectUpdate(1L, "alice@example.com", message)));
+        }
+        writer.start();
+    }
+
+    private void awaitSettled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (saved.size() + dropped.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, saved.size() + dropped.size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.tskmgmnt.rhine.notification.service;
+
+import com.tskmgmnt.rhine.notification.enums.UpdateCategory;
+import com.tskmgmnt.rhine.notification.repository.ProjectUpdateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UpdateServiceTest {
+
+    private UpdateCoalescer updateCoalescer;
+    private UpdateService updateService;
+
+    @BeforeEach
+    public void setUp() {
+        updateCoalescer = mock(UpdateCoalescer.class);
+        when(updateCoalescer.submit(any(), any(), any(), any(), any())).thenReturn(true);
+        updateService = new UpdateService(mock(ProjectUpdateRepository.class), mock(EventOutbox.class), updateCoalescer,
+                mock(UnreadUpdateCounter.class), mock(UpdateReadService.class), mock(ProjectUpdateWriter.class),
+                new SimpleMeterRegistry(), 30, 1000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testUpdateIsQueuedOnlyOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        updateService.createAndSendUpdate(1L, "Alice@example.com", "Task moved");
+        verifyNoInteractions(updateCoalescer);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(updateCoalescer).submit(1L, "alice@example.com", "Task moved", UpdateCategory.GENERAL, null);
+    }
+
+    @Test
+    void testRolledBackUpdateIsDroppedAndCanBeSentAgain() {
+        TransactionSynchronizationManager.initSynchronization();
+        updateService.createAndSendUpdate(1L, "alice@example.com", "Task moved");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        verifyNoInteractions(updateCoalescer);
+
+        // The retried change must not be swallowed as a duplicate of the rolled back one.
+        updateService.createAndSendUpdate(1L, "alice@example.com", "Task moved");
+        verify(updateCoalescer).submit(1L, "alice@example.com", "Task moved", UpdateCategory.GENERAL, null);
+    }
+
+    @Test
+    void testUpdateOutsideATransactionIsQueuedAtOnce() {
+        updateService.createAndSendUpdate(1L, "alice@example.com", "Task moved");
+        updateService.createAndSendUpdate(1L, "alice@example.com", "Task moved");
+
+        verify(updateCoalescer, times(1)).submit(1L, "alice@example.com", "Task moved", UpdateCategory.GENERAL, null);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,74 @@
+package com.tskmgmnt.rhine.user.service;
+
+import com.tskmgmnt.rhine.auth.repository.RevokedTokenRepository;
+import com.tskmgmnt.rhine.auth.service.JwtService;
+import com.tskmgmnt.rhine.auth.service.PasswordHashingService;
+import com.tskmgmnt.rhine.auth.service.TokenAuthenticationService;
+import com.tskmgmnt.rhine.auth.service.TokenRevocationService;
+import com.tskmgmnt.rhine.auth.service.TokenVersionCache;
+import com.tskmgmnt.rhine.core.exception.BadRequestException;
+import com.tskmgmnt.rhine.user.entity.User;
+import com.tskmgmnt.rhine.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserServiceTest {
+
+    private static final String SECRET = "testing_dummy_secret_key_which_is_at_least_256_bits_long!";
+
+    private UserRepository userRepository;
+    private PasswordHashingService passwordHashingService;
+    private JwtService jwtService;
+    private TokenAuthenticationService tokenAuthenticationService;
+    private UserService userService;
+    private User alice;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        userRepository = mock(UserRepository.class);
+        passwordHashingService = mock(PasswordHashingService.class);
+        jwtService = new JwtService(SECRET, 60_000, 60_000, 100, meterRegistry);
+        TokenVersionCache tokenVersionCache = new TokenVersionCache(userRepository, meterRegistry, 60_000, 100);
+        tokenAuthenticationService = new TokenAuthenticationService(jwtService, tokenVersionCache,
+                new TokenRevocationService(mock(RevokedTokenRepository.class), meterRegistry, 100, 0.001, 2000));
+        userService = new UserService(userRepository, passwordHashingService, jwtService, tokenVersionCache);
+
+        alice = new User("Alice", "alice@example.com", "old-hash");
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(alice));
+        when(userRepository.findTokenVersionByEmail("alice@example.com"))
+                .thenAnswer(invocation -> Optional.of(alice.getTokenVersion()));
+        when(passwordHashingService.matches("current", "old-hash")).thenReturn(true);
+        when(passwordHashingService.encode("replacement")).thenReturn("new-hash");
+    }
+
+    @Test
+    void testChangePasswordSignsOutOtherSessionsButKeepsTheCaller() {
+        String otherSession = jwtService.generateToken(alice);
+        tokenAuthenticationService.authenticate(otherSession);
+
+        String fresh = userService.changePassword("alice@example.com", "current", "replacement");
+
+        assertEquals("new-hash", alice.getPwd());
+        assertEquals(1, alice.getTokenVersion());
+        assertThrows(BadCredentialsException.class, () -> tokenAuthenticationService.authenticate(otherSession));
+        assertEquals("alice@example.com", tokenAuthenticationService.authenticate(fresh).getName());
+    }
+
+    @Test
+    void testWrongCurrentPasswordLeavesSessionsAlone() {
+        assertThrows(BadRequestException.class,
+                () -> userService.changePassword("alice@example.com", "wrong", "replacement"));
+
+        assertEquals("old-hash", alice.getPwd());
+        assertEquals(0, alice.getTokenVersion());
+        verify(userRepository, never()).save(any());
+    }
+}
@@ -10,13 +10,22 @@ let stompClient = null;
 let currentSubscriptions = {};
 let lastProjectId = null;
 let lastUserEmail = null;
+let lastToken = null;
+let projectHandlers = {};
+let lastSeqByProject = {};
 
 export const websocketMiddleware = (store) => (next) => (action) => {
-    if (!stompClient) {
-        initializeWebSocket(store);
-    }
-    
     const result = next(action);
+
+    // The broker authenticates the session at CONNECT, so (re)connect whenever the token changes.
+    const token = store.getState().auth?.token ?? null;
+    if (token !== lastToken) {
+        lastToken = token;
+        teardownWebSocket();
+        if (token) {
+            initializeWebSocket(store);
+        }
+    }
     
     if (stompClient && stompClient.connected) {
         handleDynamicSubscriptions(store);
@@ -25,6 +34,18 @@ export const websocketMiddleware = (store) => (next) => (action) => {
     return result;
 };
 
+function teardownWebSocket() {
+    if (stompClient) {
+        stompClient.deactivate();
+        stompClient = null;
+    }
+    currentSubscriptions = {};
+    projectHandlers = {};
+    lastSeqByProject = {};
+    lastProjectId = null;
+    lastUserEmail = null;
+}
+
 function handleDynamicSubscriptions(store) {
     const state = store.getState();
     const userEmail = state.auth?.userEmail;
@@ -37,50 +58,83 @@ function handleDynamicSubscriptions(store) {
         if (lastProjectId !== strProjectId || lastUserEmail !== userEmail) {
             Object.values(currentSubscriptions).forEach(sub => sub.unsubscribe());
             currentSubscriptions = {};
+            projectHandlers = {};
             
             console.log(`[WebSocket] Subscribing to dynamic topics for project ${strProjectId}`);
 
-            const updateTopic = `/topic/project/${strProjectId}/updates/${userEmail}`;
-            currentSubscriptions[updateTopic] = stompClient.subscribe(updateTopic, (message) => {
-                logStompMessage(`project-update-${strProjectId}`, message.body, '🔔');
-                try {
-                    const newUpdate = JSON.parse(message.body);
-                    const newUpdateId = String(newUpdate.id);
-                    
-                    store.dispatch(
-                        updateApi.util.updateQueryData('getProjectUpdates', strProjectId, (draft) => {
-                            const exists = draft.some(u => 
-                                String(u.id) === newUpdateId || 
-                                (u.message === newUpdate.message && 
-                                 Math.abs(new Date(u.createdAt) - new Date(newUpdate.createdAt)) < 2000)
-                            );
-                            
-                            if (!exists) {
-                                draft.unshift({
-                                    ...newUpdate,
-                                    id: newUpdateId,
-                                    projectId: String(newUpdate.projectId)
-                                });
-                            }
-                        })
-                    );
-                } catch (error) {
-                    console.error('[WebSocket] Error parsing project update:', error);
+            subscribeToProject(strProjectId, 'members', (events) => {
+                logStompMessage(`project-members-${strProjectId}`, events, '👥');
+                store.dispatch(
+                    projectsApi.util.invalidateTags([{ type: 'ProjectMember', id: strProjectId }])
+                );
+
+                if (events.some(event => JSON.stringify(event).includes("MEMBER_REMOVED"))) {
+                    store.dispatch(tasksApi.util.invalidateTags([{ type: 'Task' }]));
                 }
             });
 
-            const membersTopic = `/topic/project/${strProjectId}/members`;
-            currentSubscriptions[membersTopic] = stompClient.subscribe(membersTopic, (message) => {
-                logStompMessage(`project-members-${strProjectId}`, message.body, '👥');
+            // Presence frames are snapshots without a seq; the newest one wins.
+            subscribeToProject(strProjectId, 'presence', (events) => {
+                const latest = events[events.length - 1];
                 store.dispatch(
-                    projectsApi.util.invalidateTags([{ type: 'ProjectMember', id: strProjectId }])
+                    projectsApi.util.updateQueryData('getOnlineMembers', strProjectId, () => latest.online)
                 );
-                
-                if (message.body && String(message.body).includes("MEMBER_REMOVED")) {
-                    store.dispatch(tasksApi.util.invalidateTags([{ type: 'Task' }]));
+            });
+
+            subscribeToProject(strProjectId, 'comments', (events) => {
+                logStompMessage(`comments-${strProjectId}`, events, '💬');
+                store.dispatch(commentsApi.util.invalidateTags(commentTags(events)));
+            });
+
+            subscribeToProject(strProjectId, 'comment-update', (events) => {
+                logStompMessage(`comment-update-${strProjectId}`, events);
+                store.dispatch(commentsApi.util.invalidateTags(commentTags(events)));
+            });
+
+            subscribeToProject(strProjectId, 'comment-deletion', (events) => {
+                logStompMessage(`comment-deletion-${strProjectId}`, events, '🗑️');
+                store.dispatch(commentsApi.util.invalidateTags(commentTags(events)));
+            });
+
+            subscribeToProject(strProjectId, 'task-created', (events) => {
+                logStompMessage(`task-created-${strProjectId}`, events, '🆕');
+                store.dispatch(
+                    tasksApi.util.invalidateTags([{ type: 'Task', id: 'LIST' }])
+                );
+            });
+
+            subscribeToProject(strProjectId, 'task-deleted', (events) => {
+                logStompMessage(`task-deleted-${strProjectId}`, events, '❌');
+                store.dispatch(
+                    tasksApi.util.invalidateTags([{ type: 'Task', id: 'LIST' }])
+                );
+            });
+
+            subscribeToProject(strProjectId, 'task-updated', (events) => {
+                logStompMessage(`task-updated-${strProjectId}`, events, '📝');
+                const tags = taskTags(events);
+                if (tags.length > 0) {
+                    store.dispatch(
+                        tasksApi.util.invalidateTags([...tags, { type: 'Task', id: 'LIST' }])
+                    );
+                }
+            });
+
+            subscribeToProject(strProjectId, 'task-status-updated', (events) => {
+                logStompMessage(`task-status-updated-${strProjectId}`, events, '🔄');
+                const tags = taskTags(events);
+                if (tags.length > 0) {
+                    store.dispatch(tasksApi.util.invalidateTags(tags));
                 }
             });
 
+            // Ask for anything sent since the last frame we saw; on first subscribe this
+            // just tells us where the sequence stands.
+            stompClient.publish({
+                destination: `/app/project/${strProjectId}/resync`,
+                body: JSON.stringify({ lastSeq: lastSeqByProject[strProjectId] ?? null }),
+            });
+
             lastProjectId = strProjectId;
             lastUserEmail = userEmail;
         }
@@ -89,12 +143,78 @@ function handleDynamicSubscriptions(store) {
             console.log('[WebSocket] Clearing dynamic project subscriptions');
             Object.values(currentSubscriptions).forEach(sub => sub.unsubscribe());
             currentSubscriptions = {};
+            projectHandlers = {};
             lastProjectId = null;
             lastUserEmail = null;
         }
     }
 }
 
+/**
+ * Project topics deliver frames holding a JSON array of events (the server
+ * coalesces bursts per destination), so handlers always receive an array and
+ * can invalidate once per frame. Each frame carries a per-project sequence
+ * number in its `seq` header, used to resync after a reconnect.
+ */
+function subscribeToProject(strProjectId, event, callback) {
+    const topic = `/topic/project/${strProjectId}/${event}`;
+    projectHandlers[event] = callback;
+    currentSubscriptions[topic] = stompClient.subscribe(topic, (message) => {
+        recordSeq(strProjectId, message.headers?.seq);
+        let events;
+        try {
+            const body = JSON.parse(message.body);
+            events = Array.isArray(body) ? body : [body];
+        } catch (error) {
+            console.error(`[WebSocket] Error parsing ${event} frame:`, error);
+            return;
+        }
+        callback(events);
+    });
+}
+
+// Sequence numbers are 64-bit ids, so they are kept as strings and compared as BigInts.
+function recordSeq(strProjectId, seq) {
+    if (seq == null) {
+        return;
+    }
+    const last = lastSeqByProject[strProjectId];
+    if (last == null || BigInt(seq) > BigInt(last)) {
+        lastSeqByProject[strProjectId] = String(seq);
+    }
+}
+
+function handleReplay(store, replay) {
+    const strProjectId = String(replay.projectId);
+    if (strProjectId !== lastProjectId) {
+        return;
+    }
+
+    if (!replay.complete) {
+        console.log(`[WebSocket] Missed too many events for project ${strProjectId}. Refetching.`);
+        store.dispatch(tasksApi.util.invalidateTags([{ type: 'Task' }]));
+        store.dispatch(commentsApi.util.invalidateTags([{ type: 'Comment' }]));
+        store.dispatch(projectsApi.util.invalidateTags([{ type: 'ProjectMember', id: strProjectId }]));
+        store.dispatch(updateApi.util.invalidateTags([
+            { type: 'Update', id: `PROJECT_${strProjectId}` },
+            { type: 'Update', id: `UNREAD_${strProjectId}` },
+        ]));
+    } else {
+        replay.frames.forEach((frame) => projectHandlers[frame.event]?.(frame.payloads));
+    }
+    recordSeq(strProjectId, replay.latestSeq);
+}
+
+function commentTags(events) {
+    const taskIds = new Set(events.map(event => event?.taskId).filter(id => id != null));
+    return [...taskIds].map(taskId => ({ type: 'Comment', id: String(taskId) }));
+}
+
+function taskTags(events) {
+    const taskIds = new Set(events.map(event => event?.payload?.id).filter(id => id != null));
+    return [...taskIds].map(taskId => ({ type: 'Task', id: String(taskId) }));
+}
+
 function logStompMessage(topic, body, emoji = '📩') {
     try {
         const parsedBody = typeof body === 'string' ? JSON.parse(body) : body;
@@ -121,6 +241,9 @@ function initializeWebSocket(store) {
             if (str.includes('PONG') || str.includes('PING')) return;
             console.log('%c[WebSocket] STOMP Frame:', 'color: #888; font-style: italic;', str);
         },
+        beforeConnect: () => {
+            stompClient.connectHeaders = { Authorization: `Bearer ${store.getState().auth?.token}` };
+        },
         reconnectDelay: 5000,
         heartbeatIncoming: 4000,
         heartbeatOutgoing: 4000,
@@ -128,149 +251,104 @@ function initializeWebSocket(store) {
         onConnect: () => {
             console.log('%c[WebSocket] Connected', 'color: #14B8A6; font-weight: bold; font-size: 1.1em;');
             
-            handleDynamicSubscriptions(store);
-
-            const userEmail = store.getState().auth?.userEmail;
-            if (userEmail) {
-                const evictionTopic = `/topic/user/${userEmail}/eviction`;
-                stompClient.subscribe(evictionTopic, (message) => {
-                    logStompMessage(`eviction-${userEmail}`, message.body, '🚫');
-                    try {
-                        const evictedProjectId = String(message.body);
-                        const currentProjectId = String(store.getState().project?.activeProject?.id);
-                        
-                        store.dispatch(projectsApi.util.invalidateTags([{ type: 'Project' }]));
-                        
-                        if (evictedProjectId === currentProjectId) {
-                            console.log("[WebSocket] Active project evicted. Clearing state.");
-                            store.dispatch(clearActiveProject());
-                            store.dispatch(updateApi.util.invalidateTags([{ type: 'Update', id: `PROJECT_${evictedProjectId}` }]));
-                            store.dispatch(tasksApi.util.invalidateTags([{ type: 'Task' }]));
-                            store.dispatch(projectsApi.util.invalidateTags([{ type: 'Project', id: evictedProjectId }]));
-                        }
-                    } catch (error) {
-                        console.error('[WebSocket] Error handling eviction:', error);
-                    }
-                });
-
-                const taskEvictionTopic = `/topic/user/${userEmail}/task-eviction`;
-                stompClient.subscribe(taskEvictionTopic, (message) => {
-                    logStompMessage(`task-eviction-${userEmail}`, message.body, '🚫');
-                    try {
-                        const evictedTaskId = String(message.body);
-                        console.log("[WebSocket] Task evicted. Invalidating tags for taskId:", evictedTaskId);
-                        store.dispatch(tasksApi.util.invalidateTags([{ type: 'Task', id: evictedTaskId }]));
-                    } catch (error) {
-                        console.error('[WebSocket] Error handling task eviction:', error);
-                    }
-                });
-            }
-
-            stompClient.subscribe('/topic/unread-updates', (message) => {
-                logStompMessage('/topic/unread-updates', message.body);
-                try {
-                    const { taskId, recipientEmail } = JSON.parse(message.body);
-                    store.dispatch(
-                        commentsApi.util.invalidateTags([
-                            { type: 'UnreadCount', id: `${String(taskId)}-${recipientEmail}` },
-                            { type: 'Comment', id: 'RECIPIENT' },
-                        ])
-                    );
-                } catch (error) {
-                    console.error('[WebSocket] Error parsing unread update:', error);
-                }
-            });
+            lastProjectId = null;
+            currentSubscriptions = {};
 
-            stompClient.subscribe('/topic/comments', (message) => {
-                logStompMessage('/topic/comments', message.body, '💬');
+            stompClient.subscribe('/user/queue/updates', (message) => {
+                logStompMessage('/user/queue/updates', message.body, '🔔');
                 try {
-                    const newComment = JSON.parse(message.body);
+                    const newUpdate = JSON.parse(message.body);
+                    const newUpdateId = String(newUpdate.id);
+                    const strProjectId = String(newUpdate.projectId);
+                    
+                    let isNew = true;
                     store.dispatch(
-                        commentsApi.util.invalidateTags([{ type: 'Comment', id: String(newComment.taskId) }])
+                        updateApi.util.updateQueryData('getProjectUpdateFeed', { projectId: strProjectId }, (draft) => {
+                            const exists = draft.items.some(u => 
+                                String(u.id) === newUpdateId || 
+                                (u.message === newUpdate.message && 
+                                 Math.abs(new Date(u.createdAt) - new Date(newUpdate.createdAt)) < 2000)
+                            );
+                            
+                            if (exists) {
+                                isNew = false;
+                            } else {
+                                draft.items.unshift({
+                                    ...newUpdate,
+                                    id: newUpdateId,
+                                    projectId: strProjectId
+                                });
+                            }
+                        })
                     );
+                    if (isNew) {
+                        store.dispatch(
+                            updateApi.util.updateQueryData('getUnreadUpdateCount', strProjectId, (draft) => draft + 1)
+                        );
+                    }
                 } catch (error) {
-                    console.error('[WebSocket] Error parsing comment:', error);
+                    console.error('[WebSocket] Error parsing project update:', error);
                 }
             });
 
-            stompClient.subscribe('/topic/comment-update', (message) => {
-                logStompMessage('/topic/comment-update', message.body);
+            stompClient.subscribe('/user/queue/replay', (message) => {
+                logStompMessage('/user/queue/replay', message.body, '⏪');
                 try {
-                    const updatedComment = JSON.parse(message.body);
-                    store.dispatch(
-                        commentsApi.util.invalidateTags([{ type: 'Comment', id: String(updatedComment.taskId) }])
-                    );
+                    handleReplay(store, JSON.parse(message.body));
                 } catch (error) {
-                    console.error('[WebSocket] Error parsing comment update:', error);
+                    console.error('[WebSocket] Error handling replay:', error);
                 }
             });
 
-            stompClient.subscribe('/topic/comment-deletion', (message) => {
-                logStompMessage('/topic/comment-deletion', message.body, '🗑️');
+            stompClient.subscribe('/user/queue/eviction', (message) => {
+                logStompMessage('/user/queue/eviction', message.body, '🚫');
                 try {
-                    const data = JSON.parse(message.body);
-                    store.dispatch(
-                        commentsApi.util.invalidateTags([{ type: 'Comment', id: String(data.taskId) }])
-                    );
+                    const evictedProjectId = String(message.body);
+                    const currentProjectId = String(store.getState().project?.activeProject?.id);
+                    
+                    store.dispatch(projectsApi.util.invalidateTags([{ type: 'Project' }]));
+                    
+                    if (evictedProjectId === currentProjectId) {
+                        console.log("[WebSocket] Active project evicted. Clearing state.");
+                        store.dispatch(clearActiveProject());
+                        store.dispatch(updateApi.util.invalidateTags([{ type: 'Update', id: `PROJECT_${evictedProjectId}` }]));
+                        store.dispatch(tasksApi.util.invalidateTags([{ type: 'Task' }]));
+                        store.dispatch(projectsApi.util.invalidateTags([{ type: 'Project', id: evictedProjectId }]));
+                    }
                 } catch (error) {
-                    console.error('[WebSocket] Error parsing comment deletion:', error);
+                    console.error('[WebSocket] Error handling eviction:', error);
                 }
             });
 
-            stompClient.subscribe('/topic/task-created', (message) => {
-                logStompMessage('/topic/task-created', message.body, '🆕');
+            stompClient.subscribe('/user/queue/task-eviction', (message) => {
+                logStompMessage('/user/queue/task-eviction', message.body, '🚫');
                 try {
-                    store.dispatch(
-                        tasksApi.util.invalidateTags([{ type: 'Task', id: 'LIST' }])
-                    );
+                    const evictedTaskId = String(message.body);
+                    console.log("[WebSocket] Task evicted. Invalidating tags for taskId:", evictedTaskId);
+                    store.dispatch(tasksApi.util.invalidateTags([{ type: 'Task', id: evictedTaskId }]));
                 } catch (error) {
-                    console.error('[WebSocket] Error parsing task created:', error);
+                    console.error('[WebSocket] Error handling task eviction:', error);
                 }
             });
 
-            stompClient.subscribe('/topic/task-deleted', (message) => {
-                logStompMessage('/topic/task-deleted', message.body, '❌');
+            stompClient.subscribe('/user/queue/unread-updates', (message) => {
+                logStompMessage('/user/queue/unread-updates', message.body);
                 try {
+                    const { taskId } = JSON.parse(message.body);
+                    const userEmail = store.getState().auth?.userEmail;
                     store.dispatch(
-                        tasksApi.util.invalidateTags([{ type: 'Task', id: 'LIST' }])
+                        commentsApi.util.invalidateTags([
+                            { type: 'UnreadCount', id: `${String(taskId)}-${userEmail}` },
+                            { type: 'Comment', id: 'RECIPIENT' },
+                        ])
                     );
                 } catch (error) {
-                    console.error('[WebSocket] Error parsing task deleted:', error);
-                }
-            });
-
-            stompClient.subscribe('/topic/task-updated', (message) => {
-                logStompMessage('/topic/task-updated', message.body, '📝');
-                try {
-                    const updatedTask = JSON.parse(message.body);
-                    const taskId = updatedTask.payload?.id;
-                    if (taskId) {
-                        store.dispatch(
-                            tasksApi.util.invalidateTags([
-                                { type: 'Task', id: String(taskId) },
-                                { type: 'Task', id: 'LIST' },
-                            ])
-                        );
-                    }
-                } catch (error) {
-                    console.error('[WebSocket] Error parsing task update:', error);
+                    console.error('[WebSocket] Error parsing unread update:', error);
                 }
             });
 
-            stompClient.subscribe('/topic/task-status-updated', (message) => {
-                logStompMessage('/topic/task-status-updated', message.body, '🔄');
-                try {
-                    const data = JSON.parse(message.body);
-                    const taskId = data.payload?.id;
-                    if (taskId) {
-                        store.dispatch(
-                            tasksApi.util.invalidateTags([{ type: 'Task', id: String(taskId) }])
-                        );
-                    }
-                } catch (error) {
-                    console.error('[WebSocket] Error parsing task status update:', error);
-                }
-            });
+            // Project topics last, so the resync they send is answered on a live replay queue.
+            handleDynamicSubscriptions(store);
         },
 
         onStompError: (frame) => {
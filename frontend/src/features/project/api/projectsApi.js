@@ -44,6 +44,12 @@ const projectsApi = baseApi.injectEndpoints({
                 { type: "ProjectMember", id: projectId },
             ],
         }),
+        getOnlineMembers: builder.query({
+            query: (projectId) => `/api/projects/${projectId}/presence`,
+            providesTags: (result, error, projectId) => [
+                { type: "ProjectMember", id: `ONLINE_${projectId}` },
+            ],
+        }),
         inviteMember: builder.mutation({
             query: ({ projectId, ...data }) => ({
                 url: `/api/projects/${projectId}/members`,
@@ -87,6 +93,7 @@ export const {
     useUpdateProjectMutation,
     useDeleteProjectMutation,
     useGetProjectMembersQuery,
+    useGetOnlineMembersQuery,
     useInviteMemberMutation,
     useAcceptInviteMutation,
     useRemoveMemberMutation,
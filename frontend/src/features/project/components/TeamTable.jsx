@@ -4,7 +4,7 @@ import { highlightSearchMatch } from '../../task/utils/taskUtils';
 import { useTeamTable } from '../hooks/useTeamTable';
 import { MobileListItem } from '../../../core/ui';
 
-export const TeamTable = ({ members, userEmail, isAdmin, onRemove, searchTerm }) => {
+export const TeamTable = ({ members, onlineEmails, userEmail, isAdmin, onRemove, searchTerm }) => {
     const {
         actionMenuOpen,
         menuPosition,
@@ -85,8 +85,14 @@ export const TeamTable = ({ members, userEmail, isAdmin, onRemove, searchTerm })
                             <tr key={member.email} className="hover:bg-gray-50 dark:bg-[#1a1a1a] dark:hover:bg-[#262626]">
                                 <td className="px-6 py-4">
                                     <div className="flex items-center gap-3">
-                                        <div className="w-8 h-8 rounded-full border border-primary/30 bg-primary/10 text-primary flex justify-center items-center text-sm flex-shrink-0">
+                                        <div className="relative w-8 h-8 rounded-full border border-primary/30 bg-primary/10 text-primary flex justify-center items-center text-sm flex-shrink-0">
                                             {member.name?.[0]?.toUpperCase() || "?"}
+                                            {onlineEmails?.has(member.email) && (
+                                                <span
+                                                    className="absolute -bottom-0.5 -right-0.5 w-2.5 h-2.5 rounded-full bg-green-500 border-2 border-white dark:border-[#1a1a1a]"
+                                                    title="Online"
+                                                />
+                                            )}
                                         </div>
                                         <p className="flex items-center gap-2 text-sm font-medium text-gray-900 dark:text-[#e5e5e5] truncate">
                                             {highlightSearchMatch(member.name.replace(/\(Pending\)/g, "").trim(), searchTerm)}
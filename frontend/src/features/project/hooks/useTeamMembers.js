@@ -3,6 +3,7 @@ import { useParams } from "react-router-dom";
 import { useSelector } from "react-redux";
 import {
     useGetProjectMembersQuery,
+    useGetOnlineMembersQuery,
     useInviteMemberMutation,
     useRemoveMemberMutation,
 } from '../api/projectsApi';
@@ -17,6 +18,8 @@ export const useTeamMembers = () => {
     const { showSnackbar } = useSnackbar();
 
     const { data: members = [], isLoading } = useGetProjectMembersQuery(projectId);
+    const { data: onlineMembers = [] } = useGetOnlineMembersQuery(projectId);
+    const onlineEmails = new Set(onlineMembers);
 
     const filteredMembers = members.filter(member =>
         member.name.toLowerCase().includes(searchTerm.toLowerCase()) ||
@@ -83,6 +86,7 @@ export const useTeamMembers = () => {
         members,
         isLoading,
         filteredMembers,
+        onlineEmails,
         inviteLoading,
         inviteEmail,
         setInviteEmail,
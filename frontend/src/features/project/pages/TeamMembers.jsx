@@ -10,6 +10,7 @@ const TeamMembers = () => {
         searchTerm,
         isLoading,
         filteredMembers,
+        onlineEmails,
         inviteLoading,
         inviteEmail,
         setInviteEmail,
@@ -55,6 +56,7 @@ const TeamMembers = () => {
             <div className="w-full h-full p-4 md:p-6 pt-0 md:pt-0">
                 <TeamTable
                     members={filteredMembers}
+                    onlineEmails={onlineEmails}
                     userEmail={userEmail}
                     isAdmin={isAdmin}
                     onRemove={setRemoveTarget}
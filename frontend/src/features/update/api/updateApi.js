@@ -1,5 +1,7 @@
 import { baseApi } from '../../../core/api/baseApi';
 
+const FEED_PAGE_SIZE = 20;
+
 export const updateApi = baseApi.injectEndpoints({
     endpoints: (builder) => ({
         getProjectUpdates: builder.query({
@@ -17,6 +19,33 @@ export const updateApi = baseApi.injectEndpoints({
                     : [{ type: 'Update', id: `PROJECT_${standardizedId}` }];
             },
         }),
+        getProjectUpdateFeed: builder.query({
+            query: ({ projectId, before }) => ({
+                url: `/api/projects/${projectId}/updates/feed`,
+                method: 'GET',
+                params: before ? { before, limit: FEED_PAGE_SIZE } : { limit: FEED_PAGE_SIZE },
+            }),
+            // One cache entry per project; older pages are appended to it.
+            serializeQueryArgs: ({ queryArgs }) => String(queryArgs.projectId),
+            merge: (currentCache, response, { arg }) => {
+                if (!arg.before) {
+                    return response;
+                }
+                const seen = new Set(currentCache.items.map((u) => String(u.id)));
+                currentCache.items.push(...response.items.filter((u) => !seen.has(String(u.id))));
+                currentCache.nextCursor = response.nextCursor;
+            },
+            forceRefetch: ({ currentArg, previousArg }) => currentArg?.before !== previousArg?.before,
+            providesTags: (result, error, { projectId }) => [{ type: 'Update', id: `PROJECT_${String(projectId)}` }],
+        }),
+        getUnreadUpdateCount: builder.query({
+            query: (projectId) => ({
+                url: `/api/projects/${projectId}/updates/unread-count`,
+                method: 'GET',
+            }),
+            transformResponse: (response) => response.count,
+            providesTags: (result, error, projectId) => [{ type: 'Update', id: `UNREAD_${String(projectId)}` }],
+        }),
         markUpdatesAsRead: builder.mutation({
             query: ({ projectId, updateIds }) => ({
                 url: `/api/projects/${projectId}/updates/read`,
@@ -24,27 +53,64 @@ export const updateApi = baseApi.injectEndpoints({
                 body: { updateIds },
             }),
             async onQueryStarted({ projectId, updateIds }, { dispatch, queryFulfilled }) {
-                const patchResult = dispatch(
-                    updateApi.util.updateQueryData('getProjectUpdates', String(projectId), (draft) => {
+                const strProjectId = String(projectId);
+                const feedPatch = dispatch(
+                    updateApi.util.updateQueryData('getProjectUpdateFeed', { projectId: strProjectId }, (draft) => {
                         updateIds.forEach((id) => {
-                            const update = draft.find((u) => u.id === id);
+                            const update = draft.items.find((u) => u.id === id);
                             if (update) {
                                 update.isRead = true;
                             }
                         });
                     })
                 );
+                const countPatch = dispatch(
+                    updateApi.util.updateQueryData('getUnreadUpdateCount', strProjectId, (draft) =>
+                        Math.max(draft - updateIds.length, 0)
+                    )
+                );
+                try {
+                    await queryFulfilled;
+                } catch {
+                    feedPatch.undo();
+                    countPatch.undo();
+                }
+            },
+            invalidatesTags: (result, error, { projectId }) => [{ type: 'Update', id: `UNREAD_${String(projectId)}` }],
+        }),
+        markAllUpdatesAsRead: builder.mutation({
+            query: (projectId) => ({
+                url: `/api/projects/${projectId}/updates/read-all`,
+                method: 'POST',
+            }),
+            async onQueryStarted(projectId, { dispatch, queryFulfilled }) {
+                const strProjectId = String(projectId);
+                const feedPatch = dispatch(
+                    updateApi.util.updateQueryData('getProjectUpdateFeed', { projectId: strProjectId }, (draft) => {
+                        draft.items.forEach((update) => {
+                            update.isRead = true;
+                        });
+                    })
+                );
+                const countPatch = dispatch(
+                    updateApi.util.updateQueryData('getUnreadUpdateCount', strProjectId, () => 0)
+                );
                 try {
                     await queryFulfilled;
                 } catch {
-                    patchResult.undo();
+                    feedPatch.undo();
+                    countPatch.undo();
                 }
             },
+            invalidatesTags: (result, error, projectId) => [{ type: 'Update', id: `UNREAD_${String(projectId)}` }],
         }),
     }),
 });
 
 export const {
     useGetProjectUpdatesQuery,
+    useGetProjectUpdateFeedQuery,
+    useGetUnreadUpdateCountQuery,
     useMarkUpdatesAsReadMutation,
+    useMarkAllUpdatesAsReadMutation,
 } = updateApi;
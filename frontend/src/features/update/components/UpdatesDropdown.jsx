@@ -2,7 +2,11 @@ import React, { useState, useEffect, useRef } from 'react';
 import { Bell, MessageSquare } from 'lucide-react';
 import { useSelector } from 'react-redux';
 import { formatDistanceToNow } from 'date-fns';
-import { useGetProjectUpdatesQuery, useMarkUpdatesAsReadMutation } from '../api/updateApi';
+import {
+    useGetProjectUpdateFeedQuery,
+    useGetUnreadUpdateCountQuery,
+    useMarkAllUpdatesAsReadMutation,
+} from '../api/updateApi';
 import { useGetCommentsByRecipientAndProjectQuery } from '../../task/api/commentsApi';
 import { useGetTasksQuery } from '../../task/api/tasksApi';
 
@@ -11,12 +15,24 @@ const UpdatesDropdown = () => {
     const userEmail = useSelector((state) => state.auth.userEmail) ?? null;
     const parsedProjectId = activeProject?.id ? String(activeProject.id) : null;
     const [isOpen, setIsOpen] = useState(false);
+    const [before, setBefore] = useState(null);
     const dropdownRef = useRef(null);
 
-    const { data: updates = [], isLoading } = useGetProjectUpdatesQuery(parsedProjectId, {
+    const { data: unreadCount = 0 } = useGetUnreadUpdateCountQuery(parsedProjectId, {
         skip: !parsedProjectId,
     });
-    const [markAsRead] = useMarkUpdatesAsReadMutation();
+    // The list itself is only fetched once the dropdown is opened.
+    const { data: feed, isLoading, isFetching } = useGetProjectUpdateFeedQuery(
+        { projectId: parsedProjectId, before },
+        { skip: !parsedProjectId || !isOpen }
+    );
+    const updates = feed?.items ?? [];
+    const [markAllAsRead] = useMarkAllUpdatesAsReadMutation();
+
+    useEffect(() => {
+        setBefore(null);
+    }, [parsedProjectId]);
+
 
     const { data: receivedComments = [] } = useGetCommentsByRecipientAndProjectQuery({
         recipientEmail: userEmail,
@@ -34,8 +50,6 @@ const UpdatesDropdown = () => {
         (c) => !c.readByRecipient && projectTaskIds.has(c.taskId)
     ).length;
 
-    const unreadCount = updates.filter(u => !u.isRead).length;
-
     if (!parsedProjectId) return null;
 
     const toggleDropdown = () => {
@@ -43,8 +57,7 @@ const UpdatesDropdown = () => {
         setIsOpen(newIsOpen);
 
         if (newIsOpen && unreadCount > 0) {
-            const unreadIds = updates.filter(u => !u.isRead).map(u => u.id);
-            markAsRead({ projectId: parsedProjectId, updateIds: unreadIds });
+            markAllAsRead(parsedProjectId);
         }
     };
 
@@ -122,6 +135,17 @@ const UpdatesDropdown = () => {
                                             </div>
                                         </li>
                                     ))}
+                                    {feed?.nextCursor && (
+                                        <li className="p-2 text-center">
+                                            <button
+                                                onClick={() => setBefore(feed.nextCursor)}
+                                                disabled={isFetching}
+                                                className="text-xs text-gray-500 dark:text-gray-400 hover:underline cursor-pointer disabled:opacity-50"
+                                            >
+                                                {isFetching ? 'Loading...' : 'Load older updates'}
+                                            </button>
+                                        </li>
+                                    )}
                                 </ul>
                             )}
                         </div>
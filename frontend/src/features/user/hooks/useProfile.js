@@ -120,6 +120,11 @@ export const useProfile = () => {
                 newPassword: btoa(passwordDetails.newPassword),
             }).unwrap();
 
+            // The change signs out other sessions; keep this one on the fresh token.
+            if (response?.token) {
+                dispatch(updateAuthUser({ token: response.token }));
+            }
+
             setPasswordDetails({
                 oldPassword: "",
                 newPassword: "",